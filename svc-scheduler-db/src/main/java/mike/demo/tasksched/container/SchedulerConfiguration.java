@@ -1,16 +1,30 @@
 package mike.demo.tasksched.container;
 
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import mike.demo.tasksched.library.ruby.RubyScheduler;
 import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
+import mike.demo.tasksched.library.ruby.cluster.CoordinationStoreFactory;
 
 @Configuration
 class SchedulerConfiguration {
 	
+	/**
+	 * Cluster mode when a membership file is given (<code>scheduler.cluster.store</code>):
+	 * the agents started with distinct <code>--node</code> values share the tasks.
+	 */
 	@Bean
-	public RubyScheduler rubyScheduler() {
-		return new RubySchedulerBuilder().build();
+	public RubyScheduler rubyScheduler(@Value("${node:local}") String node, @Value("${scheduler.cluster.store:}") String clusterStore) {
+		RubySchedulerBuilder builder = new RubySchedulerBuilder();
+		
+		if ( ! clusterStore.isBlank() ) {
+			builder.withCluster(node, CoordinationStoreFactory.newFileCoordinationStore(Path.of(clusterStore)));
+		}
+		
+		return builder.build();
 	}
 }
@@ -0,0 +1,30 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Task worker waiting for an external completion (process, I/O, remote call) without holding a thread.<br/>
+ * <br/>
+ * The scheduler thread is released as soon as {@link #invokeAsync()} returns, the execution ends when the
+ * returned stage completes: its status ({@link TaskStatus#SUCCESS}, {@link TaskStatus#WARNING} or
+ * {@link TaskStatus#ERROR}) is recorded in the task history. A stage completed exceptionally is an error.
+ */
+public interface AsyncTaskWorker extends TaskWorker {
+
+	CompletionStage<TaskStatus> invokeAsync();
+	
+	/**
+	 * Invoke the worker with the cancellation token of the execution (ignored by default).
+	 */
+	default CompletionStage<TaskStatus> invokeAsync(CancellationToken token) {
+		return this.invokeAsync();
+	}
+	
+	/**
+	 * Blocking invocation (waits for the completion of {@link #invokeAsync()}).
+	 */
+	@Override
+	default void invoke() {
+		this.invokeAsync().toCompletableFuture().join();
+	}
+}
@@ -0,0 +1,40 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of an execution (cancel request or max runtime exceeded).<br/>
+ * <br/>
+ * A blocking worker is also interrupted: it should either check the token between units of work
+ * or stop on {@link InterruptedException}. An asynchronous worker registers the action aborting
+ * its pending operation with {@link #onCancel(Runnable)}.
+ */
+public interface CancellationToken {
+
+	/** Token of an execution that cannot be cancelled */
+	CancellationToken NONE = new CancellationToken() {
+		
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+		
+		@Override
+		public void onCancel(Runnable action) {
+			// Never cancelled
+		}
+	};
+	
+	boolean isCancelled();
+	
+	/**
+	 * Register an action run once when the execution is cancelled (immediately if already cancelled).
+	 */
+	void onCancel(Runnable action);
+	
+	default void throwIfCancelled() {
+		if ( this.isCancelled() ) {
+			throw new CancellationException("Execution cancelled");
+		}
+	}
+}
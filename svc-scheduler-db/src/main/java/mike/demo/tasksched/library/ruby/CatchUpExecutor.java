@@ -0,0 +1,138 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.demo.tasksched.library.ruby.timer.WheelTimer;
+
+/**
+ * Replay the missed executions at a limited rate.<br/>
+ * <br/>
+ * One execution is admitted per admission interval (driven by the one-shot control timers, no thread is
+ * blocked): resuming after a long suspension does not flood the thread pool. The control timers do not
+ * run on the task pool, so the pace of the replays does not depend on free task threads; the admitted executions
+ * are dispatched by the admission executor (the dispatch may wait for room in the execution queue). A task still executing
+ * is skipped until the next admission. Admissions are paused while the scheduler is not listening.
+ */
+class CatchUpExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(CatchUpExecutor.class);
+
+	private final WheelTimer timer;
+	private final Duration admissionInterval;
+	private final BooleanSupplier admissionOpen;
+	private final Executor admissions;
+	private final Consumer<Task> dispatcher;
+
+	private final Deque<Pending> pending = new ArrayDeque<>();
+	private boolean admitting = false;
+	private int pendingRuns = 0;
+	private final AtomicLong admittedRuns = new AtomicLong(0);
+
+	CatchUpExecutor(WheelTimer timer, Duration admissionInterval, BooleanSupplier admissionOpen, Executor admissions, Consumer<Task> dispatcher) {
+		this.timer = timer;
+		this.admissionInterval = admissionInterval;
+		this.admissionOpen = admissionOpen;
+		this.admissions = admissions;
+		this.dispatcher = dispatcher;
+	}
+
+	/**
+	 * Queue the executions to replay for the given task.
+	 */
+	synchronized void submit(Task task, int runs) {
+		if ( runs <= 0 ) {
+			return;
+		}
+
+		pending.addLast(new Pending(task, runs));
+		pendingRuns += runs;
+
+		if ( ! admitting ) {
+			admitting = true;
+			this.scheduleAdmission(Duration.ZERO);
+		}
+	}
+
+	synchronized int getPendingRuns() {
+		return pendingRuns;
+	}
+
+	long getAdmittedRuns() {
+		return admittedRuns.get();
+	}
+
+	private void admit() {
+		Task task = null;
+
+		synchronized (this) {
+			if ( pending.isEmpty() ) {
+				admitting = false;
+				return;
+			}
+
+			if ( admissionOpen.getAsBoolean() ) {
+				Pending head = pending.pollFirst();
+
+				if ( head.task.isEnabled() && head.task.claim() ) {
+					task = head.task;
+					head.runs--;
+					pendingRuns--;
+				} else if ( ! head.task.isEnabled() ) {
+					pendingRuns -= head.runs;
+					head.runs = 0;
+				}
+
+				if ( head.runs > 0 ) {
+					pending.addLast(head);
+				}
+			}
+
+			this.scheduleAdmission(admissionInterval);
+		}
+
+		if ( task != null ) {
+			admittedRuns.incrementAndGet();
+			log.info("[CatchUp] Replay missed execution of task '{}'", task.getName());
+
+			Task admitted = task;
+			try {
+				admissions.execute( () -> dispatcher.accept(admitted) );
+			} catch (RejectedExecutionException ree) {
+				// Admission executor stopped (shutdown): the stopped thread pool rejects the execution
+				dispatcher.accept(admitted);
+			}
+		}
+	}
+
+	private void scheduleAdmission(Duration delay) {
+		try {
+			timer.schedule("CatchUp", delay, this::admit);
+		} catch (RejectedExecutionException ree) {
+			log.warn("[CatchUp] {} missed execution(s) discarded (cause: {})", pendingRuns, ree.getMessage());
+			pending.clear();
+			pendingRuns = 0;
+			admitting = false;
+		}
+	}
+
+	private static class Pending {
+
+		private final Task task;
+		private int runs;
+
+		Pending(Task task, int runs) {
+			this.task = task;
+			this.runs = runs;
+		}
+	}
+}
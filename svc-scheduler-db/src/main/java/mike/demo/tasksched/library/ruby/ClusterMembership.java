@@ -0,0 +1,202 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.demo.tasksched.library.ruby.cluster.ConsistentHashRing;
+import mike.demo.tasksched.library.ruby.cluster.CoordinationStore;
+
+/**
+ * Membership of the scheduler in a cluster of active nodes (see {@link RubySchedulerBuilder#withCluster}).<br/>
+ * <br/>
+ * Each node registers the same tasks: the tasks are partitioned across the live nodes by consistent hashing
+ * and a node only runs the tasks it owns (the other tasks are moved to their next execution time).
+ * The node renews its membership on each heartbeat (dedicated thread, independent of the task pool) and 
+ * rebuilds the ring when a node joins or leaves (the membership of a node not renewed within 3 heartbeats 
+ * expires).<br/>
+ * <br/>
+ * A task runs on at most one node:
+ * <ul>
+ * <li>the node runs no task once its last renewal is older than 2 heartbeats (lease), before the other 
+ * nodes consider its membership expired;</li>
+ * <li>a task moved to this node by a rebalance (or by a renewal after the lease expired) runs once the 
+ * lease of its previous owner is over: by then the previous owner has seen the new ring or stopped.</li>
+ * </ul>
+ * An execution due during the hand-over is skipped (moved to the next execution time), never doubled.<br/>
+ * Without cluster (standalone) the node owns all the tasks.
+ */
+class ClusterMembership {
+
+	private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+	private final Member member;
+	private final Duration ttl;
+	private final long leaseNanos;
+
+	private ScheduledThreadPoolExecutor heartbeatExecutor;
+
+	private volatile ConsistentHashRing ring;
+	// Ring before the last rebalance (null: the node did not own any task)
+	private volatile ConsistentHashRing previousRing;
+	private volatile long handOverUntilNanos;
+	private volatile long renewedAtNanos;
+	private volatile Instant lastHeartbeat;
+	private volatile boolean renewed = false;
+	private volatile boolean joined = false;
+	private final AtomicLong rebalances = new AtomicLong(0);
+	private final AtomicLong failedHeartbeats = new AtomicLong(0);
+
+	ClusterMembership(Member member) {
+		this.member = member;
+		this.ttl = member != null ? member.heartbeatInterval.multipliedBy(3) : Duration.ZERO;
+		this.leaseNanos = member != null ? member.heartbeatInterval.multipliedBy(2).toNanos() : 0;
+		this.ring = new ConsistentHashRing(List.of(this.getNodeId()));
+	}
+
+	boolean isClustered() {
+		return member != null;
+	}
+
+	String getNodeId() {
+		return member != null ? member.nodeId : "standalone";
+	}
+
+	/**
+	 * @return true when the task runs on this node
+	 */
+	boolean isOwner(String taskName) {
+		if ( member == null ) {
+			return true;
+		}
+
+		long now = System.nanoTime();
+
+		if ( this.isExpired(now) || ! member.nodeId.equals(ring.owner(taskName)) ) {
+			return false;
+		}
+
+		// Hand-over: a task moved to this node waits for the lease of its previous owner
+		ConsistentHashRing previous = this.previousRing;
+
+		return now - handOverUntilNanos >= 0 || (previous != null && member.nodeId.equals(previous.owner(taskName)));
+	}
+
+	/**
+	 * Register the node (synchronous heartbeat) then renew the membership periodically.
+	 */
+	synchronized void join() {
+		if ( member == null || joined ) {
+			return;
+		}
+
+		joined = true;
+		this.heartbeat();
+
+		heartbeatExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "Cluster:" + member.nodeId);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long intervalNanos = member.heartbeatInterval.toNanos();
+		heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Remove the node from the cluster: the other nodes take over its tasks.
+	 */
+	synchronized void leave() {
+		if ( member == null || ! joined ) {
+			return;
+		}
+
+		joined = false;
+		// No interruption: the store may be in the middle of a renewal
+		heartbeatExecutor.shutdown();
+
+		try {
+			member.store.leave(member.nodeId);
+			log.info("[Cluster::{}] Node left", member.nodeId);
+		} catch (RuntimeException re) {
+			log.warn("[Cluster::{}] Leave failed (the membership expires in {} ms) (cause: {})", member.nodeId, ttl.toMillis(), re.getMessage());
+		}
+	}
+
+	ClusterState getState() {
+		return new ClusterState(this.getNodeId(), this.isClustered(), ring.nodes(), lastHeartbeat, rebalances.get(), failedHeartbeats.get(), 
+				this.isClustered() && this.isExpired(System.nanoTime()));
+	}
+
+	private boolean isExpired(long nowNanos) {
+		return ! joined || ! renewed || nowNanos - renewedAtNanos >= leaseNanos;
+	}
+
+	private synchronized void heartbeat() {
+		if ( ! joined ) {
+			return;
+		}
+
+		// The lease starts before the round-trip (the store may record a later time)
+		long nanos = System.nanoTime();
+		boolean expired = this.isExpired(nanos);
+
+		try {
+			Instant now = Instant.now();
+			Set<String> liveNodes = member.store.heartbeat(member.nodeId, now, ttl);
+			lastHeartbeat = now;
+
+			boolean changed = ! liveNodes.equals(ring.nodes());
+
+			if ( changed ) {
+				log.info("[Cluster::{}] Rebalance (nodes: {} -> {})", member.nodeId, ring.nodes(), liveNodes);
+				rebalances.incrementAndGet();
+			}
+
+			if ( expired && renewed ) {
+				log.warn("[Cluster::{}] Membership renewed after its expiry (nodes: {})", member.nodeId, liveNodes);
+			}
+
+			if ( expired || changed ) {
+				// After an expiry the other nodes may have taken over any task
+				previousRing = expired ? null : ring;
+				ring = new ConsistentHashRing(liveNodes);
+				handOverUntilNanos = nanos + leaseNanos;
+			}
+
+			renewedAtNanos = nanos;
+			renewed = true;
+		} catch (RuntimeException re) {
+			// The current partition is kept until the lease expires
+			failedHeartbeats.incrementAndGet();
+			log.warn("[Cluster::{}] Heartbeat failed (cause: {})", member.nodeId, re.getMessage());
+
+			if ( this.isExpired(System.nanoTime()) ) {
+				log.warn("[Cluster::{}] Membership expired: no task runs on this node until the next renewal", member.nodeId);
+			}
+		}
+	}
+
+	/**
+	 * Cluster member definition
+	 */
+	static class Member {
+
+		private final String nodeId;
+		private final CoordinationStore store;
+		private final Duration heartbeatInterval;
+
+		Member(String nodeId, CoordinationStore store, Duration heartbeatInterval) {
+			this.nodeId = nodeId;
+			this.store = store;
+			this.heartbeatInterval = heartbeatInterval;
+		}
+	}
+}
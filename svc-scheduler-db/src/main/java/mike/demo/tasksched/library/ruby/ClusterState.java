@@ -0,0 +1,75 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Membership of the scheduler node in its cluster (see {@link RubySchedulerBuilder#withCluster}).
+ */
+public class ClusterState {
+
+	private final String nodeId;
+	private final boolean clustered;
+	private final Set<String> nodes;
+	private final Instant lastHeartbeat;
+	private final long rebalances;
+	private final long failedHeartbeats;
+	private final boolean expired;
+
+	ClusterState(String nodeId, boolean clustered, Set<String> nodes, Instant lastHeartbeat, long rebalances, long failedHeartbeats, 
+			boolean expired) {
+		this.nodeId = nodeId;
+		this.clustered = clustered;
+		this.nodes = new TreeSet<>(nodes);
+		this.lastHeartbeat = lastHeartbeat;
+		this.rebalances = rebalances;
+		this.failedHeartbeats = failedHeartbeats;
+		this.expired = expired;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public boolean isClustered() {
+		return clustered;
+	}
+
+	/**
+	 * @return the live nodes sharing the tasks (this node included)
+	 */
+	public Set<String> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the time of the last successful heartbeat (null when standalone)
+	 */
+	public Instant getLastHeartbeat() {
+		return lastHeartbeat;
+	}
+
+	/**
+	 * @return number of partition changes (node joined or left)
+	 */
+	public long getRebalances() {
+		return rebalances;
+	}
+
+	public long getFailedHeartbeats() {
+		return failedHeartbeats;
+	}
+
+	/**
+	 * @return true when the membership of the node has not been renewed in time (the node runs no task)
+	 */
+	public boolean isExpired() {
+		return expired;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("{node=%s, nodes=%s, rebalances=%d, failedHeartbeats=%d, expired=%s}", nodeId, nodes, rebalances, failedHeartbeats, expired);
+	}
+}
@@ -0,0 +1,38 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.ZonedDateTime;
+
+import mike.bootstrap.utilities.helpers.Dates;
+
+/**
+ * Forecast execution of a task (see {@link TaskManagerService#forecast(ZonedDateTime, ZonedDateTime)}).
+ */
+public class FireTime {
+
+	private final String group;
+	private final String name;
+	private final ZonedDateTime dateTime;
+
+	FireTime(String group, String name, ZonedDateTime dateTime) {
+		this.group = group;
+		this.name = name;
+		this.dateTime = dateTime;
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public ZonedDateTime getDateTime() {
+		return dateTime;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FireTime [group=%s, name=%s, dateTime=%s]", group, name, Dates.format(dateTime));
+	}
+}
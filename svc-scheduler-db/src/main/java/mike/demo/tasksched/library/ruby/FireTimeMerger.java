@@ -0,0 +1,80 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merge the forecast executions of several tasks into one chronological stream (k-way merge).<br/>
+ * Only the next execution of each task is computed ahead: the merged stream is as lazy as the 
+ * streams of the tasks.
+ */
+class FireTimeMerger extends Spliterators.AbstractSpliterator<FireTime> {
+
+	private static final Comparator<Cursor> CHRONOLOGICAL = Comparator
+			.comparing( (Cursor c) -> c.head.getDateTime() )
+			.thenComparing( c -> c.task.getName() );
+
+	private final List<Task> tasks;
+	private final ZonedDateTime from;
+	private final ZonedDateTime to;
+	private PriorityQueue<Cursor> cursors;
+
+	private FireTimeMerger(List<Task> tasks, ZonedDateTime from, ZonedDateTime to) {
+		super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+		this.tasks = tasks;
+		this.from = from;
+		this.to = to;
+	}
+
+	static Stream<FireTime> merge(List<Task> tasks, ZonedDateTime from, ZonedDateTime to) {
+		return StreamSupport.stream(new FireTimeMerger(tasks, from, to), false);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super FireTime> action) {
+		if ( cursors == null ) {
+			// The executions are computed when the stream is consumed
+			cursors = new PriorityQueue<>(Math.max(1, tasks.size()), CHRONOLOGICAL);
+			tasks.forEach( task -> new Cursor(task, task.forecast(from, to).iterator()).advance(cursors) );
+		}
+
+		Cursor cursor = cursors.poll();
+
+		if ( cursor == null ) {
+			return false;
+		}
+
+		FireTime fireTime = cursor.head;
+		cursor.advance(cursors);
+		action.accept(fireTime);
+
+		return true;
+	}
+
+	private static class Cursor {
+
+		private final Task task;
+		private final Iterator<ZonedDateTime> executions;
+		private FireTime head;
+
+		Cursor(Task task, Iterator<ZonedDateTime> executions) {
+			this.task = task;
+			this.executions = executions;
+		}
+
+		void advance(PriorityQueue<Cursor> cursors) {
+			if ( executions.hasNext() ) {
+				head = new FireTime(task.getGroup(), task.getName(), executions.next());
+				cursors.add(this);
+			}
+		}
+	}
+}
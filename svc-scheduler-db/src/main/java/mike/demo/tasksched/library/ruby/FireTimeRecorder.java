@@ -0,0 +1,57 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.Arrays;
+
+/**
+ * Record the fire-time error of the launcher, i.e. the delay between the time a task was scheduled at
+ * and the time it was actually submitted to the thread pool.<br/>
+ * <br/>
+ * The last samples are kept in a ring buffer (microseconds) and percentiles are computed on demand.
+ */
+class FireTimeRecorder {
+
+	private static final int WINDOW = 4096;
+
+	private final long[] samples = new long[WINDOW];
+	private long count = 0;
+
+	synchronized void record(long errorNanos) {
+		samples[(int) (count++ % WINDOW)] = Math.max(0, errorNanos) / 1_000;
+	}
+
+	synchronized Snapshot snapshot() {
+		int size = (int) Math.min(count, WINDOW);
+
+		if ( size == 0 ) {
+			return new Snapshot(0, 0, 0, 0);
+		}
+
+		long[] sorted = Arrays.copyOf(samples, size);
+		Arrays.sort(sorted);
+
+		return new Snapshot(count, percentile(sorted, 50), percentile(sorted, 99), sorted[size - 1]);
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	/**
+	 * Fire-time error percentiles over the last samples (microseconds)
+	 */
+	static class Snapshot {
+
+		final long count;
+		final long p50Micros;
+		final long p99Micros;
+		final long maxMicros;
+
+		Snapshot(long count, long p50Micros, long p99Micros, long maxMicros) {
+			this.count = count;
+			this.p50Micros = p50Micros;
+			this.p99Micros = p99Micros;
+			this.maxMicros = maxMicros;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+
+/**
+ * Offset of the executions of a task within its spread window (millisecond resolution).<br/>
+ * <br/>
+ * The offset is derived from the task name only (same offset on each run, restart and instance)
+ * so that tasks sharing the same schedule are evenly spread over the window.
+ */
+final class FireTimeSpread {
+
+	private FireTimeSpread() {}
+
+	static Duration offset(String taskName, Duration window) {
+		long windowMillis = window.toMillis();
+
+		if ( windowMillis <= 0 ) {
+			return Duration.ZERO;
+		}
+
+		return Duration.ofMillis(Long.remainderUnsigned(mix(taskName.hashCode()), windowMillis));
+	}
+
+	/**
+	 * Murmur3 finalizer (close names such as 'Task#1' and 'Task#2' get distant offsets)
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
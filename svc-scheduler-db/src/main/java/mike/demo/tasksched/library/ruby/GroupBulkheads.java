@@ -0,0 +1,146 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-group execution bulkheads enforced at dispatch.<br/>
+ * <br/>
+ * Each group can run at most <code>maxConcurrency</code> executions at a time in the shared thread pool,
+ * the following ones are held back in the group queue (up to <code>maxQueued</code>) and submitted as soon
+ * as an execution of the group terminates. When the group queue is full the execution is deferred.<br/>
+ * Groups without quota are not limited but their counters are maintained.
+ */
+class GroupBulkheads {
+
+	private static final Logger log = LoggerFactory.getLogger(GroupBulkheads.class);
+
+	private final Map<String, Quota> quotas;
+	private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+	private final Executor executor;
+	private final Duration deferDelay;
+
+	GroupBulkheads(Map<String, Quota> quotas, Executor executor, Duration deferDelay) {
+		this.quotas = Map.copyOf(quotas);
+		this.executor = executor;
+		this.deferDelay = deferDelay;
+		
+		this.quotas.keySet().forEach( group -> this.bulkheads.put(group, this.newBulkhead(group)) );
+	}
+
+	/**
+	 * Submit the execution to the thread pool if the group quota allows it.
+	 */
+	void dispatch(TaskRunner taskRunner) {
+		Bulkhead bulkhead = this.bulkheads.computeIfAbsent(taskRunner.getGroup(), this::newBulkhead);
+
+		switch ( bulkhead.admit(taskRunner) ) {
+			case ADMITTED:
+				taskRunner.onTermination(() -> this.release(bulkhead));
+				this.executor.execute(taskRunner);
+				break;
+
+			case QUEUED:
+				log.debug("[Bulkhead::{}] Task '{}' held back (quota reached)", bulkhead.name, taskRunner.getTaskName());
+				break;
+
+			case REJECTED:
+				log.warn("[Bulkhead::{}] Task '{}' deferred for {} (group queue full)", bulkhead.name, taskRunner.getTaskName(), deferDelay);
+				taskRunner.defer(deferDelay);
+				break;
+		}
+	}
+
+	List<GroupState> getStates() {
+		return this.bulkheads.values().stream()
+					.map(Bulkhead::getState)
+					.sorted((g1, g2) -> g1.getName().compareTo(g2.getName()))
+					.collect(Collectors.toUnmodifiableList());
+	}
+
+	private void release(Bulkhead bulkhead) {
+		TaskRunner next = bulkhead.release();
+
+		if ( next != null ) {
+			next.onTermination(() -> this.release(bulkhead));
+			this.executor.execute(next);
+		}
+	}
+
+	private Bulkhead newBulkhead(String group) {
+		return new Bulkhead(group, this.quotas.getOrDefault(group, Quota.UNLIMITED));
+	}
+
+	/**
+	 * Group quota
+	 */
+	static class Quota {
+
+		static final Quota UNLIMITED = new Quota(Integer.MAX_VALUE, 0);
+
+		final int maxConcurrency;
+		final int maxQueued;
+
+		Quota(int maxConcurrency, int maxQueued) {
+			this.maxConcurrency = Math.max(1, maxConcurrency);
+			this.maxQueued = Math.max(0, maxQueued);
+		}
+	}
+
+	private enum Admission { ADMITTED, QUEUED, REJECTED }
+
+	private static class Bulkhead {
+
+		private final String name;
+		private final Quota quota;
+		private final Deque<TaskRunner> queue = new ArrayDeque<>();
+		private int running = 0;
+		private long rejected = 0;
+
+		Bulkhead(String name, Quota quota) {
+			this.name = name;
+			this.quota = quota;
+		}
+
+		synchronized Admission admit(TaskRunner taskRunner) {
+			if ( running < quota.maxConcurrency ) {
+				running++;
+				return Admission.ADMITTED;
+			}
+
+			if ( queue.size() < quota.maxQueued ) {
+				queue.addLast(taskRunner);
+				return Admission.QUEUED;
+			}
+
+			rejected++;
+			return Admission.REJECTED;
+		}
+
+		/**
+		 * Release a slot and return the next held back execution (the slot is transferred to it).
+		 */
+		synchronized TaskRunner release() {
+			TaskRunner next = queue.pollFirst();
+
+			if ( next == null ) {
+				running--;
+			}
+
+			return next;
+		}
+
+		synchronized GroupState getState() {
+			return new GroupState(name, quota.maxConcurrency, quota.maxQueued, running, queue.size(), rejected);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package mike.demo.tasksched.library.ruby;
+
+/**
+ * Execution counters of a task group (bulkhead).
+ */
+public class GroupState {
+
+	private final String name;
+	private final int maxConcurrency;
+	private final int maxQueued;
+	private final int running;
+	private final int queued;
+	private final long rejected;
+
+	GroupState(String name, int maxConcurrency, int maxQueued, int running, int queued, long rejected) {
+		this.name = name;
+		this.maxConcurrency = maxConcurrency;
+		this.maxQueued = maxQueued;
+		this.running = running;
+		this.queued = queued;
+		this.rejected = rejected;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	/**
+	 * @return number of executions handed over to the thread pool (running or waiting for a thread)
+	 */
+	public int getRunning() {
+		return running;
+	}
+
+	/**
+	 * @return number of executions held back by the group quota
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return number of executions deferred because the group queue was full
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s={running=%d/%d, queued=%d/%d, rejected=%d}", 
+				name, running, maxConcurrency, queued, maxQueued, rejected);
+	}
+}
@@ -0,0 +1,400 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.demo.tasksched.library.ruby.repository.TaskRepository;
+
+/**
+ * Write-behind of the task history.<br/>
+ * <br/>
+ * The lifecycle transitions of an execution (queued, running, completed) are coalesced in a buffer
+ * (one pending write per execution, latest snapshot wins) and written by a background thread in two
+ * repository batches (inserts then updates) when the batch size or the flush interval is reached.<br/>
+ * The buffer is bounded: a new execution waits for room (at most the flush interval) when the buffer
+ * is full and is shed when no room is made in time (its history is not written at all). The transitions
+ * of an execution already accepted are always accepted, whether its insert is pending, being written or
+ * put back after a failure (the buffer exceeds the capacity by at most one entry per execution).<br/>
+ * A batch stays readable (see {@link #pending()}) until the repository write succeeds: a failed batch is
+ * put back in the buffer and retried after the flush interval. Closing the writer flushes the buffer;
+ * once closed the history is written through.
+ */
+class HistoryWriter {
+
+	private static final Logger log = LoggerFactory.getLogger(HistoryWriter.class);
+
+	private final String name;
+	private final TaskRepository taskRepository;
+	private final int capacity;
+	private final int batchSize;
+	private final long flushIntervalNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition flushRequested = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	// Serialize the batch writes (guards the batch in flight)
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private LinkedHashMap<String, Pending> pending = new LinkedHashMap<>();
+	// Batch being written: still readable until the write succeeds
+	private Map<String, Pending> inFlight = Map.of();
+	// Executions shed while the buffer was full (their transitions are dropped until they terminate)
+	private final Set<String> shed = new HashSet<>();
+	private Thread flusher;
+	private volatile boolean closed = false;
+	// Shutdown in progress: new executions no longer wait for room
+	private boolean released = false;
+
+	private final AtomicLong flushedBatches = new AtomicLong(0);
+	private final AtomicLong flushedWrites = new AtomicLong(0);
+	private final AtomicLong coalescedWrites = new AtomicLong(0);
+	private final AtomicLong failedBatches = new AtomicLong(0);
+	private final AtomicLong shedWrites = new AtomicLong(0);
+
+	HistoryWriter(String name, TaskRepository taskRepository, int capacity, Duration flushInterval) {
+		this.name = name;
+		this.taskRepository = taskRepository;
+		this.capacity = Math.max(1, capacity);
+		this.batchSize = Math.max(1, this.capacity / 2);
+		this.flushIntervalNanos = Math.max(1, flushInterval.toNanos());
+	}
+
+	/**
+	 * New execution history
+	 */
+	void insert(TaskHistory history) {
+		this.write(history, true);
+	}
+
+	/**
+	 * Transition of an execution history
+	 */
+	void update(TaskHistory history) {
+		this.write(history, false);
+	}
+
+	/**
+	 * @return the histories not yet written, batch in flight included (snapshots by uuid)
+	 */
+	Map<String, TaskHistory> pending() {
+		lock.lock();
+		try {
+			Map<String, TaskHistory> histories = new LinkedHashMap<>();
+			inFlight.forEach( (uuid, p) -> histories.put(uuid, p.history) );
+			pending.forEach( (uuid, p) -> histories.put(uuid, p.history) );
+			return histories;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int getPendingWrites() {
+		lock.lock();
+		try {
+			return pending.size() + (int) inFlight.keySet().stream().filter( uuid -> ! pending.containsKey(uuid) ).count();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	long getFlushedBatches() {
+		return flushedBatches.get();
+	}
+
+	long getFlushedWrites() {
+		return flushedWrites.get();
+	}
+
+	long getCoalescedWrites() {
+		return coalescedWrites.get();
+	}
+
+	long getFailedBatches() {
+		return failedBatches.get();
+	}
+
+	long getShedWrites() {
+		return shedWrites.get();
+	}
+
+	/**
+	 * Wake up the new executions waiting for room (scheduler shutdown): they are buffered at once.
+	 */
+	void release() {
+		lock.lock();
+		try {
+			released = true;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Write all the pending histories (caller thread)
+	 * 
+	 * @return false when the write failed (the histories are put back in the buffer)
+	 */
+	boolean flush() {
+		writeLock.lock();
+		try {
+			LinkedHashMap<String, Pending> batch;
+
+			lock.lock();
+			try {
+				batch = this.drain();
+				inFlight = batch;
+			} finally {
+				lock.unlock();
+			}
+
+			boolean written = this.writeBatch(batch);
+
+			lock.lock();
+			try {
+				inFlight = Map.of();
+
+				if ( written ) {
+					notFull.signalAll();
+				} else {
+					this.requeue(batch);
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			return written;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Stop the background writer and flush the pending histories.
+	 */
+	void close() {
+		lock.lock();
+		try {
+			closed = true;
+			flushRequested.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+
+		if ( flusher != null ) {
+			try {
+				flusher.join(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if ( ! this.flush() ) {
+			log.error("[{}] History writer closed with {} histories not written", this.name, this.getPendingWrites());
+		}
+
+		log.info("[{}] History writer closed (batches: {}, writes: {}, coalesced: {})", 
+				this.name, flushedBatches.get(), flushedWrites.get(), coalescedWrites.get());
+	}
+
+	private void write(TaskHistory history, boolean insert) {
+		TaskHistory snapshot = new TaskHistory(history);
+
+		lock.lock();
+		try {
+			Pending previous = pending.get(snapshot.getUuid());
+
+			if ( previous != null ) {
+				previous.history = snapshot;
+				coalescedWrites.incrementAndGet();
+				return;
+			}
+
+			if ( ! shed.isEmpty() && shed.contains(snapshot.getUuid()) ) {
+				if ( snapshot.getStatus().isTerminated() ) {
+					shed.remove(snapshot.getUuid());
+				}
+				shedWrites.incrementAndGet();
+				return;
+			}
+
+			// Only a new execution waits for room
+			if ( insert && ! this.awaitRoom() ) {
+				shed.add(snapshot.getUuid());
+				shedWrites.incrementAndGet();
+				log.warn("[{}] History buffer full: history {} of task '{}' not written", this.name, snapshot.getUuid(), snapshot.getName());
+				return;
+			}
+
+			if ( ! closed ) {
+				pending.put(snapshot.getUuid(), new Pending(snapshot, insert));
+				this.ensureStarted();
+
+				if ( pending.size() >= batchSize ) {
+					flushRequested.signal();
+				}
+
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		// Closed: write through
+		if ( ! this.writeBatch(new LinkedHashMap<>(Map.of(snapshot.getUuid(), new Pending(snapshot, insert)))) ) {
+			log.error("[{}] History {} lost (writer closed)", this.name, snapshot.getUuid());
+		}
+	}
+
+	/**
+	 * Wait (at most the flush interval) until the buffer has room, closed or released (lock held).<br/>
+	 * The batch in flight takes room until it is written (it is put back when the write fails).
+	 * 
+	 * @return false when the buffer is still full
+	 */
+	private boolean awaitRoom() {
+		long waitNanos = flushIntervalNanos;
+
+		while ( pending.size() + inFlight.size() >= capacity && ! closed && ! released ) {
+			if ( waitNanos <= 0 ) {
+				return false;
+			}
+
+			flushRequested.signal();
+
+			try {
+				waitNanos = notFull.awaitNanos(waitNanos);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void ensureStarted() {
+		if ( flusher == null ) {
+			flusher = new Thread(this::run, this.name + "-HistoryWriter");
+			flusher.setDaemon(true);
+			flusher.start();
+		}
+	}
+
+	private void run() {
+		boolean retry = false;
+
+		while ( ! closed ) {
+			lock.lock();
+			try {
+				long waitNanos = flushIntervalNanos;
+
+				// After a failure the batch is retried after the flush interval (whatever the buffer size)
+				while ( ! closed && (retry || pending.size() < batchSize) && waitNanos > 0 ) {
+					waitNanos = flushRequested.awaitNanos(waitNanos);
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			if ( ! closed ) {
+				retry = ! this.flush();
+			}
+		}
+	}
+
+	private LinkedHashMap<String, Pending> drain() {
+		LinkedHashMap<String, Pending> batch = this.pending;
+
+		if ( ! batch.isEmpty() ) {
+			this.pending = new LinkedHashMap<>();
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Put a failed batch back in front of the buffer (a newer snapshot of the same execution wins)
+	 */
+	private void requeue(Map<String, Pending> batch) {
+		LinkedHashMap<String, Pending> merged = new LinkedHashMap<>();
+
+		batch.forEach( (uuid, failed) -> {
+			Pending newer = pending.remove(uuid);
+			if ( newer != null ) {
+				failed.history = newer.history;
+				failed.insert |= newer.insert;
+			}
+
+			merged.put(uuid, failed);
+		});
+
+		merged.putAll(pending);
+		pending = merged;
+	}
+
+	private boolean writeBatch(Map<String, Pending> batch) {
+		if ( batch.isEmpty() ) {
+			return true;
+		}
+
+		List<TaskHistory> inserts = new ArrayList<>();
+		List<TaskHistory> updates = new ArrayList<>();
+
+		try {
+			// A retried insert may have been partially written by the failed batch
+			batch.values().stream()
+				.filter( p -> p.insert && p.retried && taskRepository.findHistoryByUuid(p.history.getUuid()).isPresent() )
+				.forEach( p -> p.insert = false );
+
+			batch.values().forEach( p -> (p.insert ? inserts : updates).add(p.history) );
+
+			if ( ! inserts.isEmpty() ) {
+				taskRepository.insertHistories(inserts);
+				// Retried as updates if the updates fail
+				batch.values().forEach( p -> p.insert = false );
+			}
+			if ( ! updates.isEmpty() ) {
+				taskRepository.updateHistories(updates);
+			}
+
+			flushedBatches.incrementAndGet();
+			flushedWrites.addAndGet(batch.size());
+			return true;
+		} catch (RuntimeException re) {
+			batch.values().forEach( p -> p.retried = true );
+			failedBatches.incrementAndGet();
+			log.error("[{}] History batch write failure ({} histories, cause: {})", this.name, batch.size(), re.getMessage());
+			return false;
+		}
+	}
+
+	private static class Pending {
+
+		private TaskHistory history;
+		private boolean insert;
+		private boolean retried = false;
+
+		Pending(TaskHistory history, boolean insert) {
+			this.history = history;
+			this.insert = insert;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Number of forecast executions per time bucket (see {@link TaskManagerService#forecastLoad}).<br/>
+ * Bucket <code>i</code> counts the executions in <code>[from + i * bucket, from + (i + 1) * bucket)</code>.
+ */
+public class LoadHistogram {
+
+	private final ZonedDateTime from;
+	private final Duration bucket;
+	private final long[] counts;
+
+	LoadHistogram(ZonedDateTime from, Duration bucket, long[] counts) {
+		this.from = from;
+		this.bucket = bucket;
+		this.counts = counts;
+	}
+
+	public ZonedDateTime getFrom() {
+		return from;
+	}
+
+	public ZonedDateTime getTo() {
+		return from.plus(bucket.multipliedBy(counts.length));
+	}
+
+	public Duration getBucket() {
+		return bucket;
+	}
+
+	public List<Long> getCounts() {
+		return Arrays.stream(counts).boxed().collect(Collectors.toUnmodifiableList());
+	}
+
+	public long getTotal() {
+		return Arrays.stream(counts).sum();
+	}
+
+	/**
+	 * @return the highest number of executions in one bucket
+	 */
+	public long getPeak() {
+		return Arrays.stream(counts).max().orElse(0);
+	}
+
+	/**
+	 * @return the start of the first bucket with the highest number of executions (null when no execution)
+	 */
+	public ZonedDateTime getPeakAt() {
+		long peak = this.getPeak();
+
+		for ( int i = 0; peak > 0 && i < counts.length; i++ ) {
+			if ( counts[i] == peak ) {
+				return from.plus(bucket.multipliedBy(i));
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LoadHistogram [from=%s, bucket=%s, buckets=%d, total=%d, peak=%d]", 
+				from, bucket, counts.length, this.getTotal(), this.getPeak());
+	}
+}
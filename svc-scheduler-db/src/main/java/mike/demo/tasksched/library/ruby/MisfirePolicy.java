@@ -0,0 +1,115 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+import mike.demo.tasksched.library.ruby.schedule.Schedule;
+
+/**
+ * What to do with the executions missed while the scheduler was suspended or stopped.<br/>
+ * <br/>
+ * In any case the task is moved to its next execution time. The missed executions to replay
+ * are handed over to the catch-up executor which admits them at a limited rate.
+ */
+public final class MisfirePolicy {
+
+	public enum Type { SKIP, FIRE_ONCE_NOW, FIRE_ALL_MISSED, FIRE_IF_WITHIN }
+
+	/** Default maximum number of executions replayed by {@link #fireAllMissed()} */
+	public static final int DEFAULT_MAX_CATCH_UP_RUNS = 100;
+
+	/** Missed executions are dropped (default) */
+	public static final MisfirePolicy SKIP = new MisfirePolicy(Type.SKIP, Duration.ZERO, 0);
+
+	/** Missed executions are replaced by a single execution */
+	public static final MisfirePolicy FIRE_ONCE_NOW = new MisfirePolicy(Type.FIRE_ONCE_NOW, Duration.ZERO, 1);
+
+	private final Type type;
+	private final Duration tolerance;
+	private final int maxRuns;
+
+	private MisfirePolicy(Type type, Duration tolerance, int maxRuns) {
+		this.type = type;
+		this.tolerance = tolerance;
+		this.maxRuns = maxRuns;
+	}
+
+	/**
+	 * Replay every missed execution (at most {@value #DEFAULT_MAX_CATCH_UP_RUNS}).
+	 */
+	public static MisfirePolicy fireAllMissed() {
+		return fireAllMissed(DEFAULT_MAX_CATCH_UP_RUNS);
+	}
+
+	public static MisfirePolicy fireAllMissed(int maxRuns) {
+		return new MisfirePolicy(Type.FIRE_ALL_MISSED, Duration.ZERO, Math.max(1, maxRuns));
+	}
+
+	/**
+	 * Fire once if the first missed execution is late by less than the given tolerance, skip otherwise.
+	 */
+	public static MisfirePolicy fireIfWithin(Duration tolerance) {
+		Objects.requireNonNull(tolerance, "Misfire tolerance must not be null");
+		return new MisfirePolicy(Type.FIRE_IF_WITHIN, tolerance, 1);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Duration getTolerance() {
+		return tolerance;
+	}
+
+	public int getMaxRuns() {
+		return maxRuns;
+	}
+
+	/**
+	 * @param schedule task schedule
+	 * @param missedAt first missed execution time
+	 * @param currentDateTime current time
+	 * @return the number of executions to replay
+	 */
+	int runsToCatchUp(Schedule schedule, ZonedDateTime missedAt, ZonedDateTime currentDateTime) {
+		switch ( type ) {
+			case FIRE_ONCE_NOW:
+				return 1;
+
+			case FIRE_IF_WITHIN:
+				return Duration.between(missedAt, currentDateTime).compareTo(tolerance) <= 0 ? 1 : 0;
+
+			case FIRE_ALL_MISSED:
+				int runs = 0;
+				ZonedDateTime execution = missedAt;
+
+				while ( runs < maxRuns && execution.isBefore(currentDateTime) ) {
+					runs++;
+
+					ZonedDateTime next = schedule.nextExecutionDateTime(execution);
+					if ( ! next.isAfter(execution) ) {
+						break;
+					}
+					execution = next;
+				}
+
+				return runs;
+
+			default:
+				return 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		switch ( type ) {
+			case FIRE_ALL_MISSED:
+				return type + "(max=" + maxRuns + ")";
+			case FIRE_IF_WITHIN:
+				return type + "(" + tolerance + ")";
+			default:
+				return type.toString();
+		}
+	}
+}
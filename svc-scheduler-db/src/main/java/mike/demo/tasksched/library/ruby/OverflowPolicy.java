@@ -0,0 +1,17 @@
+package mike.demo.tasksched.library.ruby;
+
+/**
+ * What the launcher does with a task when the execution queue is full
+ * (all the threads are busy and the queue has reached its capacity).
+ */
+public enum OverflowPolicy {
+
+	/** The launcher waits until there is room in the queue */
+	BLOCK,
+	/** The execution is postponed (the task is placed back on the timeline for a short delay) */
+	DEFER,
+	/** The oldest queued execution is rejected (the task will run at its next scheduled time) to make room */
+	DROP_OLDEST,
+	/** The task is executed by the launcher thread itself */
+	CALLER_RUNS;
+}
@@ -0,0 +1,387 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded dispatch queue of the thread pool ordered by {@link TaskPriority} with aging.<br/>
+ * <br/>
+ * The executions are kept in one FIFO per priority level. A free thread takes the oldest execution of
+ * the level with the highest effective priority: the priority level plus one level per aging interval
+ * spent in the queue, so a low priority execution cannot starve (on a tie the higher level wins).
+ * The workflow steps have the {@link TaskPriority#NORMAL} priority. The internal actions (timers) do not go
+ * through this queue (see {@link TaskOverflowHandler}).
+ * The time spent in the queue is recorded per priority level.
+ */
+class PriorityDispatchQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	private static final TaskPriority[] LEVELS = TaskPriority.values();
+
+	private final int capacity;
+	private final long agingNanos;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private final List<ArrayDeque<Entry>> levels = new ArrayList<>(LEVELS.length);
+	private int count = 0;
+
+	// Queue wait statistics per level (guarded by the lock)
+	private final long[] dispatched = new long[LEVELS.length];
+	private final long[] aged = new long[LEVELS.length];
+	private final long[] totalWaitNanos = new long[LEVELS.length];
+	private final long[] maxWaitNanos = new long[LEVELS.length];
+
+	/**
+	 * @param agingInterval time in the queue raising the priority by one level (zero: no aging)
+	 */
+	PriorityDispatchQueue(int capacity, Duration agingInterval) {
+		if ( capacity <= 0 ) {
+			throw new IllegalArgumentException("Queue capacity must be positive: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.agingNanos = agingInterval.isZero() || agingInterval.isNegative() ? Long.MAX_VALUE : agingInterval.toNanos();
+
+		for ( int i = 0; i < LEVELS.length; i++ ) {
+			this.levels.add(new ArrayDeque<>());
+		}
+	}
+
+	static TaskPriority priorityOf(Runnable r) {
+		return r instanceof TaskRunner ? ((TaskRunner) r).getPriority() : TaskPriority.NORMAL;
+	}
+
+	// ***** BlockingQueue *****
+
+	@Override
+	public boolean offer(Runnable r) {
+		Objects.requireNonNull(r);
+
+		lock.lock();
+		try {
+			if ( count == capacity ) {
+				return false;
+			}
+
+			this.enqueue(r);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Runnable r, long timeout, TimeUnit unit) throws InterruptedException {
+		Objects.requireNonNull(r);
+		long nanos = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+			while ( count == capacity ) {
+				if ( nanos <= 0 ) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+
+			this.enqueue(r);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(Runnable r) throws InterruptedException {
+		Objects.requireNonNull(r);
+
+		lock.lockInterruptibly();
+		try {
+			while ( count == capacity ) {
+				notFull.await();
+			}
+
+			this.enqueue(r);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll() {
+		lock.lock();
+		try {
+			return count > 0 ? this.dequeue() : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+
+		lock.lockInterruptibly();
+		try {
+			while ( count == 0 ) {
+				if ( nanos <= 0 ) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+
+			return this.dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while ( count == 0 ) {
+				notEmpty.await();
+			}
+
+			return this.dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			return count > 0 ? this.levels.get(this.select(System.nanoTime())).peekFirst().runnable : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return capacity - count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		lock.lock();
+		try {
+			for ( ArrayDeque<Entry> level : levels ) {
+				Iterator<Entry> it = level.iterator();
+				while ( it.hasNext() ) {
+					if ( it.next().runnable == o ) {
+						it.remove();
+						count--;
+						notFull.signal();
+						return true;
+					}
+				}
+			}
+
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return this.drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		Objects.requireNonNull(c);
+
+		lock.lock();
+		try {
+			int drained = 0;
+
+			while ( count > 0 && drained < maxElements ) {
+				c.add(this.dequeue());
+				drained++;
+			}
+
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Weakly consistent iterator (snapshot in priority level order).
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot = new ArrayList<>();
+
+		lock.lock();
+		try {
+			for ( int l = LEVELS.length - 1; l >= 0; l-- ) {
+				levels.get(l).forEach( e -> snapshot.add(e.runnable) );
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		Iterator<Runnable> it = snapshot.iterator();
+
+		return new Iterator<>() {
+
+			private Runnable last;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Runnable next() {
+				last = it.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				PriorityDispatchQueue.this.remove(last);
+			}
+		};
+	}
+
+	// ***** Dispatch *****
+
+	/**
+	 * Remove the oldest execution of the lowest priority level (overflow: drop oldest).
+	 */
+	Runnable removeLowest() {
+		lock.lock();
+		try {
+			for ( ArrayDeque<Entry> level : levels ) {
+				Entry entry = level.pollFirst();
+
+				if ( entry != null ) {
+					count--;
+					notFull.signal();
+					return entry.runnable;
+				}
+			}
+
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	List<QueueWaitState> getStates() {
+		lock.lock();
+		try {
+			List<QueueWaitState> states = new ArrayList<>(LEVELS.length);
+
+			for ( int l = LEVELS.length - 1; l >= 0; l-- ) {
+				states.add(new QueueWaitState(LEVELS[l], levels.get(l).size(), dispatched[l], aged[l],
+						Duration.ofNanos(dispatched[l] > 0 ? totalWaitNanos[l] / dispatched[l] : 0), Duration.ofNanos(maxWaitNanos[l])));
+			}
+
+			return states;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void enqueue(Runnable r) {
+		this.levels.get(priorityOf(r).ordinal()).addLast(new Entry(r, System.nanoTime()));
+		count++;
+		notEmpty.signal();
+	}
+
+	private Runnable dequeue() {
+		long now = System.nanoTime();
+		int l = this.select(now);
+
+		Entry entry = this.levels.get(l).pollFirst();
+		count--;
+
+		long waitNanos = now - entry.enqueuedNanos;
+		dispatched[l]++;
+		totalWaitNanos[l] += waitNanos;
+		maxWaitNanos[l] = Math.max(maxWaitNanos[l], waitNanos);
+
+		for ( int higher = l + 1; higher < LEVELS.length; higher++ ) {
+			if ( ! this.levels.get(higher).isEmpty() ) {
+				aged[l]++;
+				break;
+			}
+		}
+
+		notFull.signal();
+
+		return entry.runnable;
+	}
+
+	/**
+	 * @return the level whose head has the highest effective priority (the queue is not empty)
+	 */
+	private int select(long now) {
+		int selected = -1;
+		long selectedScore = Long.MIN_VALUE;
+
+		for ( int l = LEVELS.length - 1; l >= 0; l-- ) {
+			Entry head = this.levels.get(l).peekFirst();
+
+			if ( head != null ) {
+				long score = l + (now - head.enqueuedNanos) / agingNanos;
+
+				if ( score > selectedScore ) {
+					selected = l;
+					selectedScore = score;
+				}
+			}
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Queued runnable
+	 */
+	private static class Entry {
+
+		private final Runnable runnable;
+		private final long enqueuedNanos;
+
+		Entry(Runnable runnable, long enqueuedNanos) {
+			this.runnable = runnable;
+			this.enqueuedNanos = enqueuedNanos;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+
+/**
+ * Time spent in the dispatch queue (waiting for a thread) by the executions of a priority level.
+ */
+public class QueueWaitState {
+
+	private final TaskPriority priority;
+	private final int queued;
+	private final long dispatched;
+	private final long aged;
+	private final Duration averageWait;
+	private final Duration maxWait;
+
+	QueueWaitState(TaskPriority priority, int queued, long dispatched, long aged, Duration averageWait, Duration maxWait) {
+		this.priority = priority;
+		this.queued = queued;
+		this.dispatched = dispatched;
+		this.aged = aged;
+		this.averageWait = averageWait;
+		this.maxWait = maxWait;
+	}
+
+	public TaskPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return number of executions waiting for a thread
+	 */
+	public int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return number of executions handed over to a thread
+	 */
+	public long getDispatched() {
+		return dispatched;
+	}
+
+	/**
+	 * @return number of executions dispatched before an execution of a higher priority thanks to their age
+	 */
+	public long getAged() {
+		return aged;
+	}
+
+	public Duration getAverageWait() {
+		return averageWait;
+	}
+
+	public Duration getMaxWait() {
+		return maxWait;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s={queued=%d, dispatched=%d, aged=%d, avgWait=%dms, maxWait=%dms}", 
+				priority, queued, dispatched, aged, averageWait.toMillis(), maxWait.toMillis());
+	}
+}
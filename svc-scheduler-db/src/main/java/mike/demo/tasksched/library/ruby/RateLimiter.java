@@ -0,0 +1,200 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.demo.tasksched.library.ruby.timer.WheelTimer;
+
+/**
+ * Named token bucket protecting a downstream resource (database instance, remote service).<br/>
+ * <br/>
+ * The bucket holds up to <code>burst</code> permits and is refilled at <code>permitsPerSecond</code>.
+ * An execution takes one permit before being handed over to the thread pool. Without permit the
+ * execution waits in the limiter queue (FIFO, no thread is held): a one-shot control timer admits the waiting
+ * executions as soon as the permits are refilled. The control timers do not run on the task pool, so the
+ * admissions go on when all the task threads are busy. The admitted executions are dispatched by the
+ * admission executor (the dispatch may wait for room in the execution queue).
+ */
+class RateLimiter {
+
+	private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+	private final String name;
+	private final double permitsPerSecond;
+	private final int burst;
+	private final WheelTimer timer;
+	private final Executor admissions;
+
+	private final Deque<Waiting> waiting = new ArrayDeque<>();
+	private double permits;
+	private long refilledAtNanos = System.nanoTime();
+	private boolean admitting = false;
+	private boolean closed = false;
+
+	// Statistics (guarded by this)
+	private long granted = 0;
+	private long delayed = 0;
+	private long totalWaitNanos = 0;
+	private long maxWaitNanos = 0;
+
+	RateLimiter(String name, double permitsPerSecond, int burst, WheelTimer timer, Executor admissions) {
+		if ( permitsPerSecond <= 0 || burst < 1 ) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid rate limiter %s (permitsPerSecond: %s, burst: %d)", name, permitsPerSecond, burst));
+		}
+
+		this.name = name;
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.timer = timer;
+		this.admissions = admissions;
+		this.permits = burst;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Take a permit then run the given action: at once when a permit is available and no execution
+	 * is waiting, later (admission executor) otherwise.
+	 */
+	void acquire(String taskName, Runnable onGranted) {
+		synchronized (this) {
+			this.refill(System.nanoTime());
+
+			if ( closed ) {
+				// Released without permit (the execution is rejected by the stopped thread pool)
+			} else if ( waiting.isEmpty() && permits >= 1 ) {
+				permits--;
+				granted++;
+			} else {
+				waiting.addLast(new Waiting(taskName, onGranted, System.nanoTime()));
+				delayed++;
+
+				log.debug("[RateLimiter::{}] Task '{}' held (waiting: {})", name, taskName, waiting.size());
+
+				if ( ! admitting ) {
+					admitting = true;
+					this.scheduleAdmission();
+				}
+
+				return;
+			}
+		}
+
+		onGranted.run();
+	}
+
+	/**
+	 * Release the waiting executions without permit (scheduler shutdown): the stopped thread pool
+	 * rejects them.
+	 */
+	void close() {
+		List<Waiting> released;
+
+		synchronized (this) {
+			closed = true;
+			admitting = false;
+			released = new ArrayList<>(waiting);
+			waiting.clear();
+		}
+
+		if ( ! released.isEmpty() ) {
+			log.debug("[RateLimiter::{}] {} waiting execution(s) released", name, released.size());
+		}
+
+		released.forEach( w -> w.onGranted.run() );
+	}
+
+	synchronized RateLimiterState getState() {
+		this.refill(System.nanoTime());
+
+		return new RateLimiterState(name, permitsPerSecond, burst, (int) permits, waiting.size(), granted, delayed,
+				Duration.ofNanos(delayed > 0 ? totalWaitNanos / delayed : 0), Duration.ofNanos(maxWaitNanos));
+	}
+
+	private void admit() {
+		List<Runnable> admitted = new ArrayList<>();
+
+		synchronized (this) {
+			if ( closed ) {
+				return;
+			}
+
+			long now = System.nanoTime();
+			this.refill(now);
+
+			while ( ! waiting.isEmpty() && permits >= 1 ) {
+				Waiting head = waiting.pollFirst();
+				permits--;
+				granted++;
+
+				long waitNanos = now - head.sinceNanos;
+				totalWaitNanos += waitNanos;
+				maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+
+				log.debug("[RateLimiter::{}] Task '{}' admitted (waited: {} ms)", name, head.taskName, waitNanos / 1_000_000);
+
+				admitted.add(head.onGranted);
+			}
+
+			if ( waiting.isEmpty() ) {
+				admitting = false;
+			} else {
+				this.scheduleAdmission();
+			}
+		}
+
+		admitted.forEach(this::handOver);
+	}
+
+	private void handOver(Runnable onGranted) {
+		try {
+			admissions.execute(onGranted);
+		} catch (RejectedExecutionException ree) {
+			// Admission executor stopped (shutdown): the stopped thread pool rejects the execution
+			onGranted.run();
+		}
+	}
+
+	/**
+	 * Wake up when the next permit is available
+	 */
+	private void scheduleAdmission() {
+		long delayNanos = (long) Math.ceil((1 - permits) * 1_000_000_000L / permitsPerSecond);
+
+		try {
+			timer.schedule("RateLimiter:" + name, Duration.ofNanos(Math.max(0, delayNanos)), this::admit);
+		} catch (RejectedExecutionException ree) {
+			// Timer stopped: the scheduler is shutting down and releases the waiting executions
+			log.debug("[RateLimiter::{}] Admission not scheduled (cause: {})", name, ree.getMessage());
+		}
+	}
+
+	private void refill(long nowNanos) {
+		permits = Math.min(burst, permits + (nowNanos - refilledAtNanos) * permitsPerSecond / 1_000_000_000L);
+		refilledAtNanos = nowNanos;
+	}
+
+	private static class Waiting {
+
+		private final String taskName;
+		private final Runnable onGranted;
+		private final long sinceNanos;
+
+		Waiting(String taskName, Runnable onGranted, long sinceNanos) {
+			this.taskName = taskName;
+			this.onGranted = onGranted;
+			this.sinceNanos = sinceNanos;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+
+/**
+ * Saturation counters of a rate limiter.
+ */
+public class RateLimiterState {
+
+	private final String name;
+	private final double permitsPerSecond;
+	private final int burst;
+	private final int availablePermits;
+	private final int waiting;
+	private final long granted;
+	private final long delayed;
+	private final Duration averageWait;
+	private final Duration maxWait;
+
+	RateLimiterState(String name, double permitsPerSecond, int burst, int availablePermits, int waiting, 
+			long granted, long delayed, Duration averageWait, Duration maxWait) {
+		this.name = name;
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.availablePermits = availablePermits;
+		this.waiting = waiting;
+		this.granted = granted;
+		this.delayed = delayed;
+		this.averageWait = averageWait;
+		this.maxWait = maxWait;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public int getAvailablePermits() {
+		return availablePermits;
+	}
+
+	/**
+	 * @return number of executions waiting for a permit
+	 */
+	public int getWaiting() {
+		return waiting;
+	}
+
+	/**
+	 * @return number of permits granted
+	 */
+	public long getGranted() {
+		return granted;
+	}
+
+	/**
+	 * @return number of executions that had to wait for a permit (saturation)
+	 */
+	public long getDelayed() {
+		return delayed;
+	}
+
+	/**
+	 * @return average wait of the delayed executions
+	 */
+	public Duration getAverageWait() {
+		return averageWait;
+	}
+
+	public Duration getMaxWait() {
+		return maxWait;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s={rate=%s/s, burst=%d, available=%d, waiting=%d, granted=%d, delayed=%d, avgWait=%dms, maxWait=%dms}", 
+				name, permitsPerSecond, burst, availablePermits, waiting, granted, delayed, averageWait.toMillis(), maxWait.toMillis());
+	}
+}
@@ -0,0 +1,83 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+import mike.demo.tasksched.library.ruby.timer.WheelTimer;
+
+/**
+ * Rate limiters declared on the scheduler (see {@link RubySchedulerBuilder#withRateLimiter}).<br/>
+ * An execution takes a permit from each rate limiter declared by its task, in declaration order,
+ * before being dispatched.
+ */
+class RateLimiters {
+
+	private final Map<String, RateLimiter> limiters;
+
+	/**
+	 * @param timer control timer (refill and admission of the waiting executions)
+	 * @param admissions executor of the dispatch of the admitted executions
+	 */
+	RateLimiters(Map<String, Rate> rates, WheelTimer timer, Executor admissions) {
+		this.limiters = rates.entrySet().stream()
+				.collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, 
+						e -> new RateLimiter(e.getKey(), e.getValue().permitsPerSecond, e.getValue().burst, timer, admissions)));
+	}
+
+	boolean exists(String name) {
+		return this.limiters.containsKey(name);
+	}
+
+	/**
+	 * Run the dispatch once a permit of each rate limiter of the task is taken.
+	 */
+	void acquire(TaskRunner taskRunner, Runnable dispatch) {
+		this.acquire(taskRunner.getTaskName(), taskRunner.getRateLimiters(), 0, dispatch);
+	}
+
+	/**
+	 * Release the executions waiting for a permit (scheduler shutdown)
+	 */
+	void close() {
+		this.limiters.values().forEach(RateLimiter::close);
+	}
+
+	List<RateLimiterState> getStates() {
+		return this.limiters.values().stream()
+					.map(RateLimiter::getState)
+					.sorted((l1, l2) -> l1.getName().compareTo(l2.getName()))
+					.collect(Collectors.toUnmodifiableList());
+	}
+
+	private void acquire(String taskName, List<String> names, int index, Runnable dispatch) {
+		if ( index == names.size() ) {
+			dispatch.run();
+			return;
+		}
+
+		RateLimiter limiter = this.limiters.get(names.get(index));
+
+		if ( limiter == null ) {
+			// Rate limiter no longer declared
+			this.acquire(taskName, names, index + 1, dispatch);
+		} else {
+			limiter.acquire(taskName, () -> this.acquire(taskName, names, index + 1, dispatch));
+		}
+	}
+
+	/**
+	 * Rate limiter definition
+	 */
+	static class Rate {
+
+		private final double permitsPerSecond;
+		private final int burst;
+
+		Rate(double permitsPerSecond, int burst) {
+			this.permitsPerSecond = permitsPerSecond;
+			this.burst = burst;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * What to do when an execution fails ({@link TaskStatus#ERROR} or {@link TaskStatus#TIMEOUT}).<br/>
+ * <br/>
+ * A failed attempt is retried after an exponential backoff with full jitter: the delay of the retry
+ * following attempt <code>n</code> is random between zero and <code>min(maxDelay, initialDelay * 2^(n-1))</code>.
+ * The retry is placed on the timeline and fired by the launcher (no thread waits for the delay).
+ * Once the attempts are exhausted the task is moved to its next execution time.
+ */
+public final class RetryPolicy {
+
+	/** Failures are not retried (default) */
+	public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, List.of());
+
+	private final int maxAttempts;
+	private final Duration initialDelay;
+	private final Duration maxDelay;
+	private final List<Class<? extends Throwable>> retryOn;
+
+	private RetryPolicy(int maxAttempts, Duration initialDelay, Duration maxDelay, List<Class<? extends Throwable>> retryOn) {
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+		this.retryOn = retryOn;
+	}
+
+	/**
+	 * @param maxAttempts maximum number of attempts (first execution included)
+	 * @param initialDelay backoff of the first retry
+	 * @param maxDelay backoff upper bound
+	 */
+	public static RetryPolicy exponentialBackoff(int maxAttempts, Duration initialDelay, Duration maxDelay) {
+		Objects.requireNonNull(initialDelay, "Retry initial delay must not be null");
+		Objects.requireNonNull(maxDelay, "Retry max delay must not be null");
+
+		if ( maxAttempts < 1 || initialDelay.isNegative() || maxDelay.compareTo(initialDelay) < 0 ) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid retry policy (maxAttempts: %d, initialDelay: %s, maxDelay: %s)", maxAttempts, initialDelay, maxDelay));
+		}
+
+		return new RetryPolicy(maxAttempts, initialDelay, maxDelay, List.of());
+	}
+
+	/**
+	 * Only retry the failures caused by one of the given exception types (and their subclasses).<br/>
+	 * By default any failure is retried. A failure reported without exception (status ERROR returned by
+	 * an asynchronous worker) is not retried once exception types are given.
+	 */
+	@SafeVarargs
+	public final RetryPolicy retryOn(Class<? extends Throwable>... types) {
+		// Element copy: the varargs array itself never escapes
+		List<Class<? extends Throwable>> retryOn = new ArrayList<>(types.length);
+		for ( Class<? extends Throwable> type : types ) {
+			retryOn.add(type);
+		}
+		
+		return new RetryPolicy(maxAttempts, initialDelay, maxDelay, List.copyOf(retryOn));
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public Duration getInitialDelay() {
+		return initialDelay;
+	}
+
+	public Duration getMaxDelay() {
+		return maxDelay;
+	}
+
+	public List<Class<? extends Throwable>> getRetryOn() {
+		return retryOn;
+	}
+
+	/**
+	 * @param attempt number of the failed attempt (1 for the first execution)
+	 * @param cause failure cause (null when unknown)
+	 */
+	boolean shouldRetry(int attempt, Throwable cause) {
+		if ( attempt >= maxAttempts ) {
+			return false;
+		}
+
+		return retryOn.isEmpty() || (cause != null && retryOn.stream().anyMatch( t -> t.isInstance(cause) ));
+	}
+
+	/**
+	 * @param attempt number of the failed attempt (1 for the first execution)
+	 * @return the delay before the next attempt (full jitter)
+	 */
+	Duration backoff(int attempt) {
+		long ceilingNanos = initialDelay.toNanos();
+
+		for ( int i = 1; i < attempt && ceilingNanos < maxDelay.toNanos(); i++ ) {
+			ceilingNanos *= 2;
+		}
+
+		ceilingNanos = Math.min(ceilingNanos, maxDelay.toNanos());
+
+		return Duration.ofNanos(ceilingNanos > 0 ? ThreadLocalRandom.current().nextLong(ceilingNanos + 1) : 0);
+	}
+
+	@Override
+	public String toString() {
+		if ( maxAttempts == 1 ) {
+			return "NONE";
+		}
+
+		return String.format("EXPONENTIAL_BACKOFF(maxAttempts=%d, initialDelay=%s, maxDelay=%s, retryOn=%s)", 
+				maxAttempts, initialDelay, maxDelay, retryOn.stream().map(Class::getSimpleName).collect(Collectors.toList()));
+	}
+}
@@ -1,5 +1,7 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface RubyScheduler {
 
 	String name();
@@ -19,4 +21,20 @@ public interface RubyScheduler {
 	boolean release();
 	
 	void shutdown();
+	
+	// ***** Asynchronous lifecycle (futures completed when the transition is acknowledged by the launcher) *****
+	
+	CompletableFuture<Boolean> startAsync();
+	
+	CompletableFuture<Boolean> suspendAsync();
+	
+	CompletableFuture<Boolean> releaseAsync();
+	
+	CompletableFuture<Void> shutdownAsync();
+	
+	// ***** Lifecycle listeners *****
+	
+	void addListener(SchedulerListener listener);
+	
+	void removeListener(SchedulerListener listener);
 }
@@ -1,8 +1,16 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import mike.bootstrap.utilities.helpers.Utils;
+import mike.demo.tasksched.library.ruby.cluster.CoordinationStore;
 import mike.demo.tasksched.library.ruby.repository.TaskRepository;
 import mike.demo.tasksched.library.ruby.repository.TaskRepositoryFactory;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
 import mike.demo.tasksched.library.ruby.time.TimeProvider;
 import mike.demo.tasksched.library.ruby.time.TimeProviderFactory;
 
@@ -12,7 +20,24 @@ public class RubySchedulerBuilder {
 	
 	private int minThreads;
 	private int maxThreads;
-	private int launcherScanIntervalInSeconds; 
+	private Duration launcherScanInterval; 
+	private boolean virtualThreads = false;
+	private int maxVirtualThreads;
+	private int queueCapacity;
+	private Duration priorityAging;
+	private OverflowPolicy overflowPolicy;
+	private Duration overflowDeferDelay;
+	private final Map<String, GroupBulkheads.Quota> groupQuotas = new HashMap<>();
+	private final Map<String, RateLimiters.Rate> rateLimits = new HashMap<>();
+	private final Map<String, Duration> groupSpreads = new HashMap<>();
+	private String clusterNodeId;
+	private CoordinationStore clusterStore;
+	private Duration clusterHeartbeat;
+	private Duration misfireThreshold;
+	private int catchUpRate;
+	private int historyBufferCapacity;
+	private Duration historyFlushInterval;
+	private Duration timerTick;
 	private TimeProvider timeProvider;
 	private TaskRepository taskRepository;
 	
@@ -34,8 +59,150 @@ public class RubySchedulerBuilder {
 		return this;
 	}
 	
+	/**
+	 * Run each task on a virtual thread (Java 21+ runtime, platform threads otherwise) instead of
+	 * the platform thread pool. The number of tasks running concurrently is limited to the given value.
+	 */
+	public RubySchedulerBuilder withVirtualThreads(int maxConcurrency) {
+		this.virtualThreads = true;
+		this.maxVirtualThreads = maxConcurrency;
+		return this;
+	}
+	
+	/**
+	 * Capacity of the queue holding the executions waiting for a thread (default: 1000).
+	 */
+	public RubySchedulerBuilder withQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+	
+	/**
+	 * The executions waiting for a thread are dispatched by priority (see {@link TaskPriority}): the priority 
+	 * of a waiting execution is raised by one level per aging interval so that low priority executions 
+	 * cannot starve (default: 10 seconds, zero: no aging).
+	 */
+	public RubySchedulerBuilder withPriorityAging(Duration agingInterval) {
+		this.priorityAging = agingInterval;
+		return this;
+	}
+	
+	/**
+	 * What to do when the execution queue is full (default: {@link OverflowPolicy#DEFER}).
+	 */
+	public RubySchedulerBuilder withOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+	
+	/**
+	 * Delay before a deferred execution is submitted again (default: 1 second).
+	 */
+	public RubySchedulerBuilder withOverflowDeferDelay(Duration deferDelay) {
+		this.overflowDeferDelay = deferDelay;
+		return this;
+	}
+	
+	/**
+	 * Limit the executions of a task group: at most <code>maxConcurrency</code> executions run at a time,
+	 * up to <code>maxQueued</code> executions wait for a slot and the next ones are deferred 
+	 * (see {@link #withOverflowDeferDelay(Duration)}). Groups without quota are not limited.
+	 */
+	public RubySchedulerBuilder withGroupQuota(String group, int maxConcurrency, int maxQueued) {
+		this.groupQuotas.put(Utils.trim(group, Task.DEFAULT_GROUP), new GroupBulkheads.Quota(maxConcurrency, maxQueued));
+		return this;
+	}
+	
+	/**
+	 * Spread the executions of the tasks of a group over the window (thundering herd): each task fires
+	 * at a stable offset, derived from its name, after its nominal execution time. The spread window
+	 * of a schedule (see {@link ScheduleFactory#withSpread}) prevails over the window of its group.
+	 */
+	public RubySchedulerBuilder withGroupSpread(String group, Duration window) {
+		Objects.requireNonNull(window, "Spread window must not be null");
+		if ( window.isNegative() ) {
+			throw new IllegalArgumentException("Spread window must not be negative: " + window);
+		}
+		this.groupSpreads.put(Utils.trim(group, Task.DEFAULT_GROUP), window);
+		return this;
+	}
+	
+	/**
+	 * Declare a rate limiter (token bucket) shared by the tasks hitting the same downstream resource
+	 * (see {@link TaskManagerService#setRateLimiters}): up to <code>burst</code> executions are dispatched
+	 * at once then <code>permitsPerSecond</code>. The executions without permit wait without holding a thread.
+	 */
+	public RubySchedulerBuilder withRateLimiter(String name, double permitsPerSecond, int burst) {
+		Objects.requireNonNull(name, "Rate limiter name must not be null");
+		this.rateLimits.put(name, new RateLimiters.Rate(permitsPerSecond, burst));
+		return this;
+	}
+	
+	/**
+	 * Active/active cluster: the nodes sharing the coordination store register the same tasks and each task
+	 * runs on one live node (consistent hashing of the task names over the nodes). The tasks are rebalanced 
+	 * when a node joins or leaves the cluster: an execution due during the hand-over is skipped, never doubled.
+	 */
+	public RubySchedulerBuilder withCluster(String nodeId, CoordinationStore store) {
+		this.clusterNodeId = Objects.requireNonNull(nodeId, "Cluster node id must not be null");
+		this.clusterStore = Objects.requireNonNull(store, "Coordination store must not be null");
+		return this;
+	}
+	
+	/**
+	 * Interval of the cluster membership renewals (default: 1 second). A node runs no task after 2 intervals 
+	 * without renewal and its membership expires after 3 intervals (crashed node).
+	 */
+	public RubySchedulerBuilder withClusterHeartbeat(Duration heartbeatInterval) {
+		this.clusterHeartbeat = heartbeatInterval;
+		return this;
+	}
+	
+	/**
+	 * A task is misfired (see {@link MisfirePolicy}) when its execution is late by more than 
+	 * the threshold when the scheduler is started or released (default: 60 seconds).
+	 */
+	public RubySchedulerBuilder withMisfireThreshold(Duration misfireThreshold) {
+		this.misfireThreshold = misfireThreshold;
+		return this;
+	}
+	
+	/**
+	 * Maximum number of missed executions replayed per second (default: 10).
+	 */
+	public RubySchedulerBuilder withMisfireCatchUpRate(int runsPerSecond) {
+		this.catchUpRate = runsPerSecond;
+		return this;
+	}
+	
+	/**
+	 * Task history write-behind: number of execution histories buffered before the writers wait 
+	 * (default: 10000) and maximum delay before the buffered histories are written (default: 100 ms).
+	 */
+	public RubySchedulerBuilder withHistoryWriteBehind(int bufferCapacity, Duration flushInterval) {
+		this.historyBufferCapacity = bufferCapacity;
+		this.historyFlushInterval = flushInterval;
+		return this;
+	}
+	
 	public RubySchedulerBuilder withLauncherScanIntervalInSeconds(int seconds) {
-		this.launcherScanIntervalInSeconds = seconds;
+		return this.withLauncherScanInterval(Duration.ofSeconds(seconds));
+	}
+	
+	/**
+	 * Maximum time the launcher sleeps when no task is due (the launcher is woken up
+	 * at the deadline of the next task anyway). Default: 5 seconds, minimum: 1 ms.
+	 */
+	public RubySchedulerBuilder withLauncherScanInterval(Duration interval) {
+		this.launcherScanInterval = interval;
+		return this;
+	}
+	
+	/**
+	 * Resolution of the one-shot timers wheel (default: 1 ms)
+	 */
+	public RubySchedulerBuilder withTimerTick(Duration timerTick) {
+		this.timerTick = timerTick;
 		return this;
 	}
 	
@@ -53,10 +220,28 @@ public class RubySchedulerBuilder {
 		
 		this.minThreads = this.minThreads > 10 ? this.minThreads : 5;
 		this.maxThreads = this.maxThreads >= minThreads ? this.maxThreads : 20;
+		this.maxVirtualThreads = this.maxVirtualThreads > 0 ? this.maxVirtualThreads : 10_000;
+		this.queueCapacity = this.queueCapacity > 0 ? this.queueCapacity : 1_000;
+		this.priorityAging = this.priorityAging != null && ! this.priorityAging.isNegative() ? this.priorityAging : Duration.ofSeconds(10);
+		this.overflowPolicy = this.overflowPolicy != null ? this.overflowPolicy : OverflowPolicy.DEFER;
+		this.overflowDeferDelay = this.overflowDeferDelay != null && ! this.overflowDeferDelay.isNegative() ? this.overflowDeferDelay : Duration.ofSeconds(1);
+		this.misfireThreshold = this.misfireThreshold != null && ! this.misfireThreshold.isNegative() ? this.misfireThreshold : Duration.ofSeconds(60);
+		this.catchUpRate = this.catchUpRate > 0 ? Math.min(this.catchUpRate, 1_000) : 10;
+		this.historyBufferCapacity = this.historyBufferCapacity > 0 ? this.historyBufferCapacity : 10_000;
+		this.historyFlushInterval = this.historyFlushInterval != null && this.historyFlushInterval.toMillis() >= 1 ? this.historyFlushInterval : Duration.ofMillis(100);
 		this.timeProvider = this.timeProvider != null ? this.timeProvider : TimeProviderFactory.newSystemTimeProvider();
 		this.taskRepository = this.taskRepository != null ? this.taskRepository : TaskRepositoryFactory.newDefaultTaskRepository();
-		this.launcherScanIntervalInSeconds = this.launcherScanIntervalInSeconds >= 5 ? this.launcherScanIntervalInSeconds : 5;
+		this.launcherScanInterval = this.launcherScanInterval != null && this.launcherScanInterval.toMillis() >= 1 ? this.launcherScanInterval : Duration.ofSeconds(5);
+		this.clusterHeartbeat = this.clusterHeartbeat != null && this.clusterHeartbeat.toMillis() >= 10 ? this.clusterHeartbeat : Duration.ofSeconds(1);
+		this.timerTick = this.timerTick != null && ! this.timerTick.isNegative() && ! this.timerTick.isZero() ? this.timerTick : Duration.ofMillis(1);
+		
+		ThreadPoolExecutor executor = this.virtualThreads ? 
+						Scheduler.newVirtualThreadPool(maxVirtualThreads, queueCapacity, priorityAging) 
+						: Scheduler.newPlatformThreadPool(minThreads, maxThreads, queueCapacity, priorityAging);
+		
+		ClusterMembership.Member clusterMember = this.clusterStore != null ? 
+						new ClusterMembership.Member(clusterNodeId, clusterStore, clusterHeartbeat) : null;
 		
-		return new Scheduler(name, minThreads, maxThreads, launcherScanIntervalInSeconds, timeProvider, taskRepository);
+		return new Scheduler(name, executor, overflowPolicy, overflowDeferDelay, groupQuotas, rateLimits, groupSpreads, clusterMember, misfireThreshold, catchUpRate, historyBufferCapacity, historyFlushInterval, launcherScanInterval, timerTick, timeProvider, taskRepository);
 	}
 }
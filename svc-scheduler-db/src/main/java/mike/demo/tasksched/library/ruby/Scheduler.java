@@ -2,20 +2,26 @@ package mike.demo.tasksched.library.ruby;
 
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mike.bootstrap.utilities.helpers.Dates;
-import mike.bootstrap.utilities.helpers.Timer;
 import mike.demo.tasksched.library.ruby.repository.TaskRepository;
 import mike.demo.tasksched.library.ruby.time.TimeProvider;
+import mike.demo.tasksched.library.ruby.timer.WheelTimer;
 
 class Scheduler implements RubyScheduler {
 
@@ -23,31 +29,63 @@ class Scheduler implements RubyScheduler {
 	
 	private static final AtomicInteger threadCounter = new AtomicInteger(0);
 	
+	// Control timer threads (short actions)
+	private static final int CONTROL_THREADS = 2;
+	
 	private final String name;
 	private final ThreadPoolExecutor threadPoolExecutor;
 	private final Duration shutdownMaxWaitInSeconds = Duration.ofSeconds(20); 
 	private final TaskManager taskManager;
+	private final TaskOverflowHandler overflowHandler;
+	private final GroupBulkheads groupBulkheads;
+	private final RateLimiters rateLimiters;
+	private final ClusterMembership clusterMembership;
+	private final Set<TaskRunner> inFlightRunners = ConcurrentHashMap.newKeySet();
+	private final Duration misfireThreshold;
+	private final CatchUpExecutor catchUpExecutor;
+	private final ThreadPoolExecutor controlExecutor;
+	private final ThreadPoolExecutor admissionExecutor;
+	private final WheelTimer timer;
+	private final HistoryWriter historyWriter;
 	private final SchedulerState schedulerState;
 	
 	// Launcher
 	private Thread launcherThread;
-	private final AtomicBoolean launcherThreadAlive = new AtomicBoolean(false);
-	private final AtomicBoolean launcherThreadSuspended = new AtomicBoolean(false);
-	private final int launcherScanIntervalInSeconds; 
+	private final SchedulerLifecycle lifecycle = new SchedulerLifecycle(this);
+	private CompletableFuture<Void> terminated;
+	private final Duration launcherScanInterval; 
+	private final FireTimeRecorder fireTimeRecorder = new FireTimeRecorder();
 	
 	Scheduler(
-			String name, int minThreads, int maxThreads, 
-			int launcherScanIntervalInSeconds, TimeProvider timeProvider,
+			String name, ThreadPoolExecutor threadPoolExecutor, 
+			OverflowPolicy overflowPolicy, Duration overflowDeferDelay,
+			Map<String, GroupBulkheads.Quota> groupQuotas, Map<String, RateLimiters.Rate> rateLimits,
+			Map<String, Duration> groupSpreads, ClusterMembership.Member clusterMember,
+			Duration misfireThreshold, int catchUpRate,
+			int historyBufferCapacity, Duration historyFlushInterval,
+			Duration launcherScanInterval, Duration timerTick, TimeProvider timeProvider,
 			TaskRepository taskRepository) {
 		
 		this.name = name;
-		this.launcherScanIntervalInSeconds = launcherScanIntervalInSeconds; 
-
-		this.taskManager = new TaskManager(taskRepository, timeProvider);
+		this.launcherScanInterval = launcherScanInterval; 
+		this.threadPoolExecutor = threadPoolExecutor;
 		
-		this.threadPoolExecutor = new ThreadPoolExecutor(
-				minThreads, maxThreads, 30, TimeUnit.SECONDS, 
-				new LinkedBlockingQueue<>(), new DefaultThreadFactory());
+		this.controlExecutor = newControlExecutor(name);
+		this.admissionExecutor = newAdmissionExecutor(name);
+		this.timer = new WheelTimer(name + "-Timer", timerTick, controlExecutor);
+		this.historyWriter = new HistoryWriter(name, taskRepository, historyBufferCapacity, historyFlushInterval);
+		this.rateLimiters = new RateLimiters(rateLimits, timer, admissionExecutor);
+		this.clusterMembership = new ClusterMembership(clusterMember);
+		this.taskManager = new TaskManager(taskRepository, timeProvider, timer, threadPoolExecutor, historyWriter, rateLimiters, groupSpreads);
+		
+		this.overflowHandler = new TaskOverflowHandler(overflowPolicy, overflowDeferDelay);
+		this.threadPoolExecutor.setRejectedExecutionHandler(overflowHandler);
+		
+		this.groupBulkheads = new GroupBulkheads(groupQuotas, threadPoolExecutor, overflowDeferDelay);
+		
+		this.misfireThreshold = misfireThreshold;
+		this.catchUpExecutor = new CatchUpExecutor(timer, Duration.ofNanos(1_000_000_000L / catchUpRate), 
+				() -> this.status().isListening(), admissionExecutor, this::dispatch);
 		
 		this.schedulerState = new SchedulerState(name, threadPoolExecutor);
 		
@@ -59,9 +97,23 @@ class Scheduler implements RubyScheduler {
 		return this.name;
 	}
 	
+	@Override
+	public SchedulerStatus status() {
+		return this.lifecycle.status();
+	}
+	
 	@Override
 	public SchedulerState state() {
+		this.schedulerState.setStatus(lifecycle.status());
 		this.schedulerState.setStatistics(threadPoolExecutor);
+		this.schedulerState.setOverflowStatistics(overflowHandler);
+		this.schedulerState.setPendingTimers(timer.pending());
+		this.schedulerState.setFireTimeError(fireTimeRecorder.snapshot());
+		this.schedulerState.setGroups(groupBulkheads.getStates());
+		this.schedulerState.setRateLimiters(rateLimiters.getStates());
+		this.schedulerState.setCluster(clusterMembership.getState());
+		this.schedulerState.setCatchUpStatistics(catchUpExecutor.getPendingRuns(), catchUpExecutor.getAdmittedRuns());
+		this.schedulerState.setHistoryStatistics(historyWriter);
 		return this.schedulerState;
 	}
 	
@@ -71,112 +123,164 @@ class Scheduler implements RubyScheduler {
 	}
 	
 	@Override
-	public synchronized boolean start() {
+	public boolean start() {
+		return this.startAsync().join();
+	}
+	
+	@Override
+	public synchronized CompletableFuture<Boolean> startAsync() {
 		
 		if ( launcherThread != null ) {
 			log.warn("[{}] ({}) Already started", this.name, this.status());
-			return false;
+			return CompletableFuture.completedFuture(false);
 		}
 		
-		// Run job launcher background thread
+		// Apply the misfire policies, load the tasks registered in the repository then run job launcher background thread
+		
+		this.clusterMembership.join();
+		this.recoverMisfiredTasks();
+		this.taskManager.loadTimeline();
 		
 		launcherThread = new Thread(this::launcher, "TaskLauncher");
 		launcherThread.setDaemon(false);
 		launcherThread.setPriority(Thread.NORM_PRIORITY);
 		launcherThread.start();	
 		
-		while ( this.status().isReady() ) {}
-		
-		log.info("{}", this.state());
-		
-		return this.launcherThreadAlive.get();
+		return this.lifecycle.when( () -> lifecycle.isLauncherAlive() || this.status().isStopping() )
+				.thenApply( v -> {
+					log.info("{}", this.state());
+					return lifecycle.isLauncherAlive();
+				});
 	}
 	
 	@Override
-	public synchronized boolean suspend() {
+	public boolean suspend() {
+		return this.suspendAsync().join();
+	}
+	
+	@Override
+	public synchronized CompletableFuture<Boolean> suspendAsync() {
 		
 		if ( launcherThread == null ) {
 			log.warn("[[{}] ({}) Not started (cannot invoke suspend action on unstarted scheduler !)", this.name, this.status());
-			return false;
-		}
-		
-		if ( this.status().isSuspended() ) {
-			return true;
+			return CompletableFuture.completedFuture(false);
 		}
 		
-		this.schedulerState.setStatus(SchedulerStatus.SUSPENDED);
-		
-		while ( ! this.launcherThreadSuspended.get() ) {
-			Timer.pause(1);
+		if ( ! this.lifecycle.transition(SchedulerStatus.SUSPENDED, SchedulerStatus.READY, SchedulerStatus.LISTEN, SchedulerStatus.SUSPENDED) ) {
+			log.warn("[{}] ({}) Cannot suspend a stopping scheduler", this.name, this.status());
+			return CompletableFuture.completedFuture(false);
 		}
 		
-		log.warn("{}", this.state());
+		this.taskManager.timeline().wakeUp();
 		
-		return this.launcherThreadSuspended.get();
+		return this.lifecycle.when( () -> lifecycle.isLauncherParked() || ! lifecycle.isLauncherAlive() )
+				.thenApply( v -> {
+					log.warn("{}", this.state());
+					return lifecycle.isLauncherParked();
+				});
 	}
 	
 	@Override
-	public synchronized boolean release() {
+	public boolean release() {
+		return this.releaseAsync().join();
+	}
+	
+	@Override
+	public synchronized CompletableFuture<Boolean> releaseAsync() {
 		
 		if ( launcherThread == null ) {
 			log.warn("[[{}] ({}) Not started (cannot invoke suspend action on unstarted scheduler !)", this.name, this.status());
-			return false;
+			return CompletableFuture.completedFuture(false);
 		}
 		
 		if ( ! this.status().isSuspended() ) {
-			return true;
+			return CompletableFuture.completedFuture(true);
 		}
 		
-		log.info("[{}] ({}) Looking for misfired tasks to reschedule (currentDateTime: {})", 
-				this.name, this.status(), Dates.format(taskManager.currentDateTime()));
-		
-		this.taskManager.findTaskToRun().forEach( task -> {
-			ZonedDateTime wasScheduledAt = task.getNextExecutionDateTime();
-			
-			this.taskManager.rescheduleTask(task);
-			
-			log.info("[{}] misfired tasks {} recheduledAt {} (wasScheduledAt: {})", this.name, task.getName(), 
-					Dates.format(task.getNextExecutionDateTime()), Dates.format(wasScheduledAt));
-		});
-		
-		this.schedulerState.setStatus(SchedulerStatus.LISTEN);
+		this.recoverMisfiredTasks();
 		
-		while ( this.launcherThreadSuspended.get() ) { 
-			Timer.pause(1);
-		}
+		this.lifecycle.transition(SchedulerStatus.LISTEN, SchedulerStatus.SUSPENDED);
 		
-		log.info("{}", this.state());
-		
-		return ! this.launcherThreadSuspended.get();
+		return this.lifecycle.when( () -> ! lifecycle.isLauncherParked() )
+				.thenApply( v -> {
+					log.info("{}", this.state());
+					return this.status().isListening();
+				});
 	}
 	
 	/**
 	 * Cancel queued jobs and Wait until the current running jobs are executed.
-	 * @throws InterruptedException 
 	 */
 	@Override
-	public synchronized void shutdown()  {
+	public void shutdown()  {
+		this.shutdownAsync().join();
+	}
+	
+	/**
+	 * Stop the launcher and the thread pool: the returned future is completed once the running jobs 
+	 * are executed (or the shutdown timeout is reached).
+	 */
+	@Override
+	public synchronized CompletableFuture<Void> shutdownAsync() {
 		
-		if ( this.schedulerState.getStatus().isShuttingDown() ) {
-			return;
+		if ( this.terminated != null ) {
+			return this.terminated;
 		}
 		
-		this.schedulerState.setStatus(SchedulerStatus.SHUTDOWN);
+		this.lifecycle.transition(SchedulerStatus.SHUTDOWN);
+		this.taskManager.timeline().wakeUp();
+		this.clusterMembership.leave();
+		this.timer.stop();
 		this.threadPoolExecutor.shutdown();
+		this.rateLimiters.close();
+		// The launcher may wait for room in the history buffer (repository down)
+		this.historyWriter.release();
 
 		log.info("{}", this.state());
 		
-		while ( this.launcherThreadAlive.get() ) {
-			Timer.pause(1);
-		}
+		Executor terminationWaiter = r -> new Thread(r, this.name + "-Shutdown").start();
+		
+		this.terminated = this.lifecycle.when( () -> ! lifecycle.isLauncherAlive() )
+				.thenRunAsync(this::awaitTermination, terminationWaiter);
+		
+		return this.terminated;
+	}
+	
+	@Override
+	public void addListener(SchedulerListener listener) {
+		this.lifecycle.addListener(listener);
+	}
+	
+	@Override
+	public void removeListener(SchedulerListener listener) {
+		this.lifecycle.removeListener(listener);
+	}
+	
+	private void awaitTermination() {
+		long deadline = System.nanoTime() + shutdownMaxWaitInSeconds.toNanos();
 		
 		try {
-			this.threadPoolExecutor.awaitTermination(shutdownMaxWaitInSeconds.toSeconds(), TimeUnit.SECONDS);
-			this.schedulerState.setStatus(SchedulerStatus.STOPPED);
+			if ( ! this.threadPoolExecutor.awaitTermination(shutdownMaxWaitInSeconds.toSeconds(), TimeUnit.SECONDS) ) {
+				log.warn("[{}] Shutdown timeout (some threads are still running: {})", this.name, this.threadPoolExecutor.getActiveCount());
+			}
+			
+			// Asynchronous executions still waiting for their completion (no thread held)
+			CompletableFuture.allOf(this.inFlightRunners.stream().map(TaskRunner::termination).toArray(CompletableFuture[]::new))
+				.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			
+		} catch (TimeoutException | ExecutionException e) {
+			log.warn("[{}] Shutdown timeout (some asynchronous executions are still running: {})", this.name, this.inFlightRunners.size());
 		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
 			if ( this.threadPoolExecutor.getActiveCount() > 0 ) {
 				log.warn("[{}] Shutdown timeout (some threads can be still running (cause: {})", this.name, ie.getMessage());
 			}
+		} finally {
+			// Write the buffered history (the executions still running after the timeout are written through)
+			this.historyWriter.close();
+			this.controlExecutor.shutdown();
+			this.admissionExecutor.shutdown();
+			this.lifecycle.transition(SchedulerStatus.STOPPED);
 		}
 		
 		log.info("{}", this.state());
@@ -184,41 +288,161 @@ class Scheduler implements RubyScheduler {
 	
 	/**
 	 * The daemon that will be in charge of placing the jobs in the thread pool
-	 * when they are ready to be executed.
+	 * when they are ready to be executed.<br/>
+	 * The launcher sleeps until the earliest task deadline of the timeline (or the scan interval
+	 * when there is nothing to run) and is woken up as soon as the head of the timeline changes.
+	 * While the scheduler is suspended the launcher is parked until the scheduler is released.
 	 */
 	private void launcher() { 
 
-		this.schedulerState.setStatus(SchedulerStatus.LISTEN);
-		this.launcherThreadAlive.set(true);
+		this.lifecycle.launcherStarted();
 		
 		while ( this.status().isNotStopping() ) {
 			
 			if ( this.status().isListening() ) {
 				
 				this.schedulerState.setLastScan();
-				this.launcherThreadSuspended.set(false);
 				
 				log.debug("[{}] ({}) Looking for task to execute (currentDateTime: {})", 
 						this.name, this.status(), Dates.format(taskManager.currentDateTime()));
 				
-				this.taskManager.findTaskToRun().forEach( task -> {
+				this.taskManager.pollTaskToRun(this.clusterMembership::isOwner).forEach( task -> {
+					this.fireTimeRecorder.record(
+							this.taskManager.currentEpochNanos() - TaskTimeline.epochNanos(task.getNextExecutionDateTime()));
+					
 					log.info("[{}] submit {} (scheduledAt: {})", this.name, task.getName(), Dates.format(task.getNextExecutionDateTime()));
-					TaskRunner taskRunner = new TaskRunner(task, this.taskManager);
-					this.threadPoolExecutor.execute(taskRunner);
+					this.dispatch(task);
 				});
 				
-			} else if ( this.status().isSuspended() && ! launcherThreadSuspended.get() ) {
-				this.launcherThreadSuspended.set(true);
-			} 
-			
-			if ( this.status().isNotStopping() ) {
-				Timer.pause( ! this.launcherThreadSuspended.get() ? launcherScanIntervalInSeconds : 1);
+				this.awaitNextTask();
+				
+			} else if ( this.status().isSuspended() ) {
+				this.parkWhileSuspended();
 			}
 		}
 		
 		log.info("[{}] ({}) Listener stopped", this.name, this.status());
 		
-		this.launcherThreadAlive.set(false);
+		this.lifecycle.launcherStopped();
+	}
+	
+	private void parkWhileSuspended() {
+		try {
+			this.lifecycle.parkWhileSuspended();
+		} catch (InterruptedException ie) {
+			log.warn("[{}] ({}) Launcher interrupted", this.name, this.status());
+			Thread.currentThread().interrupt();
+			this.lifecycle.transition(SchedulerStatus.SHUTDOWN);
+		}
+	}
+	
+	/**
+	 * Move the misfired tasks to their next execution time and hand over the executions to replay
+	 * (according to the task misfire policy) to the catch-up executor.
+	 */
+	private void recoverMisfiredTasks() {
+		
+		ZonedDateTime currentDateTime = taskManager.currentDateTime();
+		
+		log.info("[{}] ({}) Looking for misfired tasks to reschedule (currentDateTime: {})", 
+				this.name, this.status(), Dates.format(currentDateTime));
+		
+		this.taskManager.findMisfiredTasks(misfireThreshold).forEach( task -> {
+			ZonedDateTime wasScheduledAt = task.getNextExecutionDateTime();
+			int runs = task.getMisfirePolicy().runsToCatchUp(task.getSchedule(), wasScheduledAt, currentDateTime);
+			
+			this.taskManager.rescheduleTask(task);
+			
+			// The missed executions are replayed by the node owning the task
+			if ( this.clusterMembership.isOwner(task.getName()) ) {
+				this.catchUpExecutor.submit(task, runs);
+			}
+			
+			log.info("[{}] misfired tasks {} recheduledAt {} (wasScheduledAt: {}, policy: {}, replayed: {})", this.name, task.getName(), 
+					Dates.format(task.getNextExecutionDateTime()), Dates.format(wasScheduledAt), task.getMisfirePolicy(), runs);
+		});
+	}
+	
+	/**
+	 * Submit an execution of the (claimed) task
+	 */
+	private void dispatch(Task task) {
+		TaskRunner taskRunner = new TaskRunner(task, this.taskManager);
+		
+		this.inFlightRunners.add(taskRunner);
+		taskRunner.termination().thenRun( () -> this.inFlightRunners.remove(taskRunner) );
+		
+		this.rateLimiters.acquire(taskRunner, () -> this.groupBulkheads.dispatch(taskRunner));
+	}
+	
+	private void awaitNextTask() {
+		try {
+			this.taskManager.timeline().awaitNext(
+					this.taskManager.currentEpochNanos(), launcherScanInterval.toNanos());
+		} catch (InterruptedException ie) {
+			log.warn("[{}] ({}) Launcher interrupted", this.name, this.status());
+			Thread.currentThread().interrupt();
+			this.lifecycle.transition(SchedulerStatus.SHUTDOWN);
+		}
+	}
+	
+	/**
+	 * The execution queue is bounded: the pool grows up to the max threads once the queue is full,
+	 * then the overflow policy applies. The waiting executions are ordered by priority (with aging).
+	 */
+	static ThreadPoolExecutor newPlatformThreadPool(int minThreads, int maxThreads, int queueCapacity, Duration priorityAging) {
+		return new ThreadPoolExecutor(
+				minThreads, maxThreads, 30, TimeUnit.SECONDS, 
+				new PriorityDispatchQueue(queueCapacity, priorityAging), new DefaultThreadFactory());
+	}
+	
+	/**
+	 * Each task runs on its own virtual thread: the pool size is only a concurrency limit
+	 * and idle (virtual) workers are released immediately.
+	 */
+	static ThreadPoolExecutor newVirtualThreadPool(int maxConcurrency, int queueCapacity, Duration priorityAging) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				maxConcurrency, maxConcurrency, 1, TimeUnit.MILLISECONDS, 
+				new PriorityDispatchQueue(queueCapacity, priorityAging), new VirtualThreadFactory("TaskWorker#v"));
+		
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
+	}
+	
+	/**
+	 * Executor of the one-shot timers (deadlines, rate limiter admissions, catch-up, user timers): separate 
+	 * from the task pool so that the timers still run when all the task threads are busy or the execution 
+	 * queue is full. The timer actions are short (the dispatch of the admitted executions is handed over to 
+	 * the admission executor): a few threads, released when idle.
+	 */
+	static ThreadPoolExecutor newControlExecutor(String name) {
+		return newDaemonExecutor(CONTROL_THREADS, name + "-Control#");
+	}
+	
+	/**
+	 * Executor of the dispatch of the executions admitted by the control timers (rate limiters, catch-up): 
+	 * a single thread dispatching in admission order, which may wait for room in the execution queue
+	 * (BLOCK policy) like the launcher without holding the control threads.
+	 */
+	static ThreadPoolExecutor newAdmissionExecutor(String name) {
+		return newDaemonExecutor(1, name + "-Admission#");
+	}
+	
+	private static ThreadPoolExecutor newDaemonExecutor(int threads, String threadPrefix) {
+		AtomicInteger counter = new AtomicInteger(0);
+		
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), 
+				r -> {
+					Thread thread = new Thread(r, threadPrefix + counter.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				});
+		
+		executor.allowCoreThreadTimeOut(true);
+		
+		return executor;
 	}
 	
 	/**
@@ -0,0 +1,200 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler status and launcher acknowledgements.<br/>
+ * <br/>
+ * Every change is signalled: callers wait for a condition with a {@link CompletableFuture}
+ * (completed by the thread performing the change) and the suspended launcher parks on a condition
+ * until it is released. Nothing spins or sleeps. Listeners are notified of each status transition.
+ */
+class SchedulerLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(SchedulerLifecycle.class);
+
+	private final RubyScheduler scheduler;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition resumed = lock.newCondition();
+	private final List<Waiter> waiters = new ArrayList<>();
+	private final List<SchedulerListener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile SchedulerStatus status = SchedulerStatus.READY;
+	private volatile boolean launcherAlive = false;
+	private volatile boolean launcherParked = false;
+
+	SchedulerLifecycle(RubyScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	SchedulerStatus status() {
+		return status;
+	}
+
+	boolean isLauncherAlive() {
+		return launcherAlive;
+	}
+
+	/**
+	 * @return true when the launcher acknowledged the suspension
+	 */
+	boolean isLauncherParked() {
+		return launcherParked;
+	}
+
+	void addListener(SchedulerListener listener) {
+		listeners.add(listener);
+	}
+
+	void removeListener(SchedulerListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Change the status if the current one is one of the expected statuses.
+	 * 
+	 * @return false when the current status is not expected (unchanged)
+	 */
+	boolean transition(SchedulerStatus to, SchedulerStatus... expected) {
+		SchedulerStatus previous;
+		List<Waiter> completed;
+
+		lock.lock();
+		try {
+			previous = this.status;
+
+			if ( expected.length > 0 && ! List.of(expected).contains(previous) ) {
+				return false;
+			}
+
+			if ( previous == to ) {
+				return true;
+			}
+
+			this.status = to;
+			resumed.signalAll();
+			completed = this.satisfiedWaiters();
+		} finally {
+			lock.unlock();
+		}
+
+		// Listeners first: a caller resumed by the future observes the notifications in order
+		this.notifyListeners(previous, to);
+		completed.forEach(Waiter::complete);
+
+		return true;
+	}
+
+	void launcherStarted() {
+		this.transition(SchedulerStatus.LISTEN, SchedulerStatus.READY);
+		this.setLauncherFlags(true, false);
+	}
+
+	void launcherStopped() {
+		this.setLauncherFlags(false, false);
+	}
+
+	/**
+	 * Launcher side: acknowledge the suspension and wait until the scheduler is no longer suspended.
+	 */
+	void parkWhileSuspended() throws InterruptedException {
+		this.setLauncherFlags(true, true);
+
+		try {
+			lock.lock();
+			try {
+				while ( status.isSuspended() ) {
+					resumed.await();
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			this.setLauncherFlags(true, false);
+		}
+	}
+
+	/**
+	 * @return a future completed as soon as the condition (evaluated after each change) is true
+	 */
+	CompletableFuture<Void> when(BooleanSupplier condition) {
+		lock.lock();
+		try {
+			if ( condition.getAsBoolean() ) {
+				return CompletableFuture.completedFuture(null);
+			}
+
+			Waiter waiter = new Waiter(condition);
+			waiters.add(waiter);
+
+			return waiter.future;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void setLauncherFlags(boolean alive, boolean parked) {
+		List<Waiter> completed;
+
+		lock.lock();
+		try {
+			this.launcherAlive = alive;
+			this.launcherParked = parked;
+			completed = this.satisfiedWaiters();
+		} finally {
+			lock.unlock();
+		}
+
+		completed.forEach(Waiter::complete);
+	}
+
+	private List<Waiter> satisfiedWaiters() {
+		List<Waiter> completed = new ArrayList<>();
+
+		for ( Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+			Waiter waiter = it.next();
+
+			if ( waiter.condition.getAsBoolean() ) {
+				completed.add(waiter);
+				it.remove();
+			}
+		}
+
+		return completed;
+	}
+
+	private void notifyListeners(SchedulerStatus previous, SchedulerStatus current) {
+		for ( SchedulerListener listener : listeners ) {
+			try {
+				listener.onStatusChange(scheduler, previous, current);
+			} catch (RuntimeException re) {
+				log.warn("[{}] Listener failure on {} -> {} (cause: {})", scheduler.name(), previous, current, re.getMessage());
+			}
+		}
+	}
+
+	private static class Waiter {
+
+		private final BooleanSupplier condition;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		Waiter(BooleanSupplier condition) {
+			this.condition = condition;
+		}
+
+		void complete() {
+			future.complete(null);
+		}
+	}
+}
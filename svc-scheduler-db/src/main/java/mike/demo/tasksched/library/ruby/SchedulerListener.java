@@ -0,0 +1,13 @@
+package mike.demo.tasksched.library.ruby;
+
+/**
+ * Listener of the scheduler lifecycle transitions.<br/>
+ * <br/>
+ * Listeners are invoked by the thread performing the transition (caller or launcher thread)
+ * and should return quickly.
+ */
+@FunctionalInterface
+public interface SchedulerListener {
+
+	void onStatusChange(RubyScheduler scheduler, SchedulerStatus previous, SchedulerStatus current);
+}
@@ -1,6 +1,7 @@
 package mike.demo.tasksched.library.ruby;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -24,6 +25,33 @@ public class SchedulerState {
 	private int activeThreads;
 	private int idleThreads;
 	private int largestPoolSize;
+	private boolean virtualThreads;
+	private int liveVirtualThreads;
+	private long startedVirtualThreads;
+	private int queueCapacity;
+	private int queueDepth;
+	private List<QueueWaitState> queueWaits = List.of();
+	private OverflowPolicy overflowPolicy;
+	private long overflowCount;
+	private long deferredCount;
+	private long droppedCount;
+	private long rejectedCount;
+	private int pendingTimers;
+	private long firedTasks;
+	private long fireTimeErrorP50Micros;
+	private long fireTimeErrorP99Micros;
+	private long fireTimeErrorMaxMicros;
+	private List<GroupState> groups = List.of();
+	private List<RateLimiterState> rateLimiters = List.of();
+	private ClusterState cluster;
+	private int catchUpPendingRuns;
+	private long catchUpAdmittedRuns;
+	private int historyPendingWrites;
+	private long historyFlushedBatches;
+	private long historyFlushedWrites;
+	private long historyCoalescedWrites;
+	private long historyFailedBatches;
+	private long historyShedWrites;
 	
 	protected SchedulerState(String name, ThreadPoolExecutor executor) {		
 		this.name = name;
@@ -64,6 +92,63 @@ public class SchedulerState {
 		this.activeThreads = executor.getActiveCount();
 		this.idleThreads = executor.getPoolSize() - this.activeThreads;
 		this.largestPoolSize = executor.getLargestPoolSize();
+		this.queueDepth = executor.getQueue().size();
+		this.queueCapacity = this.queueDepth + executor.getQueue().remainingCapacity();
+		
+		if ( executor.getQueue() instanceof PriorityDispatchQueue queue ) {
+			this.queueWaits = queue.getStates();
+		}
+		
+		if ( executor.getThreadFactory() instanceof VirtualThreadFactory factory ) {
+			this.virtualThreads = factory.isVirtual();
+			this.liveVirtualThreads = factory.getLiveThreads();
+			this.startedVirtualThreads = factory.getStartedThreads();
+		}
+	}
+
+	synchronized void setOverflowStatistics(TaskOverflowHandler overflowHandler) {
+		this.overflowPolicy = overflowHandler.getPolicy();
+		this.overflowCount = overflowHandler.getOverflowCount();
+		this.deferredCount = overflowHandler.getDeferredCount();
+		this.droppedCount = overflowHandler.getDroppedCount();
+		this.rejectedCount = overflowHandler.getRejectedCount();
+	}
+	
+	void setPendingTimers(int pendingTimers) {
+		this.pendingTimers = pendingTimers;
+	}
+	
+	void setFireTimeError(FireTimeRecorder.Snapshot snapshot) {
+		this.firedTasks = snapshot.count;
+		this.fireTimeErrorP50Micros = snapshot.p50Micros;
+		this.fireTimeErrorP99Micros = snapshot.p99Micros;
+		this.fireTimeErrorMaxMicros = snapshot.maxMicros;
+	}
+
+	void setGroups(List<GroupState> groups) {
+		this.groups = groups;
+	}
+
+	void setRateLimiters(List<RateLimiterState> rateLimiters) {
+		this.rateLimiters = rateLimiters;
+	}
+
+	void setCluster(ClusterState cluster) {
+		this.cluster = cluster;
+	}
+
+	void setCatchUpStatistics(int pendingRuns, long admittedRuns) {
+		this.catchUpPendingRuns = pendingRuns;
+		this.catchUpAdmittedRuns = admittedRuns;
+	}
+
+	void setHistoryStatistics(HistoryWriter historyWriter) {
+		this.historyPendingWrites = historyWriter.getPendingWrites();
+		this.historyFlushedBatches = historyWriter.getFlushedBatches();
+		this.historyFlushedWrites = historyWriter.getFlushedWrites();
+		this.historyCoalescedWrites = historyWriter.getCoalescedWrites();
+		this.historyFailedBatches = historyWriter.getFailedBatches();
+		this.historyShedWrites = historyWriter.getShedWrites();
 	}
 
 	public int getMinThreads() {
@@ -86,12 +171,165 @@ public class SchedulerState {
 		return largestPoolSize;
 	}
 
+	/**
+	 * @return true when tasks are executed by virtual threads
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public int getLiveVirtualThreads() {
+		return liveVirtualThreads;
+	}
+
+	public long getStartedVirtualThreads() {
+		return startedVirtualThreads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @return number of executions waiting for a thread
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return time spent waiting for a thread per priority level
+	 */
+	public List<QueueWaitState> getQueueWaits() {
+		return queueWaits;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return number of submissions that found the execution queue full
+	 */
+	public long getOverflowCount() {
+		return overflowCount;
+	}
+
+	public long getDeferredCount() {
+		return deferredCount;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return number of executions rejected because the scheduler was shutting down
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	public int getPendingTimers() {
+		return pendingTimers;
+	}
+
+	public long getFiredTasks() {
+		return firedTasks;
+	}
+
+	/**
+	 * @return median delay (us) between the scheduled time and the actual submission of the last fired tasks
+	 */
+	public long getFireTimeErrorP50Micros() {
+		return fireTimeErrorP50Micros;
+	}
+
+	public long getFireTimeErrorP99Micros() {
+		return fireTimeErrorP99Micros;
+	}
+
+	public long getFireTimeErrorMaxMicros() {
+		return fireTimeErrorMaxMicros;
+	}
+
+	/**
+	 * @return running/queued executions per task group
+	 */
+	public List<GroupState> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * @return permits and waiting executions per rate limiter
+	 */
+	public List<RateLimiterState> getRateLimiters() {
+		return rateLimiters;
+	}
+
+	/**
+	 * @return membership of the node in its cluster
+	 */
+	public ClusterState getCluster() {
+		return cluster;
+	}
+
+	/**
+	 * @return number of missed executions waiting to be replayed
+	 */
+	public int getCatchUpPendingRuns() {
+		return catchUpPendingRuns;
+	}
+
+	public long getCatchUpAdmittedRuns() {
+		return catchUpAdmittedRuns;
+	}
+
+	/**
+	 * @return number of execution histories waiting to be written
+	 */
+	public int getHistoryPendingWrites() {
+		return historyPendingWrites;
+	}
+
+	public long getHistoryFlushedBatches() {
+		return historyFlushedBatches;
+	}
+
+	public long getHistoryFlushedWrites() {
+		return historyFlushedWrites;
+	}
+
+	/**
+	 * @return number of history transitions merged into a pending write
+	 */
+	public long getHistoryCoalescedWrites() {
+		return historyCoalescedWrites;
+	}
+
+	/**
+	 * @return number of history batches not written (retried after the flush interval)
+	 */
+	public long getHistoryFailedBatches() {
+		return historyFailedBatches;
+	}
+
+	/**
+	 * @return number of history writes dropped because the buffer stayed full
+	 */
+	public long getHistoryShedWrites() {
+		return historyShedWrites;
+	}
+
 	@Override
 	public String toString() {
 		return String.format(
-				"[%s] (%s) lastScan=%s, threadPool={min=%d, max=%d, active=%d, idle=%d, largestPoolSize=%d}, startedAt=%s",
+				"[%s] (%s) lastScan=%s, threadPool={min=%d, max=%d, active=%d, idle=%d, largestPoolSize=%d, virtual=%s, liveVirtual=%d, startedVirtual=%d}, queue={capacity=%d, depth=%d, waits=%s, policy=%s, overflow=%d, deferred=%d, dropped=%d, rejected=%d}, pendingTimers=%d, fireTimeError={fired=%d, p50=%dus, p99=%dus, max=%dus}, groups=%s, rateLimiters=%s, cluster=%s, catchUp={pending=%d, admitted=%d}, history={pending=%d, batches=%d, writes=%d, coalesced=%d, failed=%d, shed=%d}, startedAt=%s",
 				name, this.status, Dates.format(lastScan), minThreads, maxThreads, activeThreads, idleThreads,
-				largestPoolSize, Dates.format(startedAt));
+				largestPoolSize, virtualThreads, liveVirtualThreads, startedVirtualThreads, 
+				queueCapacity, queueDepth, queueWaits, overflowPolicy, overflowCount, deferredCount, droppedCount, rejectedCount, pendingTimers, 
+				firedTasks, fireTimeErrorP50Micros, fireTimeErrorP99Micros, fireTimeErrorMaxMicros, groups, rateLimiters, cluster, catchUpPendingRuns, catchUpAdmittedRuns, 
+				historyPendingWrites, historyFlushedBatches, historyFlushedWrites, historyCoalescedWrites, historyFailedBatches, historyShedWrites, Dates.format(startedAt));
 	}
 
 }
@@ -1,35 +1,57 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import mike.bootstrap.utilities.helpers.Dates;
 import mike.demo.tasksched.library.ruby.schedule.Schedule;
 
 public class Task {
  
+	/** Group of the tasks scheduled without group */
+	public static final String DEFAULT_GROUP = "DEFAULT";
+	
+	private final String group;
 	private final TaskWorker worker;
+	private final AtomicReference<TaskState> state = new AtomicReference<>(TaskState.IDLE);
+	
+	// Mutated holding the task lock (see TaskLocks), read without lock
+	private volatile Schedule schedule;
+	private volatile boolean enabled = true;
+	private volatile ZonedDateTime nextExecutionDateTime = Schedule.EPOCH_ZONED_DATE_TIME;
+	private volatile ZonedDateTime lastExecutionEndDateTime = Schedule.EPOCH_ZONED_DATE_TIME;
+	private volatile String lastExecutionUuid;
+	private volatile int executionCount = 0;
+	private volatile MisfirePolicy misfirePolicy = MisfirePolicy.SKIP;
+	private volatile Duration maxRuntime = Duration.ZERO;
+	private volatile RetryPolicy retryPolicy = RetryPolicy.NONE;
+	private volatile TaskPriority priority = TaskPriority.NORMAL;
+	private volatile List<String> rateLimiters = List.of();
+	private volatile Duration spreadOffset = Duration.ZERO;
+	private volatile int attempt = 1;
+	private volatile ZonedDateTime updatedAtDttm;
+	private volatile String updatedByUser;
 	
-	private Schedule schedule;
-	private boolean enabled = true;
-	private boolean executing = false;
-	private ZonedDateTime nextExecutionDateTime = Schedule.EPOCH_ZONED_DATE_TIME;
-	private ZonedDateTime lastExecutionEndDateTime = Schedule.EPOCH_ZONED_DATE_TIME;
-	private String lastExecutionUuid;
-	private int executionCount = 0;
-	private ZonedDateTime updatedAtDttm;
-	private String updatedByUser;
-	
-	Task(TaskWorker worker, Schedule schedule, boolean enabled) {
+	Task(String group, TaskWorker worker, Schedule schedule, boolean enabled) {
 		Objects.requireNonNull(worker, "Worker must not be null");
 		Objects.requireNonNull(worker.getName(), "Task name must not be null");
 		Objects.requireNonNull(schedule, "Schedule must not be null");
 		
+		this.group = group != null && ! group.isBlank() ? group.trim() : DEFAULT_GROUP;
 		this.worker = worker;
 		this.schedule = schedule;
 		this.enabled = enabled;
+		this.spreadOffset = FireTimeSpread.offset(worker.getName(), schedule.spreadWindow());
 	}
 
+	public String getGroup() {
+		return group;
+	}
+	
 	public String getName() {
 		return this.worker.getName();
 	}
@@ -43,7 +65,11 @@ public class Task {
 	}
 
 	public boolean isExecuting() {
-		return executing;
+		return state.get().isExecuting();
+	}
+	
+	public TaskState getState() {
+		return state.get();
 	}
 
 	public ZonedDateTime getNextExecutionDateTime() {
@@ -62,6 +88,39 @@ public class Task {
 		return executionCount;
 	}
 
+	public MisfirePolicy getMisfirePolicy() {
+		return misfirePolicy;
+	}
+
+	/**
+	 * @return the maximum duration of an execution (zero: unlimited)
+	 */
+	public Duration getMaxRuntime() {
+		return maxRuntime;
+	}
+
+	public TaskPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * @return the rate limiters granting a permit to each execution
+	 */
+	public List<String> getRateLimiters() {
+		return rateLimiters;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @return the attempt number of the next execution (greater than 1 when a failure is being retried)
+	 */
+	public int getAttempt() {
+		return attempt;
+	}
+
 	public ZonedDateTime getUpdatedAtDttm() {
 		return updatedAtDttm;
 	}
@@ -83,8 +142,51 @@ public class Task {
 		this.enabled = enabled;
 	}
 	
-	public void setExecuting(boolean executing) {
-		this.executing = executing;
+	/**
+	 * Claim the task for an execution (IDLE -> CLAIMED).
+	 * 
+	 * @return false when the task is already claimed, queued or running
+	 */
+	boolean claim() {
+		return this.state.compareAndSet(TaskState.IDLE, TaskState.CLAIMED);
+	}
+	
+	/**
+	 * @return false when the task was not in the expected state (unchanged)
+	 */
+	boolean transition(TaskState expected, TaskState next) {
+		return this.state.compareAndSet(expected, next);
+	}
+	
+	/**
+	 * The execution is over (completed, deferred or rejected)
+	 */
+	void setIdle() {
+		this.state.set(TaskState.IDLE);
+	}
+
+	void setMisfirePolicy(MisfirePolicy misfirePolicy) {
+		this.misfirePolicy = misfirePolicy;
+	}
+
+	void setMaxRuntime(Duration maxRuntime) {
+		this.maxRuntime = maxRuntime;
+	}
+
+	void setPriority(TaskPriority priority) {
+		this.priority = priority;
+	}
+
+	void setRateLimiters(List<String> rateLimiters) {
+		this.rateLimiters = rateLimiters;
+	}
+
+	void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	void setAttempt(int attempt) {
+		this.attempt = attempt;
 	}
 
 	void setLastExecutionEndDateTime(ZonedDateTime datetime) {
@@ -100,20 +202,42 @@ public class Task {
 	}
 	
 	void computeNextExecutionDateTime(ZonedDateTime currentDateTime) {
-		this.executing = false;
-		
 		if ( this.enabled ) {
-			ZonedDateTime nextExecution = this.schedule.nextExecutionDateTime(currentDateTime);
+			// Nominal execution following the current time shifted by the offset of the task
+			ZonedDateTime nominalDateTime = currentDateTime.minus(spreadOffset);
+			ZonedDateTime nextExecution = this.schedule.nextExecutionDateTime(nominalDateTime, 
+					this.executionCount > 0 ? this.lastExecutionEndDateTime.minus(spreadOffset) : Schedule.EPOCH_ZONED_DATE_TIME);
 			
-			if ( nextExecution.isBefore(currentDateTime) ) {
+			if ( nextExecution.isBefore(nominalDateTime) ) {
 				this.enabled = false;
 			} else {
 				this.enabled = true;
-				this.nextExecutionDateTime = nextExecution;
+				this.nextExecutionDateTime = nextExecution.plus(spreadOffset);
 			}
 		}
 	}
 	
+	/**
+	 * @return the offset of the executions after the nominal execution times (see {@link Schedule#spreadWindow()})
+	 */
+	public Duration getSpreadOffset() {
+		return spreadOffset;
+	}
+	
+	/**
+	 * @return the executions between the given times (spread offset applied)
+	 */
+	Stream<ZonedDateTime> forecast(ZonedDateTime from, ZonedDateTime to) {
+		Duration offset = this.spreadOffset;
+		
+		return this.schedule.executions(from.minus(offset), to.minus(offset))
+					.map( execution -> execution.plus(offset) );
+	}
+	
+	void setSpreadWindow(Duration window) {
+		this.spreadOffset = FireTimeSpread.offset(this.getName(), window);
+	}
+	
 	void setUpdatedAtDttm(ZonedDateTime updatedAtDttm) {
 		this.updatedAtDttm = updatedAtDttm;
 	}
@@ -127,13 +251,21 @@ public class Task {
 		StringBuilder builder = new StringBuilder("Task [");
 		
 		// formatter:off
-		builder.append("name=").append(this.getName())
+		builder.append("group=").append(group)
+				.append(", name=").append(this.getName())
 				.append(", enabled=").append(enabled)
-				.append(", executing=").append(executing)
+				.append(", state=").append(state.get())
 				.append(", nextExecutionDateTime=").append(Dates.format(nextExecutionDateTime))
 				.append(", lastExecutionEndDateTime=").append(Dates.format(lastExecutionEndDateTime))
 				.append(", lastExecutionUuid=").append(lastExecutionUuid)
 				.append(", executionCount=").append(executionCount)
+				.append(", misfirePolicy=").append(misfirePolicy)
+				.append(", maxRuntime=").append(maxRuntime)
+				.append(", priority=").append(priority)
+				.append(", rateLimiters=").append(rateLimiters)
+				.append(", spreadOffset=").append(spreadOffset)
+				.append(", retryPolicy=").append(retryPolicy)
+				.append(", attempt=").append(attempt)
 				.append(", schedule=").append(schedule);
 		// formatter:on
 		
@@ -0,0 +1,81 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch registration: the scheduled tasks and the registrations that failed.<br/>
+ * A failing registration does not abort the batch.
+ */
+public class TaskBatchResult {
+
+	private final List<Task> scheduledTasks;
+	private final List<Failure> failures;
+
+	TaskBatchResult(List<Task> scheduledTasks, List<Failure> failures) {
+		this.scheduledTasks = List.copyOf(scheduledTasks);
+		this.failures = List.copyOf(failures);
+	}
+
+	/**
+	 * @return the scheduled tasks (in the order of the registrations)
+	 */
+	public List<Task> getScheduledTasks() {
+		return scheduledTasks;
+	}
+
+	/**
+	 * @return the failed registrations (in the order of the registrations)
+	 */
+	public List<Failure> getFailures() {
+		return failures;
+	}
+
+	public boolean isSuccessful() {
+		return failures.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TaskBatchResult [scheduled=%d, failures=%s]", scheduledTasks.size(), failures);
+	}
+
+	/**
+	 * Failed registration
+	 */
+	public static class Failure {
+
+		private final int index;
+		private final String name;
+		private final RuntimeException cause;
+
+		Failure(int index, String name, RuntimeException cause) {
+			this.index = index;
+			this.name = name;
+			this.cause = cause;
+		}
+
+		/**
+		 * @return position of the registration in the batch
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public RuntimeException getCause() {
+			return cause;
+		}
+
+		public String getReason() {
+			return cause.getMessage();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("#%d %s: %s", index, name, this.getReason());
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cancellation token of an execution: cancelled once with the status to record
+ * ({@link TaskStatus#CANCELLED} or {@link TaskStatus#TIMEOUT}).
+ */
+class TaskCancellation implements CancellationToken {
+
+	private final CompletableFuture<TaskStatus> cancelled = new CompletableFuture<>();
+	
+	/**
+	 * @return false when already cancelled
+	 */
+	boolean cancel(TaskStatus reason) {
+		return this.cancelled.complete(reason);
+	}
+	
+	/**
+	 * @return the cancellation status (null when not cancelled)
+	 */
+	TaskStatus reason() {
+		return this.cancelled.getNow(null);
+	}
+	
+	@Override
+	public boolean isCancelled() {
+		return this.cancelled.isDone();
+	}
+	
+	@Override
+	public void onCancel(Runnable action) {
+		this.cancelled.thenRun(action);
+	}
+}
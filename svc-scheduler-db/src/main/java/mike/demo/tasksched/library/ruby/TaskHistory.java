@@ -12,11 +12,27 @@ public class TaskHistory {
 	private ZonedDateTime createdAtDttm = ZonedDateTime.now();
 	private ZonedDateTime startedAtDttm;
 	private ZonedDateTime endedAtDttm;
+	private int attempt = 1;
+	private String previousAttemptUuid;
 
 	public TaskHistory(String name) {
 		this.uuid = UUID.randomUUID().toString();
 		this.name = name;
 	}
+	
+	/**
+	 * Snapshot of the given history (write-behind)
+	 */
+	TaskHistory(TaskHistory history) {
+		this.uuid = history.uuid;
+		this.name = history.name;
+		this.status = history.status;
+		this.createdAtDttm = history.createdAtDttm;
+		this.startedAtDttm = history.startedAtDttm;
+		this.endedAtDttm = history.endedAtDttm;
+		this.attempt = history.attempt;
+		this.previousAttemptUuid = history.previousAttemptUuid;
+	}
 
 	public String getUuid() {
 		return uuid;
@@ -58,6 +74,28 @@ public class TaskHistory {
 		this.endedAtDttm = datetime;
 	}
 
+	/**
+	 * @return the attempt number (1 for the first execution, greater for its retries)
+	 */
+	public int getAttempt() {
+		return attempt;
+	}
+
+	public void setAttempt(int attempt) {
+		this.attempt = attempt;
+	}
+
+	/**
+	 * @return the uuid of the failed attempt retried by this execution (null for the first attempt)
+	 */
+	public String getPreviousAttemptUuid() {
+		return previousAttemptUuid;
+	}
+
+	public void setPreviousAttemptUuid(String uuid) {
+		this.previousAttemptUuid = uuid;
+	}
+
 	public Duration getDuration() {
 		ZonedDateTime now = ZonedDateTime.now();
 		
@@ -77,6 +115,8 @@ public class TaskHistory {
 				.append(", createdAtDttm=").append(createdAtDttm)
 				.append(", startedAtDttm=").append(startedAtDttm)
 				.append(", endedAtDttm=").append(endedAtDttm)
+				.append(", attempt=").append(attempt)
+				.append(", previousAttemptUuid=").append(previousAttemptUuid)
 				.append(", duration=").append(this.getDuration());
 		// @formmatter::on
 		
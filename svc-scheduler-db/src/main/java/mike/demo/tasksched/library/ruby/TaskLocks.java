@@ -0,0 +1,87 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks keyed by task name.<br/>
+ * <br/>
+ * Operations on a given task are serialized while operations on different tasks only contend
+ * when their names hash to the same stripe. A batch takes the stripes of all its tasks in the stripe
+ * order (no deadlock with other batches or single task operations).
+ */
+class TaskLocks {
+
+	private static final int DEFAULT_STRIPES = 256;
+
+	private final ReentrantLock[] stripes;
+	private final int mask;
+
+	TaskLocks() {
+		this(DEFAULT_STRIPES);
+	}
+
+	TaskLocks(int minStripes) {
+		int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+
+		this.stripes = new ReentrantLock[size];
+		this.mask = size - 1;
+
+		for ( int i = 0; i < size; i++ ) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Run the action holding the lock of the given task.
+	 */
+	<T> T withLock(String name, Supplier<T> action) {
+		ReentrantLock lock = stripes[this.indexOf(name)];
+
+		lock.lock();
+		try {
+			return action.get();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void withLock(String name, Runnable action) {
+		this.withLock(name, () -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Run the action holding the locks of all the given tasks.
+	 */
+	<T> T withLocks(Collection<String> names, Supplier<T> action) {
+		TreeSet<Integer> indexes = new TreeSet<>();
+		names.forEach( name -> indexes.add(this.indexOf(name)) );
+
+		int locked = 0;
+		try {
+			for ( int index : indexes ) {
+				stripes[index].lock();
+				locked++;
+			}
+
+			return action.get();
+		} finally {
+			for ( int index : indexes ) {
+				if ( locked-- == 0 ) {
+					break;
+				}
+				stripes[index].unlock();
+			}
+		}
+	}
+
+	private int indexOf(String name) {
+		int h = name.hashCode();
+		return (h ^ (h >>> 16)) & mask;
+	}
+}
@@ -1,37 +1,129 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import mike.bootstrap.utilities.exceptions.ResourceAlreadyExistException;
 import mike.bootstrap.utilities.exceptions.ResourceNotFoundException;
 import mike.demo.tasksched.library.ruby.repository.TaskRepository;
 import mike.demo.tasksched.library.ruby.schedule.Schedule;
 import mike.demo.tasksched.library.ruby.time.TimeProvider;
+import mike.demo.tasksched.library.ruby.timer.OneShotTimer;
+import mike.demo.tasksched.library.ruby.timer.WheelTimer;
 
 class TaskManager implements TaskManagerService {
 
+	private static final Logger log = LoggerFactory.getLogger(TaskManager.class);
+
 	private final TaskRepository taskRepository;
 	private final TimeProvider timeProvider;
+	private final TaskTimeline timeline = new TaskTimeline();
+	private final TaskLocks taskLocks = new TaskLocks();
+	private final WheelTimer timer;
+	private final Executor executor;
+	private final HistoryWriter historyWriter;
+	private final RateLimiters rateLimiters;
+	private final Map<String, Duration> groupSpreads;
+	
+	// Histories of the executions in progress (no repository lookup on the execution path)
+	private final Map<String, TaskHistory> activeHistories = new ConcurrentHashMap<>();
+	
+	// Executions queued or running (cancellable) by history uuid
+	private final Map<String, TaskRunner> activeExecutions = new ConcurrentHashMap<>();
 	
-	TaskManager(TaskRepository taskRepository, TimeProvider timeProvider) {
+	TaskManager(TaskRepository taskRepository, TimeProvider timeProvider, WheelTimer timer, Executor executor, 
+			HistoryWriter historyWriter, RateLimiters rateLimiters, Map<String, Duration> groupSpreads) {
 		this.taskRepository = taskRepository;
 		this.timeProvider = timeProvider;
+		this.timer = timer;
+		this.executor = executor;
+		this.historyWriter = historyWriter;
+		this.rateLimiters = rateLimiters;
+		this.groupSpreads = Map.copyOf(groupSpreads);
 	}
 	
-	ZonedDateTime currentDateTime() {
+	@Override
+	public ZonedDateTime currentDateTime() {
 		return this.timeProvider.currentDateTime();
 	}
 	
+	long currentEpochNanos() {
+		return TaskTimeline.epochNanos(this.timeProvider.currentDateTime());
+	}
+	
+	TaskTimeline timeline() {
+		return this.timeline;
+	}
+	
+	HistoryWriter historyWriter() {
+		return this.historyWriter;
+	}
+	
 	// ********** Scheduled Task **********
 	Stream<Task> findTaskToRun() {
 		return this.taskRepository.findTaskToRun(timeProvider.currentDateTime());
 	}
 	
+	/**
+	 * Retrieve the idle tasks whose next execution is late by more than the given threshold.
+	 */
+	List<Task> findMisfiredTasks(Duration threshold) {
+		ZonedDateTime misfiredBefore = timeProvider.currentDateTime().minus(threshold);
+		
+		return this.findTaskToRun()
+					.filter(t -> t.getNextExecutionDateTime().isBefore(misfiredBefore))
+					.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Retrieve the tasks due at the current time from the timeline (no repository scan).
+	 * The returned tasks are claimed (a task already claimed by another launcher is skipped)
+	 * and sorted by decreasing priority. The due tasks owned by another node of the cluster
+	 * are moved to their next execution time.
+	 */
+	List<Task> pollTaskToRun(Predicate<String> owned) {
+		Map<Boolean, List<Task>> dueTasks = this.timeline.pollDue(this.currentEpochNanos()).stream()
+					.filter(Task::isEnabled)
+					.collect(Collectors.partitioningBy( t -> owned.test(t.getName()) ));
+		
+		dueTasks.get(false).forEach(this::rescheduleTask);
+		
+		return dueTasks.get(true).stream()
+					.filter(Task::claim)
+					.sorted(Comparator.comparing(Task::getPriority).reversed())
+					.collect(Collectors.toList());
+	}
+	
+	/**
+	 * (Re)load the timeline from the repository (tasks created outside of the task manager).
+	 */
+	void loadTimeline() {
+		this.taskRepository.findAllTask()
+			.filter(t -> ! t.isExecuting())
+			.forEach(this.timeline::offer);
+	}
+	
 	@Override
 	public Stream<Task> findAllTask() {
 		return this.taskRepository.findAllTask();
@@ -43,62 +135,383 @@ class TaskManager implements TaskManagerService {
 	}
 	
 	@Override
-	public synchronized Task scheduleTask(TaskWorker worker, Schedule when, boolean enabled) {
+	public Task scheduleTask(TaskWorker worker, Schedule when, boolean enabled) {
+		return this.scheduleTask(Task.DEFAULT_GROUP, worker, when, enabled);
+	}
+	
+	@Override
+	public Task scheduleTask(String group, TaskWorker worker, Schedule when, boolean enabled) {
 		Objects.requireNonNull(worker.getName(), "Task name must not be null");
 
-		this.findTask(worker.getName())
-				.ifPresent(t -> { 
-					throw new ResourceAlreadyExistException("Task already exists: %s", t.getName()); 
-				});
-		
-		Task task = new Task(worker, when, enabled);
+		Task task = new Task(group, worker, when, enabled);
+		this.applySpreadWindow(task);
 		task.computeNextExecutionDateTime(timeProvider.currentDateTime());
-		this.taskRepository.insertTask(task);
 		
-		return task;
+		return this.taskLocks.withLock(task.getName(), () -> {
+			this.findTask(task.getName())
+					.ifPresent(t -> { 
+						throw new ResourceAlreadyExistException("Task already exists: %s", t.getName()); 
+					});
+			
+			this.taskRepository.insertTask(task);
+			this.timeline.offer(task);
+			
+			return task;
+		});
 	}
 	
 	@Override
-	public synchronized Task enableTask(String name, boolean enabled) {
-		Task task = this.findTask(name)
-				.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+	public TaskBatchResult scheduleTasks(Collection<TaskRegistration> registrations) {
+		List<TaskRegistration> batch = List.copyOf(registrations);
+		ZonedDateTime currentDateTime = timeProvider.currentDateTime();
+		
+		// Validate, parse the schedules and compute the next executions in parallel (no lock held)
+		Task[] tasks = new Task[batch.size()];
+		RuntimeException[] errors = new RuntimeException[batch.size()];
+		
+		IntStream.range(0, batch.size()).parallel().forEach( i -> {
+			try {
+				Task task = batch.get(i).toTask();
+				this.applySpreadWindow(task);
+				task.computeNextExecutionDateTime(currentDateTime);
+				tasks[i] = task;
+			} catch (RuntimeException re) {
+				errors[i] = re;
+			}
+		});
+		
+		List<TaskBatchResult.Failure> failures = new ArrayList<>();
+		Map<Integer, Task> candidates = new LinkedHashMap<>();
+		Set<String> names = new HashSet<>();
+		
+		for ( int i = 0; i < tasks.length; i++ ) {
+			if ( errors[i] != null ) {
+				failures.add(new TaskBatchResult.Failure(i, batch.get(i).getName(), errors[i]));
+			} else if ( ! names.add(tasks[i].getName()) ) {
+				failures.add(new TaskBatchResult.Failure(i, tasks[i].getName(), 
+						new ResourceAlreadyExistException("Task registered twice in the batch: %s", tasks[i].getName())));
+			} else {
+				candidates.put(i, tasks[i]);
+			}
+		}
+		
+		List<Task> scheduled = this.insertTasks(candidates, failures);
 		
-		if ( enabled ) {
-			if ( ! task.isEnabled() ) {
+		failures.sort(Comparator.comparingInt(TaskBatchResult.Failure::getIndex));
+		
+		return new TaskBatchResult(scheduled, failures);
+	}
+	
+	/**
+	 * The spread window of the schedule prevails over the spread window of the group
+	 */
+	private void applySpreadWindow(Task task) {
+		if ( task.getSchedule().spreadWindow().isZero() && this.groupSpreads.containsKey(task.getGroup()) ) {
+			task.setSpreadWindow(this.groupSpreads.get(task.getGroup()));
+		}
+	}
+	
+	/**
+	 * Insert the new tasks in one repository batch (one existence query then one insert) then place 
+	 * them on the timeline (holding the locks of all the tasks of the batch).
+	 */
+	private List<Task> insertTasks(Map<Integer, Task> candidates, List<TaskBatchResult.Failure> failures) {
+		List<String> names = candidates.values().stream().map(Task::getName).collect(Collectors.toList());
+		
+		return this.taskLocks.withLocks(names, () -> this.insertNewTasks(candidates, failures));
+	}
+	
+	private List<Task> insertNewTasks(Map<Integer, Task> candidates, List<TaskBatchResult.Failure> failures) {
+		List<Task> newTasks = new ArrayList<>(candidates.size());
+		Set<String> existing = this.taskRepository.findTaskNames(
+				candidates.values().stream().map(Task::getName).collect(Collectors.toList()));
+		
+		candidates.forEach( (index, task) -> {
+			if ( existing.contains(task.getName()) ) {
+				failures.add(new TaskBatchResult.Failure(index, task.getName(), 
+						new ResourceAlreadyExistException("Task already exists: %s", task.getName())));
+			} else {
+				newTasks.add(task);
+			}
+		});
+		
+		if ( ! newTasks.isEmpty() ) {
+			this.taskRepository.insertTasks(newTasks);
+			this.timeline.offerAll(newTasks);
+		}
+		
+		return newTasks;
+	}
+	
+	@Override
+	public Task enableTask(String name, boolean enabled) {
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			if ( enabled ) {
+				if ( ! task.isEnabled() ) {
+					task.setEnabled(enabled);
+					task.computeNextExecutionDateTime(timeProvider.currentDateTime());
+					task.setUpdatedAtDttm(ZonedDateTime.now());
+					this.timeline.offer(task);
+				}
+			} else {
 				task.setEnabled(enabled);
-				task.computeNextExecutionDateTime(timeProvider.currentDateTime());
 				task.setUpdatedAtDttm(ZonedDateTime.now());
+				this.timeline.remove(task.getName());
 			}
-		} else {
-			task.setEnabled(enabled);
+			
+			return task;
+		});
+	}
+	
+	@Override
+	public Task setMisfirePolicy(String name, MisfirePolicy misfirePolicy) {
+		Objects.requireNonNull(misfirePolicy, "Misfire policy must not be null");
+		
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			task.setMisfirePolicy(misfirePolicy);
+			task.setUpdatedAtDttm(ZonedDateTime.now());
+			
+			return task;
+		});
+	}
+	
+	@Override
+	public Task setPriority(String name, TaskPriority priority) {
+		Objects.requireNonNull(priority, "Priority must not be null");
+		
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			task.setPriority(priority);
+			task.setUpdatedAtDttm(ZonedDateTime.now());
+			
+			return task;
+		});
+	}
+	
+	@Override
+	public Task setRateLimiters(String name, String... rateLimiters) {
+		List<String> names = List.of(rateLimiters);
+		
+		names.stream().filter( l -> ! this.rateLimiters.exists(l) ).findFirst()
+			.ifPresent( l -> {
+				throw new ResourceNotFoundException("Rate limiter not found: %s", l);
+			});
+		
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			task.setRateLimiters(names);
+			task.setUpdatedAtDttm(ZonedDateTime.now());
+			
+			return task;
+		});
+	}
+	
+	@Override
+	public Task setRetryPolicy(String name, RetryPolicy retryPolicy) {
+		Objects.requireNonNull(retryPolicy, "Retry policy must not be null");
+		
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			task.setRetryPolicy(retryPolicy);
 			task.setUpdatedAtDttm(ZonedDateTime.now());
+			
+			return task;
+		});
+	}
+	
+	@Override
+	public Task setMaxRuntime(String name, Duration maxRuntime) {
+		Duration runtime = maxRuntime != null ? maxRuntime : Duration.ZERO;
+		
+		if ( runtime.isNegative() ) {
+			throw new IllegalArgumentException("Max runtime must not be negative: " + maxRuntime);
 		}
 		
-		return task;
+		return this.taskLocks.withLock(name, () -> {
+			Task task = this.findTask(name)
+					.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+			
+			task.setMaxRuntime(runtime);
+			task.setUpdatedAtDttm(ZonedDateTime.now());
+			
+			return task;
+		});
 	}
 	
-	synchronized Task rescheduleTask(Task task) {
-		task.computeNextExecutionDateTime(timeProvider.currentDateTime());
-		return this.taskRepository.updateTask(task);
+	Task rescheduleTask(Task task) {
+		return this.taskLocks.withLock(task.getName(), () -> {
+			task.computeNextExecutionDateTime(timeProvider.currentDateTime());
+			this.taskRepository.updateTask(task);
+			this.timeline.offer(task);
+			
+			return task;
+		});
+	}
+	
+	// ********** Forecast **********
+	
+	// Bound of the histogram size (a week of 1 minute buckets)
+	private static final int MAX_HISTOGRAM_BUCKETS = 10_080;
+	
+	@Override
+	public Stream<FireTime> forecast(String name, ZonedDateTime from, ZonedDateTime to) {
+		Task task = this.findTask(name)
+				.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+		
+		return task.forecast(from, to).map( execution -> new FireTime(task.getGroup(), task.getName(), execution) );
+	}
+	
+	@Override
+	public Stream<FireTime> forecast(ZonedDateTime from, ZonedDateTime to) {
+		return FireTimeMerger.merge(this.findAllTask().filter(Task::isEnabled).collect(Collectors.toList()), from, to);
+	}
+	
+	@Override
+	public LoadHistogram forecastLoad(ZonedDateTime from, Duration horizon, Duration bucket) {
+		long bucketNanos = bucket.toNanos();
+		long buckets = bucketNanos > 0 ? (horizon.toNanos() + bucketNanos - 1) / bucketNanos : 0;
+		
+		if ( buckets <= 0 || buckets > MAX_HISTOGRAM_BUCKETS ) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid forecast horizon %s / bucket %s (1 to %d buckets)", horizon, bucket, MAX_HISTOGRAM_BUCKETS));
+		}
+		
+		ZonedDateTime to = from.plus(bucket.multipliedBy(buckets));
+		long fromNanos = TaskTimeline.epochNanos(from);
+		
+		// The tasks are counted in parallel (no chronological merge needed), one histogram per split
+		long[] counts = this.findAllTask()
+				.filter(Task::isEnabled)
+				.collect(Collectors.toList())
+				.parallelStream()
+				.collect( () -> new long[(int) buckets], 
+						(histogram, task) -> task.forecast(from, to).forEach( execution -> 
+								histogram[(int) ((TaskTimeline.epochNanos(execution) - fromNanos) / bucketNanos)]++ ),
+						(histogram, other) -> {
+							for ( int i = 0; i < histogram.length; i++ ) {
+								histogram[i] += other[i];
+							}
+						});
+		
+		return new LoadHistogram(from, bucket, counts);
+	}
+	
+	// ********** Cancellation **********
+	
+	void registerExecution(String uuid, TaskRunner taskRunner) {
+		this.activeExecutions.put(uuid, taskRunner);
+	}
+	
+	void unregisterExecution(String uuid) {
+		this.activeExecutions.remove(uuid);
+	}
+	
+	@Override
+	public boolean cancelExecution(String uuid) {
+		TaskRunner taskRunner = this.activeExecutions.get(uuid);
+		
+		return taskRunner != null && taskRunner.cancel(TaskStatus.CANCELLED);
+	}
+	
+	@Override
+	public boolean cancelTask(String name) {
+		Task task = this.findTask(name)
+				.orElseThrow( () -> new ResourceNotFoundException("Task not found: %s", name));
+		
+		return this.activeExecutions.values().stream()
+					.filter( r -> r.getTaskName().equals(task.getName()) )
+					.map( r -> r.cancel(TaskStatus.CANCELLED) )
+					.reduce(false, Boolean::logicalOr);
+	}
+	
+	// ********** Workflows **********
+	
+	@Override
+	public Task scheduleWorkflow(Workflow workflow, Schedule when, boolean enabled) {
+		return this.scheduleTask(new WorkflowWorker(workflow, this::newWorkflowRun), when, enabled);
+	}
+	
+	@Override
+	public CompletableFuture<WorkflowResult> runWorkflow(Workflow workflow) {
+		return this.newWorkflowRun(workflow, CancellationToken.NONE).start();
+	}
+	
+	private WorkflowRun newWorkflowRun(Workflow workflow, CancellationToken token) {
+		return new WorkflowRun(workflow, this, this.executor, token);
+	}
+	
+	// ********** One-shot timers **********
+	
+	@Override
+	public OneShotTimer scheduleTimer(String name, Duration delay, Runnable action) {
+		return this.timer.schedule(name, delay, action);
+	}
+	
+	@Override
+	public OneShotTimer scheduleTimer(String name, ZonedDateTime at, Runnable action) {
+		return this.timer.schedule(name, Duration.between(timeProvider.currentDateTime(), at), action);
+	}
+	
+	@Override
+	public int pendingTimers() {
+		return this.timer.pending();
 	}
 	
 	// ********** Task History **********
 	
 	@Override
 	public Stream<TaskHistory> findHistoryByName(String name) {
-		return this.taskRepository.findHistoryByName(name)
-						.sorted(Comparator.comparing(TaskHistory::getEndedAtDttm))
-						.sorted(Collections.reverseOrder());
+		Map<String, TaskHistory> recent = this.recentHistories();
+		recent.values().removeIf( h -> ! h.getName().equals(name) );
+		
+		return Stream.concat(
+					recent.values().stream(), 
+					this.taskRepository.findHistoryByName(name).filter(h -> ! recent.containsKey(h.getUuid())))
+						.sorted(Comparator.comparing(TaskHistory::getEndedAtDttm, Comparator.nullsLast(Comparator.naturalOrder())).reversed());
 	}
 	
 	@Override
 	public Optional<TaskHistory> findHistoryByUuid(String uuid) {
-		return this.taskRepository.findHistoryByUuid(uuid);
+		TaskHistory history = this.activeHistories.get(uuid);
+		
+		if ( history == null ) {
+			history = this.historyWriter.pending().get(uuid);
+		}
+		
+		return history != null ? Optional.of(history) : this.taskRepository.findHistoryByUuid(uuid);
 	}
 	
+	/**
+	 * Merge the histories of the executions in progress, the histories not yet written and the repository.
+	 */
 	@Override
 	public Stream<TaskHistory> findAllHistory() {
-		return this.taskRepository.findAllHistory();
+		Map<String, TaskHistory> recent = this.recentHistories();
+		
+		return Stream.concat(
+				recent.values().stream(),
+				this.taskRepository.findAllHistory().filter(h -> ! recent.containsKey(h.getUuid())));
+	}
+	
+	/**
+	 * @return the histories of the executions in progress and the histories not yet written (by uuid)
+	 */
+	private Map<String, TaskHistory> recentHistories() {
+		Map<String, TaskHistory> recent = this.historyWriter.pending();
+		recent.putAll(this.activeHistories);
+		return recent;
 	}
 	
 	/**
@@ -113,24 +526,32 @@ class TaskManager implements TaskManagerService {
 		history.setStatus(TaskStatus.QUEUED);
 		history.setCreatedAtDttm(this.timeProvider.currentDateTime());
 		
-		this.findTask(history.getName()).ifPresent( task -> task.setExecuting(true) );
+		this.findTask(name).ifPresent( task -> {
+			task.transition(TaskState.CLAIMED, TaskState.QUEUED);
+			
+			// Retry of the last (failed) execution
+			if ( task.getAttempt() > 1 ) {
+				history.setAttempt(task.getAttempt());
+				history.setPreviousAttemptUuid(task.getLastExecutionUuid());
+			}
+		});
 		
-		this.taskRepository.insertHistory(history);
+		this.activeHistories.put(history.getUuid(), history);
+		this.historyWriter.insert(history);
 		
 		return history.getUuid();
 	}
 	
 	void setTaskRunning(String uuid) {
 		
-		this.findHistoryByUuid(uuid)
-			.ifPresentOrElse( history -> {
-				history.setStatus(TaskStatus.RUNNING);
-				history.setStartedAtDttm(this.timeProvider.currentDateTime());
-				history.setEndedAtDttm(null);
-			
-				this.taskRepository.updateHistory(history);
-			},
-			() -> { throw new ResourceNotFoundException("Task history not found: %s", uuid); });
+		TaskHistory history = this.activeHistory(uuid);
+		
+		history.setStatus(TaskStatus.RUNNING);
+		history.setStartedAtDttm(this.timeProvider.currentDateTime());
+		history.setEndedAtDttm(null);
+		
+		this.historyWriter.update(history);
+		this.findTask(history.getName()).ifPresent( task -> task.transition(TaskState.QUEUED, TaskState.RUNNING) );
 	}
 	
 	void setTaskSuccess(String uuid) {
@@ -142,27 +563,120 @@ class TaskManager implements TaskManagerService {
 	}
 	
 	void setTaskError(String uuid) {
-		this.setTaskCompleted(uuid, TaskStatus.ERROR);
+		this.setTaskError(uuid, null);
 	}
 	
-	private void setTaskCompleted(String uuid, TaskStatus status) {
+	/**
+	 * @param cause failure cause (null when unknown), checked by the task retry policy
+	 */
+	void setTaskError(String uuid, Throwable cause) {
+		this.setTaskCompleted(uuid, TaskStatus.ERROR, cause);
+	}
+	
+	void setTaskTimeout(String uuid) {
+		this.setTaskCompleted(uuid, TaskStatus.TIMEOUT, new TimeoutException("Max runtime exceeded"));
+	}
+	
+	void setTaskCancelled(String uuid) {
+		this.setTaskCompleted(uuid, TaskStatus.CANCELLED);
+	}
+	
+	/**
+	 * The execution did not run (execution queue full): the task is placed back on the timeline
+	 * after the given delay, its next execution time is unchanged.
+	 */
+	void setTaskDeferred(String uuid, Duration delay) {
+		TaskHistory history = this.setHistoryRejected(uuid);
+		
+		this.taskLocks.withLock(history.getName(), () -> this.findTask(history.getName())
+			.ifPresent( task -> {
+				task.setIdle();
+				this.timeline.offer(task, this.currentEpochNanos() + delay.toNanos());
+			}));
+	}
+	
+	/**
+	 * The execution did not run (execution queue full or shutdown): the task will run at its next execution time.
+	 */
+	void setTaskRejected(String uuid) {
+		TaskHistory history = this.setHistoryRejected(uuid);
+		
+		this.taskLocks.withLock(history.getName(), () -> this.findTask(history.getName())
+			.ifPresent( task -> {
+				task.computeNextExecutionDateTime(timeProvider.currentDateTime());
+				task.setIdle();
+				this.taskRepository.updateTask(task);
+				this.timeline.offer(task);
+			}));
+	}
+	
+	private TaskHistory setHistoryRejected(String uuid) {
+		TaskHistory history = this.activeHistory(uuid);
+		
+		history.setStatus(TaskStatus.REJECTED);
+		history.setEndedAtDttm(this.timeProvider.currentDateTime());
+		
+		this.completeHistory(history);
+		
+		return history;
+	}
 	
-		TaskHistory history = this.findHistoryByUuid(uuid)
+	private TaskHistory activeHistory(String uuid) {
+		TaskHistory history = this.activeHistories.get(uuid);
+		
+		return history != null ? history : this.findHistoryByUuid(uuid)
 				.orElseThrow(() -> new ResourceNotFoundException("Task history not found: %s", uuid));
+	}
+	
+	/**
+	 * Write the completed history then remove it from the executions in progress (always readable)
+	 */
+	private void completeHistory(TaskHistory history) {
+		this.historyWriter.update(history);
+		this.activeHistories.remove(history.getUuid());
+	}
+	
+	private void setTaskCompleted(String uuid, TaskStatus status) {
+		this.setTaskCompleted(uuid, status, null);
+	}
+	
+	/**
+	 * A failed attempt (ERROR or TIMEOUT) accepted by the task retry policy is placed back on the timeline
+	 * after the policy backoff (the next execution time is unchanged), the next execution is computed otherwise.
+	 */
+	private void setTaskCompleted(String uuid, TaskStatus status, Throwable cause) {
+	
+		TaskHistory history = this.activeHistory(uuid);
 		
 		history.setStatus(status);
 		history.setEndedAtDttm(this.timeProvider.currentDateTime());
 		
-		this.taskRepository.updateHistory(history);
+		this.completeHistory(history);
 		
-		this.findTask(history.getName())
+		this.taskLocks.withLock(history.getName(), () -> this.findTask(history.getName())
 			.ifPresent( task -> {
-				task.computeNextExecutionDateTime(timeProvider.currentDateTime());
+				boolean retry = (status.isError() || status.isTimeout()) 
+						&& task.getRetryPolicy().shouldRetry(task.getAttempt(), cause);
+				
 				task.incrementExecutionCount();
 				task.setLastExecutionEndDateTime(history.getEndedAtDttm());
 				task.setLastExecutionUuid(history.getUuid());
-				task.setExecuting(false);
-				this.taskRepository.updateTask(task);
-			});
+				task.setIdle();
+				
+				if ( retry ) {
+					Duration backoff = task.getRetryPolicy().backoff(task.getAttempt());
+					
+					log.info("[TaskManager] Task '{}' attempt {} failed: retry in {}", task.getName(), task.getAttempt(), backoff);
+					
+					task.setAttempt(task.getAttempt() + 1);
+					this.taskRepository.updateTask(task);
+					this.timeline.offer(task, this.currentEpochNanos() + backoff.toNanos());
+				} else {
+					task.setAttempt(1);
+					task.computeNextExecutionDateTime(timeProvider.currentDateTime());
+					this.taskRepository.updateTask(task);
+					this.timeline.offer(task);
+				}
+			}));
 	}
 }
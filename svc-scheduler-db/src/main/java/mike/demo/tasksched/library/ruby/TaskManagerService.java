@@ -1,9 +1,14 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import mike.demo.tasksched.library.ruby.schedule.Schedule;
+import mike.demo.tasksched.library.ruby.timer.OneShotTimer;
 
 public interface TaskManagerService {
 
@@ -14,12 +19,127 @@ public interface TaskManagerService {
 	
 	Task scheduleTask(TaskWorker worker, Schedule when, boolean enabled);
 	
+	/**
+	 * Schedule a task belonging to the given group (the group quota applies to its executions).
+	 */
+	Task scheduleTask(String group, TaskWorker worker, Schedule when, boolean enabled);
+	
+	/**
+	 * Schedule a batch of tasks: registrations are validated (schedule parsed, next execution computed)
+	 * in parallel then the valid tasks are inserted in one repository batch.
+	 * Invalid registrations and duplicate names are reported as failures without aborting the batch.
+	 */
+	TaskBatchResult scheduleTasks(Collection<TaskRegistration> registrations);
+	
 	Task enableTask(String name, boolean enabled);
 	
+	/**
+	 * Define what to do with the executions missed while the scheduler was suspended or stopped
+	 * (default: {@link MisfirePolicy#SKIP}).
+	 */
+	Task setMisfirePolicy(String name, MisfirePolicy misfirePolicy);
+	
+	/**
+	 * Define the dispatch priority of the executions (default: {@link TaskPriority#NORMAL}):
+	 * when all the threads are busy the waiting executions with the highest priority run first.
+	 */
+	Task setPriority(String name, TaskPriority priority);
+	
+	/**
+	 * Each execution takes a permit from the given rate limiters (declared on the scheduler) before being
+	 * dispatched: without permit the execution waits (no thread held) until the permits are refilled.
+	 * No rate limiter: the executions are not limited.
+	 */
+	Task setRateLimiters(String name, String... rateLimiters);
+	
+	/**
+	 * Define how the failed executions are retried (default: {@link RetryPolicy#NONE}).
+	 * Each attempt is recorded in the task history and linked to the attempt it retries.
+	 */
+	Task setRetryPolicy(String name, RetryPolicy retryPolicy);
+	
+	/**
+	 * Bound the duration of the executions of the task: an execution still running after the max runtime
+	 * is cancelled and recorded as {@link TaskStatus#TIMEOUT} (zero or null: unlimited).
+	 */
+	Task setMaxRuntime(String name, Duration maxRuntime);
+	
+	// ***** Forecast *****
+	
+	/**
+	 * @return the current time of the scheduler (time provider), e.g. the start of a forecast
+	 */
+	ZonedDateTime currentDateTime();
+	
+	/**
+	 * Enumerate the executions of the task between the given times (computed on demand).
+	 */
+	Stream<FireTime> forecast(String name, ZonedDateTime from, ZonedDateTime to);
+	
+	/**
+	 * Enumerate the executions of all the enabled tasks between the given times in chronological order 
+	 * (computed on demand, e.g. agenda views).
+	 */
+	Stream<FireTime> forecast(ZonedDateTime from, ZonedDateTime to);
+	
+	/**
+	 * Count the executions of all the enabled tasks per bucket over the horizon (capacity planning).
+	 */
+	LoadHistogram forecastLoad(ZonedDateTime from, Duration horizon, Duration bucket);
+	
+	// ***** Cancellation *****
+	
+	/**
+	 * Cancel a queued or running execution: a queued execution will not run, a running execution is
+	 * interrupted and its cancellation token is cancelled. The execution is recorded as
+	 * {@link TaskStatus#CANCELLED} and the task is released at once (next execution time).
+	 * 
+	 * @param uuid task history uuid
+	 * @return false when the execution is not queued or running
+	 */
+	boolean cancelExecution(String uuid);
+	
+	/**
+	 * Cancel the queued and running executions of the task (see {@link #cancelExecution(String)}).
+	 * 
+	 * @return false when the task has no execution queued or running
+	 */
+	boolean cancelTask(String name);
+	
+	// ***** Workflows *****
+	
+	/**
+	 * Schedule a task (named after the workflow) running the workflow steps in dependency order.
+	 */
+	Task scheduleWorkflow(Workflow workflow, Schedule when, boolean enabled);
+	
+	/**
+	 * Run the workflow now: each step is submitted to the scheduler thread pool as soon as
+	 * its predecessors are completed, independent branches run in parallel.
+	 */
+	CompletableFuture<WorkflowResult> runWorkflow(Workflow workflow);
+	
 	// ***** History *****
 	Stream<TaskHistory> findHistoryByName(String name);
 
 	Optional<TaskHistory> findHistoryByUuid(String uuid);
 	
 	Stream<TaskHistory> findAllHistory();
+	
+	// ***** One-shot timers *****
+	
+	/**
+	 * Register a one-shot action executed after the given delay by the scheduler control threads 
+	 * (not the task pool: the action should be short). 
+	 * Insert and cancel are O(1) whatever the number of pending timers.
+	 */
+	OneShotTimer scheduleTimer(String name, Duration delay, Runnable action);
+	
+	/**
+	 * Register a one-shot action executed by the scheduler control threads at the given time
+	 * (according to the scheduler time provider).
+	 */
+	OneShotTimer scheduleTimer(String name, ZonedDateTime at, Runnable action);
+	
+	int pendingTimers();
 }
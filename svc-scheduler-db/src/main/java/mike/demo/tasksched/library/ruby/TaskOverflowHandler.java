@@ -0,0 +1,146 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Apply the {@link OverflowPolicy} when the execution queue is full.<br/>
+ * <br/>
+ * Only the task executions ({@link TaskRunner}) are subject to the policy: the workflow steps wait
+ * for room in the queue. Internal actions (e.g. one-shot timers) never wait in the task queue, they run
+ * on the control executor: one submitted to the pool is rejected at once instead of blocking its caller.
+ * Executions submitted after the shutdown are rejected, including the ones waiting for room when the
+ * pool is shut down (a stopped pool may never run them).
+ */
+class TaskOverflowHandler implements RejectedExecutionHandler {
+
+	private static final Logger log = LoggerFactory.getLogger(TaskOverflowHandler.class);
+
+	// Shutdown check while waiting for room in the queue
+	private static final long BLOCK_RECHECK_MILLIS = 100;
+
+	private final OverflowPolicy policy;
+	private final Duration deferDelay;
+
+	private final AtomicLong overflowCount = new AtomicLong(0);
+	private final AtomicLong deferredCount = new AtomicLong(0);
+	private final AtomicLong droppedCount = new AtomicLong(0);
+	private final AtomicLong rejectedCount = new AtomicLong(0);
+
+	TaskOverflowHandler(OverflowPolicy policy, Duration deferDelay) {
+		this.policy = policy;
+		this.deferDelay = deferDelay;
+	}
+
+	OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	long getDeferredCount() {
+		return deferredCount.get();
+	}
+
+	long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	@Override
+	public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+
+		if ( executor.isShutdown() ) {
+			this.reject(r);
+			return;
+		}
+
+		overflowCount.incrementAndGet();
+
+		if ( r instanceof WorkflowRun.StepExecution ) {
+			this.block(r, executor);
+			return;
+		}
+
+		if ( ! (r instanceof TaskRunner) ) {
+			rejectedCount.incrementAndGet();
+			throw new RejectedExecutionException("Execution queue full: internal action rejected " + r);
+		}
+
+		TaskRunner taskRunner = (TaskRunner) r;
+
+		switch ( policy ) {
+			case BLOCK:
+				this.block(taskRunner, executor);
+				break;
+
+			case DEFER:
+				log.warn("[Overflow] Queue full: task '{}' deferred for {}", taskRunner.getTaskName(), deferDelay);
+				deferredCount.incrementAndGet();
+				taskRunner.defer(deferDelay);
+				break;
+
+			case DROP_OLDEST:
+				Runnable oldest = executor.getQueue() instanceof PriorityDispatchQueue 
+						? ((PriorityDispatchQueue) executor.getQueue()).removeLowest() : executor.getQueue().poll();
+
+				if ( oldest instanceof TaskRunner ) {
+					log.warn("[Overflow] Queue full: oldest task '{}' dropped", ((TaskRunner) oldest).getTaskName());
+					droppedCount.incrementAndGet();
+					((TaskRunner) oldest).reject();
+				} else if ( oldest != null ) {
+					this.block(oldest, executor);
+				}
+
+				executor.execute(taskRunner);
+				break;
+
+			case CALLER_RUNS:
+				log.warn("[Overflow] Queue full: task '{}' executed by the launcher", taskRunner.getTaskName());
+				taskRunner.run();
+				break;
+		}
+	}
+
+	private void block(Runnable r, ThreadPoolExecutor executor) {
+		try {
+			while ( ! executor.getQueue().offer(r, BLOCK_RECHECK_MILLIS, TimeUnit.MILLISECONDS) ) {
+				if ( executor.isShutdown() ) {
+					this.reject(r);
+					return;
+				}
+			}
+
+			// Shut down meanwhile: taken back unless a worker already took it
+			if ( executor.isShutdown() && executor.getQueue().remove(r) ) {
+				this.reject(r);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			this.reject(r);
+		}
+	}
+
+	private void reject(Runnable r) {
+		rejectedCount.incrementAndGet();
+
+		if ( r instanceof TaskRunner ) {
+			log.warn("[Overflow] Task '{}' rejected (scheduler is shutting down)", ((TaskRunner) r).getTaskName());
+			((TaskRunner) r).reject();
+		} else if ( r instanceof WorkflowRun.StepExecution ) {
+			((WorkflowRun.StepExecution) r).rejected();
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package mike.demo.tasksched.library.ruby;
+
+/**
+ * Dispatch priority of the executions of a task: when all the threads are busy the waiting execution
+ * with the highest priority gets the next free thread (see {@link RubySchedulerBuilder#withPriorityAging}).
+ */
+public enum TaskPriority {
+
+	LOW,
+	NORMAL,
+	HIGH,
+	CRITICAL;
+}
@@ -0,0 +1,74 @@
+package mike.demo.tasksched.library.ruby;
+
+import mike.demo.tasksched.library.ruby.schedule.Schedule;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
+/**
+ * Task to register with {@link TaskManagerService#scheduleTasks(java.util.Collection)}.<br/>
+ * <br/>
+ * The schedule is given either as a {@link Schedule} or as a Quartz cron expression
+ * (parsed during the batch validation).
+ */
+public class TaskRegistration {
+
+	private final String group;
+	private final TaskWorker worker;
+	private final Schedule schedule;
+	private final String cronExpression;
+	private final boolean enabled;
+
+	private TaskRegistration(String group, TaskWorker worker, Schedule schedule, String cronExpression, boolean enabled) {
+		this.group = group;
+		this.worker = worker;
+		this.schedule = schedule;
+		this.cronExpression = cronExpression;
+		this.enabled = enabled;
+	}
+
+	public static TaskRegistration of(TaskWorker worker, Schedule when, boolean enabled) {
+		return of(Task.DEFAULT_GROUP, worker, when, enabled);
+	}
+
+	public static TaskRegistration of(String group, TaskWorker worker, Schedule when, boolean enabled) {
+		return new TaskRegistration(group, worker, when, null, enabled);
+	}
+
+	public static TaskRegistration of(String group, TaskWorker worker, String cronExpression, boolean enabled) {
+		return new TaskRegistration(group, worker, null, cronExpression, enabled);
+	}
+
+	public String getGroup() {
+		return group;
+	}
+
+	public TaskWorker getWorker() {
+		return worker;
+	}
+
+	/**
+	 * @return the task name (null when the worker is missing)
+	 */
+	public String getName() {
+		return worker != null ? worker.getName() : null;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Build the task (the cron expression is parsed if needed)
+	 */
+	Task toTask() {
+		Schedule when = this.schedule != null || this.cronExpression == null ? 
+				this.schedule : ScheduleFactory.withCronExpression(this.cronExpression);
+		
+		return new Task(group, worker, when, enabled);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TaskRegistration [group=%s, name=%s, schedule=%s, enabled=%s]", 
+				group, this.getName(), schedule != null ? schedule : cronExpression, enabled);
+	}
+}
@@ -1,9 +1,19 @@
 package mike.demo.tasksched.library.ruby;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mike.bootstrap.utilities.helpers.Timer;
+import mike.demo.tasksched.library.ruby.timer.OneShotTimer;
 
 class TaskRunner implements Runnable {
 
@@ -13,29 +23,264 @@ class TaskRunner implements Runnable {
 	private final Task task;
 	
 	private final String uuid;
+	private final AtomicReference<Runnable> terminationHook = new AtomicReference<>();
+	private final CompletableFuture<Void> termination = new CompletableFuture<>();
+	
+	// The first outcome (completed, cancelled, timed out, deferred or rejected) is recorded, the others are ignored
+	private final AtomicBoolean finished = new AtomicBoolean(false);
+	private final TaskCancellation cancellation = new TaskCancellation();
+	
+	// Thread running a blocking worker (interrupted on cancellation)
+	private Thread worker;
+	private volatile OneShotTimer deadline;
 	
 	TaskRunner(Task task, TaskManager taskManager) {
 		this.task = task;
 		this.taskManager = taskManager;
 		
 		uuid = this.taskManager.setTaskQueued(task.getName());
+		this.taskManager.registerExecution(uuid, this);
 		
 		log.info("[TaskRunner] Task '{}' (uuid: {}) created", task.getName(), uuid);;
 	}
 	
+	String getUuid() {
+		return uuid;
+	}
+	
+	String getTaskName() {
+		return task.getName();
+	}
+	
+	String getGroup() {
+		return task.getGroup();
+	}
+	
+	TaskPriority getPriority() {
+		return task.getPriority();
+	}
+	
+	List<String> getRateLimiters() {
+		return task.getRateLimiters();
+	}
+	
+	/**
+	 * Action invoked once when the execution terminates (completed, deferred or rejected).
+	 */
+	void onTermination(Runnable hook) {
+		this.terminationHook.set(hook);
+	}
+	
+	/**
+	 * @return completed at the end of the execution (an asynchronous worker ends after the run method)
+	 */
+	CompletableFuture<Void> termination() {
+		return this.termination;
+	}
+	
+	/**
+	 * Notify the end of the execution: run completed or not run at all (deferred or rejected)
+	 */
+	void terminated() {
+		Runnable hook = this.terminationHook.getAndSet(null);
+		
+		if ( hook != null ) {
+			hook.run();
+		}
+		
+		this.taskManager.unregisterExecution(uuid);
+		this.termination.complete(null);
+	}
+	
+	/**
+	 * The execution did not run: the task is placed back on the timeline after the given delay.
+	 */
+	void defer(Duration delay) {
+		if ( this.finished.compareAndSet(false, true) ) {
+			this.taskManager.setTaskDeferred(uuid, delay);
+		}
+		
+		this.terminated();
+	}
+	
+	/**
+	 * The execution did not run: the task will run at its next execution time.
+	 */
+	void reject() {
+		if ( this.finished.compareAndSet(false, true) ) {
+			this.taskManager.setTaskRejected(uuid);
+		}
+		
+		this.terminated();
+	}
+	
+	/**
+	 * Cancel the execution, queued or running: the token is cancelled and the thread running a
+	 * blocking worker is interrupted. The task is released at once (it does not wait for the worker).
+	 * 
+	 * @param reason {@link TaskStatus#CANCELLED} or {@link TaskStatus#TIMEOUT}
+	 * @return false when the execution is already over
+	 */
+	boolean cancel(TaskStatus reason) {
+		synchronized (this) {
+			if ( ! this.finished.compareAndSet(false, true) ) {
+				return false;
+			}
+			
+			this.cancellation.cancel(reason);
+			
+			if ( this.worker != null ) {
+				this.worker.interrupt();
+			}
+		}
+		
+		log.warn("[TaskRunner] Task '{}' (uuid: {}) {}", task.getName(), uuid, reason == TaskStatus.TIMEOUT 
+				? "timed out (max runtime: " + task.getMaxRuntime() + ")" : "cancelled");
+		
+		this.record(reason, null);
+		this.terminated();
+		
+		return true;
+	}
+	
+	/**
+	 * Invoke the worker: a synchronous worker completes before returning, the stage of an
+	 * {@link AsyncTaskWorker} completes later (the calling thread is not held).
+	 * 
+	 * @return the execution status (SUCCESS, WARNING or ERROR)
+	 */
+	static CompletionStage<TaskStatus> invoke(TaskWorker worker, CancellationToken token) {
+		try {
+			if ( worker instanceof AsyncTaskWorker ) {
+				CompletionStage<TaskStatus> stage = ((AsyncTaskWorker) worker).invokeAsync(token);
+				
+				return stage != null ? stage : CompletableFuture.completedFuture(TaskStatus.SUCCESS);
+			}
+			
+			worker.invoke(token);
+			
+			return CompletableFuture.completedFuture(TaskStatus.SUCCESS);
+		} catch (Throwable t) {
+			// Errors included (e.g. AssertionError, StackOverflowError): the execution must still complete
+			return CompletableFuture.failedFuture(t);
+		}
+	}
+	
+	/**
+	 * @return the status to record for a completed execution (an exception or an unexpected status is an error)
+	 */
+	static TaskStatus outcome(String name, TaskStatus status, Throwable error) {
+		if ( error != null ) {
+			log.error("[TaskRunner] Task '{}' failed (cause: {})", name, cause(error).toString());
+			return TaskStatus.ERROR;
+		}
+		
+		return status == TaskStatus.SUCCESS || status == TaskStatus.WARNING ? status : TaskStatus.ERROR;
+	}
+	
+	/**
+	 * @return the exception thrown by the worker (unwrapped from the completion stage)
+	 */
+	static Throwable cause(Throwable error) {
+		return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+	}
+	
 	@Override
 	public void run() {
 		
 		Timer tm = new Timer();
+		boolean started = false;
 		
-		this.taskManager.setTaskRunning(uuid);
-		
-		log.info("[TaskRunner] Task '{}' (uuid: {}) started ...", task.getName(), uuid);
-		
-		this.task.getWorker().invoke();
+		try {
+			// Not cancelled while starting (the cancellation holds the same monitor)
+			synchronized (this) {
+				if ( ! this.finished.get() ) {
+					this.taskManager.setTaskRunning(uuid);
+					this.worker = Thread.currentThread();
+				}
+			}
+			
+			if ( this.worker == null ) {
+				log.info("[TaskRunner] Task '{}' (uuid: {}) cancelled while queued", task.getName(), uuid);
+				return;
+			}
+			
+			if ( ! this.task.getMaxRuntime().isZero() ) {
+				this.armDeadline(this.task.getMaxRuntime());
+			}
+			
+			log.info("[TaskRunner] Task '{}' (uuid: {}) started ...", task.getName(), uuid);
+			
+			CompletionStage<TaskStatus> stage;
+			
+			try {
+				stage = invoke(this.task.getWorker(), this.cancellation);
+			} finally {
+				synchronized (this) {
+					this.worker = null;
+					// Clear an interruption not consumed by the worker (the thread goes back to the pool)
+					Thread.interrupted();
+				}
+			}
+			
+			stage.whenComplete( (status, error) -> this.completed(outcome(task.getName(), status, error), error != null ? cause(error) : null, tm) );
+			started = true;
+			
+		} catch (Throwable t) {
+			// History not found: nothing to record
+			this.finished.set(true);
+			throw t;
+		} finally {
+			// The completion of the stage terminates a started execution
+			if ( ! started ) {
+				this.terminated();
+			}
+		}
+	}
+	
+	private void armDeadline(Duration maxRuntime) {
+		try {
+			this.deadline = this.taskManager.scheduleTimer("Deadline:" + uuid, maxRuntime, () -> this.cancel(TaskStatus.TIMEOUT));
+		} catch (RejectedExecutionException ree) {
+			log.warn("[TaskRunner] Task '{}' (uuid: {}) runs without deadline (cause: {})", task.getName(), uuid, ree.getMessage());
+		}
+	}
+	
+	private void completed(TaskStatus status, Throwable cause, Timer tm) {
+		if ( ! this.finished.compareAndSet(false, true) ) {
+			log.info("[TaskRunner] Task '{}' (uuid: {}) ended after its cancellation: {} (elapsed: {})", task.getName(), uuid, status, tm.toSeconds());
+			return;
+		}
 		
-		this.taskManager.setTaskSuccess(uuid);
+		try {
+			this.record(status, cause);
+			
+			log.info("[TaskRunner] Task '{}' (uuid: {}) completed: {} (elapsed: {})", task.getName(), uuid, status, tm.toSeconds());
+		} finally {
+			this.terminated();
+		}
+	}
+	
+	private void record(TaskStatus status, Throwable cause) {
+		if ( this.deadline != null && status != TaskStatus.TIMEOUT ) {
+			this.deadline.cancel();
+		}
 		
-		log.info("[TaskRunner] Task '{}' (uuid: {}) completed (elapsed: {})", task.getName(), uuid, tm.toSeconds());
+		switch ( status ) {
+			case SUCCESS:
+				this.taskManager.setTaskSuccess(uuid);
+				break;
+			case WARNING:
+				this.taskManager.setTaskWarning(uuid);
+				break;
+			case TIMEOUT:
+				this.taskManager.setTaskTimeout(uuid);
+				break;
+			case CANCELLED:
+				this.taskManager.setTaskCancelled(uuid);
+				break;
+			default:
+				this.taskManager.setTaskError(uuid, cause);
+		}
 	}
 }
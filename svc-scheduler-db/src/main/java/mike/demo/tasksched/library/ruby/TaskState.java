@@ -0,0 +1,26 @@
+package mike.demo.tasksched.library.ruby;
+
+/**
+ * Lifecycle of a task execution: IDLE -> CLAIMED -> QUEUED -> RUNNING -> IDLE.<br/>
+ * <br/>
+ * A task is claimed by the launcher with a single CAS (IDLE -> CLAIMED) so it is dispatched
+ * exactly once. An execution which does not run (deferred or rejected) goes back to IDLE.
+ */
+public enum TaskState {
+
+	IDLE,
+	CLAIMED,
+	QUEUED,
+	RUNNING;
+	
+	public boolean isIdle() {
+		return this == IDLE;
+	}
+	
+	/**
+	 * @return true when the task is claimed, queued or running
+	 */
+	public boolean isExecuting() {
+		return this != IDLE;
+	}
+}
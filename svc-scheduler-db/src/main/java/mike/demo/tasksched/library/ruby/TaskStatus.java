@@ -6,7 +6,10 @@ public enum TaskStatus {
 	RUNNING,
 	SUCCESS,
 	WARNING,
-	ERROR;
+	ERROR,
+	REJECTED,
+	TIMEOUT,
+	CANCELLED;
 	
 	public boolean isRunning() {
 		return this == RUNNING;
@@ -33,7 +36,28 @@ public enum TaskStatus {
 		return this == ERROR;
 	}
 	
+	/**
+	 * Indicates that the execution has been rejected (overflow or shutdown) and did not run.
+	 */
+	public boolean isRejected() {
+		return this == REJECTED;
+	}
+	
+	/**
+	 * Indicates that the execution has been stopped because it exceeded the task max runtime.
+	 */
+	public boolean isTimeout() {
+		return this == TIMEOUT;
+	}
+	
+	/**
+	 * Indicates that the execution has been cancelled (queued or running).
+	 */
+	public boolean isCancelled() {
+		return this == CANCELLED;
+	}
+	
 	public boolean isTerminated() {
-		return this.isSuccess() || this.isWarning() || this.isError();
+		return this.isSuccess() || this.isWarning() || this.isError() || this.isRejected() || this.isTimeout() || this.isCancelled();
 	}
 }
@@ -0,0 +1,217 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Time-ordered view of the enabled tasks waiting for their next execution.<br/>
+ * <br/>
+ * Tasks are kept in a min-heap ordered by their due time (epoch nanos) so the launcher
+ * only has to look at the head instead of scanning the whole repository, and can sleep
+ * exactly until the earliest deadline. Any change of the head wakes the launcher up.<br/>
+ * Rescheduled or removed tasks leave a stale entry in the heap which is discarded lazily
+ * when it reaches the head.
+ */
+class TaskTimeline {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition headChanged = lock.newCondition();
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	private long sequence = 0;
+	private boolean wakeUpRequested = false;
+
+	/**
+	 * Place (or move) the task on the timeline according to its next execution time.
+	 * Disabled tasks are removed from the timeline.
+	 */
+	void offer(Task task) {
+		if ( task.isEnabled() ) {
+			this.offer(task, epochNanos(task.getNextExecutionDateTime()));
+		} else {
+			this.remove(task.getName());
+		}
+	}
+
+	/**
+	 * Place (or move) the task on the timeline at the given due time.
+	 * The due time is not necessary the task next execution time (e.g. deferred dispatch).
+	 */
+	void offer(Task task, long dueAtEpochNanos) {
+		lock.lock();
+		try {
+			Entry entry = new Entry(task, dueAtEpochNanos, sequence++);
+			Entry head = queue.peek();
+
+			entries.put(task.getName(), entry);
+			queue.add(entry);
+
+			if ( head == null || entry.compareTo(head) < 0 ) {
+				this.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Place the tasks on the timeline (one lock acquisition for the whole batch).
+	 */
+	void offerAll(Collection<Task> tasks) {
+		lock.lock();
+		try {
+			Entry head = queue.peek();
+			boolean headChanged = false;
+
+			for ( Task task : tasks ) {
+				if ( task.isEnabled() ) {
+					Entry entry = new Entry(task, epochNanos(task.getNextExecutionDateTime()), sequence++);
+
+					entries.put(task.getName(), entry);
+					queue.add(entry);
+
+					headChanged |= head == null || entry.compareTo(head) < 0;
+				}
+			}
+
+			if ( headChanged ) {
+				this.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void remove(String name) {
+		lock.lock();
+		try {
+			// Entry is left in the heap and discarded when reaching the head
+			entries.remove(name);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove from the timeline and return all the tasks due at the given time (ordered by due time).
+	 */
+	List<Task> pollDue(long nowEpochNanos) {
+		List<Task> dueTasks = new ArrayList<>();
+
+		lock.lock();
+		try {
+			Entry head;
+			while ( (head = this.peekHead()) != null && head.dueAtEpochNanos <= nowEpochNanos ) {
+				queue.poll();
+				entries.remove(head.task.getName());
+				dueTasks.add(head.task);
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		return dueTasks;
+	}
+
+	/**
+	 * Wait until the head of the timeline is due, the head has changed, a wake up was requested
+	 * or the max wait time is elapsed, whichever comes first.
+	 */
+	void awaitNext(long nowEpochNanos, long maxWaitNanos) throws InterruptedException {
+		lock.lock();
+		try {
+			if ( wakeUpRequested ) {
+				wakeUpRequested = false;
+				return;
+			}
+
+			Entry head = this.peekHead();
+			long waitNanos = head == null ? maxWaitNanos : Math.min(maxWaitNanos, head.dueAtEpochNanos - nowEpochNanos);
+
+			if ( waitNanos > 0 ) {
+				headChanged.awaitNanos(waitNanos);
+			}
+
+			wakeUpRequested = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Wake up the launcher (e.g. scheduler status has changed).
+	 */
+	void wakeUp() {
+		lock.lock();
+		try {
+			this.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	int size() {
+		lock.lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void signal() {
+		wakeUpRequested = true;
+		headChanged.signalAll();
+	}
+
+	/**
+	 * Discard stale entries and returns the current head (lock must be held).
+	 */
+	private Entry peekHead() {
+		Entry head;
+
+		while ( (head = queue.peek()) != null && entries.get(head.task.getName()) != head ) {
+			queue.poll();
+		}
+
+		return head;
+	}
+
+	static long epochNanos(ZonedDateTime dateTime) {
+		return epochNanos(dateTime.toInstant());
+	}
+
+	static long epochNanos(Instant instant) {
+		return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+	}
+
+	private static class Entry implements Comparable<Entry> {
+
+		private final Task task;
+		private final long dueAtEpochNanos;
+		private final long sequence;
+
+		Entry(Task task, long dueAtEpochNanos, long sequence) {
+			this.task = task;
+			this.dueAtEpochNanos = dueAtEpochNanos;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int cmp = Long.compare(this.dueAtEpochNanos, other.dueAtEpochNanos);
+			return cmp != 0 ? cmp : Long.compare(this.sequence, other.sequence);
+		}
+	}
+}
@@ -5,4 +5,11 @@ public interface TaskWorker {
 	String getName();
 	
 	void invoke();
+	
+	/**
+	 * Invoke the worker with the cancellation token of the execution (ignored by default).
+	 */
+	default void invoke(CancellationToken token) {
+		this.invoke();
+	}
 }
@@ -0,0 +1,98 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread factory creating virtual threads when the runtime supports them (Java 21+).<br/>
+ * <br/>
+ * The module is compiled for an older release so the virtual thread builder is resolved by reflection.
+ * When virtual threads are not available the factory falls back to platform threads (a warning is logged).
+ * The factory keeps track of the number of live and started threads.
+ */
+class VirtualThreadFactory implements ThreadFactory {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadFactory.class);
+
+	private final ThreadFactory delegate;
+	private final boolean virtual;
+
+	private final AtomicInteger liveThreads = new AtomicInteger(0);
+	private final AtomicLong startedThreads = new AtomicLong(0);
+
+	VirtualThreadFactory(String prefix) {
+		ThreadFactory virtualThreadFactory = newVirtualThreadFactory(prefix);
+
+		this.virtual = virtualThreadFactory != null;
+		this.delegate = this.virtual ? virtualThreadFactory : new PlatformThreadFactory(prefix);
+	}
+
+	boolean isVirtual() {
+		return virtual;
+	}
+
+	int getLiveThreads() {
+		return liveThreads.get();
+	}
+
+	long getStartedThreads() {
+		return startedThreads.get();
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		return this.delegate.newThread( () -> {
+			liveThreads.incrementAndGet();
+			startedThreads.incrementAndGet();
+			try {
+				r.run();
+			} finally {
+				liveThreads.decrementAndGet();
+			}
+		});
+	}
+
+	private static ThreadFactory newVirtualThreadFactory(String prefix) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+		} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+			log.warn("Virtual threads not supported by the runtime {} (fallback to platform threads)", Runtime.version());
+		} catch (InvocationTargetException ite) {
+			log.warn("Virtual threads not enabled (fallback to platform threads) (cause: {})", ite.getCause().getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Fallback factory (thread per worker)
+	 */
+	private static class PlatformThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+		private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+		PlatformThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, prefix + threadCounter.getAndIncrement());
+			thread.setDaemon(false);
+			thread.setPriority(Thread.NORM_PRIORITY);
+			return thread;
+		}
+	}
+}
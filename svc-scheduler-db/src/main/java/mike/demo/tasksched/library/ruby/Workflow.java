@@ -0,0 +1,183 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import mike.bootstrap.utilities.exceptions.ResourceAlreadyExistException;
+import mike.bootstrap.utilities.exceptions.ResourceNotFoundException;
+
+/**
+ * Workflow definition: a DAG of {@link TaskWorker}s.<br/>
+ * <br/>
+ * Each step starts as soon as all its predecessors completed successfully, independent branches run
+ * in parallel on the scheduler thread pool. The steps depending (directly or not) on a failed step are
+ * not run. Steps are identified by their worker name.
+ * <pre>
+ * Workflow nightly = Workflow.builder("Nightly")
+ *         .step(extract)
+ *         .step(loadOrders, "Extract")
+ *         .step(loadCustomers, "Extract")
+ *         .step(aggregate, "LoadOrders", "LoadCustomers")
+ *         .build();
+ * </pre>
+ */
+public class Workflow {
+
+	private final String name;
+	private final Map<String, Step> steps;
+
+	private Workflow(String name, Map<String, Step> steps) {
+		this.name = name;
+		this.steps = steps;
+	}
+
+	public static Builder builder(String name) {
+		return new Builder(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the step names in a topological order
+	 */
+	public List<String> getStepNames() {
+		return List.copyOf(steps.keySet());
+	}
+
+	public List<String> getPredecessors(String step) {
+		return this.step(step).predecessors;
+	}
+
+	public List<String> getSuccessors(String step) {
+		return this.step(step).successors;
+	}
+
+	Step step(String step) {
+		Step found = steps.get(step);
+
+		if ( found == null ) {
+			throw new ResourceNotFoundException("Workflow %s: step not found: %s", name, step);
+		}
+
+		return found;
+	}
+
+	Iterable<Step> steps() {
+		return steps.values();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Workflow [name=").append(name).append(", steps={");
+
+		steps.values().forEach( s -> builder.append(s.name).append("<-").append(s.predecessors).append(" ") );
+
+		return builder.append("}]").toString();
+	}
+
+	/**
+	 * Workflow step
+	 */
+	static class Step {
+
+		final String name;
+		final TaskWorker worker;
+		final List<String> predecessors;
+		final List<String> successors = new ArrayList<>();
+
+		Step(TaskWorker worker, List<String> predecessors) {
+			this.name = worker.getName();
+			this.worker = worker;
+			this.predecessors = predecessors;
+		}
+	}
+
+	/**
+	 * Workflow builder
+	 */
+	public static class Builder {
+
+		private final String name;
+		private final Map<String, Step> steps = new LinkedHashMap<>();
+
+		private Builder(String name) {
+			this.name = Objects.requireNonNull(name, "Workflow name must not be null");
+		}
+
+		/**
+		 * Add a step running once all the given steps completed (a root step without predecessor).
+		 */
+		public Builder step(TaskWorker worker, String... after) {
+			Objects.requireNonNull(worker, "Worker must not be null");
+			Objects.requireNonNull(worker.getName(), "Step name must not be null");
+
+			if ( steps.containsKey(worker.getName()) ) {
+				throw new ResourceAlreadyExistException("Workflow %s: step already exists: %s", name, worker.getName());
+			}
+
+			steps.put(worker.getName(), new Step(worker, List.of(after)));
+
+			return this;
+		}
+
+		/**
+		 * @throws ResourceNotFoundException when a predecessor is not a step of the workflow
+		 * @throws IllegalArgumentException when the dependencies contain a cycle
+		 */
+		public Workflow build() {
+			if ( steps.isEmpty() ) {
+				throw new IllegalArgumentException(String.format("Workflow %s has no step", name));
+			}
+
+			Map<String, Integer> inDegrees = new HashMap<>();
+
+			for ( Step step : steps.values() ) {
+				for ( String predecessor : step.predecessors ) {
+					Step from = steps.get(predecessor);
+
+					if ( from == null ) {
+						throw new ResourceNotFoundException("Workflow %s: step %s depends on unknown step: %s", name, step.name, predecessor);
+					}
+
+					from.successors.add(step.name);
+				}
+
+				inDegrees.put(step.name, step.predecessors.size());
+			}
+
+			// Kahn's algorithm: topological order (all the steps are reached unless there is a cycle)
+			Map<String, Step> ordered = new LinkedHashMap<>();
+			Deque<Step> ready = new ArrayDeque<>();
+
+			steps.values().stream().filter( s -> s.predecessors.isEmpty() ).forEach(ready::add);
+
+			while ( ! ready.isEmpty() ) {
+				Step step = ready.poll();
+				ordered.put(step.name, step);
+
+				for ( String successor : step.successors ) {
+					if ( inDegrees.merge(successor, -1, Integer::sum) == 0 ) {
+						ready.add(steps.get(successor));
+					}
+				}
+			}
+
+			if ( ordered.size() != steps.size() ) {
+				List<String> cycle = new ArrayList<>(steps.keySet());
+				cycle.removeAll(ordered.keySet());
+				throw new IllegalArgumentException(String.format("Workflow %s: dependency cycle between steps %s", name, cycle));
+			}
+
+			return new Workflow(name, Collections.unmodifiableMap(ordered));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Outcome of a workflow execution.<br/>
+ * The status of a step not run (a predecessor failed) is {@link TaskStatus#REJECTED}.
+ */
+public class WorkflowResult {
+
+	private final String name;
+	private final Map<String, TaskStatus> steps;
+	private final Duration elapsed;
+
+	WorkflowResult(String name, Map<String, TaskStatus> steps, Duration elapsed) {
+		this.name = name;
+		this.steps = Map.copyOf(steps);
+		this.elapsed = elapsed;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the status of each step
+	 */
+	public Map<String, TaskStatus> getSteps() {
+		return steps;
+	}
+
+	public List<String> getFailedSteps() {
+		return this.stepsWithStatus(TaskStatus.ERROR);
+	}
+
+	public List<String> getSkippedSteps() {
+		return this.stepsWithStatus(TaskStatus.REJECTED);
+	}
+
+	public boolean isSuccessful() {
+		return steps.values().stream().allMatch( s -> s == TaskStatus.SUCCESS || s == TaskStatus.WARNING );
+	}
+
+	/**
+	 * @return the overall status (worst step status)
+	 */
+	public TaskStatus getStatus() {
+		if ( ! this.isSuccessful() ) {
+			return TaskStatus.ERROR;
+		}
+
+		return steps.containsValue(TaskStatus.WARNING) ? TaskStatus.WARNING : TaskStatus.SUCCESS;
+	}
+
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	private List<String> stepsWithStatus(TaskStatus status) {
+		return steps.entrySet().stream()
+					.filter( e -> e.getValue() == status )
+					.map(Map.Entry::getKey)
+					.sorted()
+					.collect(Collectors.toList());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WorkflowResult [name=%s, status=%s, elapsed=%s, steps=%s]", name, this.getStatus(), elapsed, steps);
+	}
+}
@@ -0,0 +1,172 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One execution of a {@link Workflow}.<br/>
+ * <br/>
+ * Each step holds the number of its predecessors not yet completed: the predecessor completing last
+ * submits the step to the executor (no thread waits on a dependency). A failed step never releases its
+ * successors, they are reported as not run ({@link TaskStatus#REJECTED}) at once. Once the run is
+ * cancelled the steps not started are cancelled. Each step execution is recorded in the task history
+ * as <code>workflow/step</code>.
+ */
+class WorkflowRun {
+
+	private static final Logger log = LoggerFactory.getLogger(WorkflowRun.class);
+
+	private final Workflow workflow;
+	private final TaskManager taskManager;
+	private final Executor executor;
+	private final CancellationToken token;
+
+	private final Map<String, AtomicInteger> pendingPredecessors = new HashMap<>();
+	private final Map<String, TaskStatus> statuses = new ConcurrentHashMap<>();
+	private final AtomicInteger remainingSteps;
+	private final CompletableFuture<WorkflowResult> result = new CompletableFuture<>();
+
+	private long startNanos;
+
+	WorkflowRun(Workflow workflow, TaskManager taskManager, Executor executor, CancellationToken token) {
+		this.workflow = workflow;
+		this.taskManager = taskManager;
+		this.executor = executor;
+		this.token = token;
+
+		workflow.steps().forEach( s -> pendingPredecessors.put(s.name, new AtomicInteger(s.predecessors.size())) );
+		this.remainingSteps = new AtomicInteger(pendingPredecessors.size());
+	}
+
+	/**
+	 * Submit the root steps.
+	 * 
+	 * @return completed once all the steps are completed or skipped
+	 */
+	CompletableFuture<WorkflowResult> start() {
+		this.startNanos = System.nanoTime();
+
+		log.info("[Workflow] '{}' started ({} steps)", workflow.getName(), pendingPredecessors.size());
+
+		workflow.steps().forEach( step -> {
+			if ( step.predecessors.isEmpty() ) {
+				this.submit(step);
+			}
+		});
+
+		return this.result;
+	}
+
+	private void submit(Workflow.Step step) {
+		this.executor.execute(new StepExecution(step));
+	}
+
+	private void completed(Workflow.Step step, TaskStatus status) {
+		if ( status.isSuccess() || status.isWarning() ) {
+			this.settle(step.name, status);
+
+			for ( String successor : step.successors ) {
+				if ( pendingPredecessors.get(successor).decrementAndGet() == 0 ) {
+					this.submit(workflow.step(successor));
+				}
+			}
+		} else {
+			this.settle(step.name, status);
+			this.skipSuccessors(step);
+		}
+	}
+
+	/**
+	 * The successors of a step not successful will never be submitted (their predecessor count never reaches 0).
+	 */
+	private void skipSuccessors(Workflow.Step failed) {
+		Deque<Workflow.Step> descendants = new ArrayDeque<>();
+		failed.successors.forEach( s -> descendants.push(workflow.step(s)) );
+
+		while ( ! descendants.isEmpty() ) {
+			Workflow.Step step = descendants.pop();
+
+			// Several failed predecessors may share descendants: settle each one once
+			if ( this.settle(step.name, TaskStatus.REJECTED) ) {
+				log.warn("[Workflow] '{}' step '{}' skipped (predecessor '{}' not successful)", workflow.getName(), step.name, failed.name);
+				step.successors.forEach( s -> descendants.push(workflow.step(s)) );
+			}
+		}
+	}
+
+	private boolean settle(String step, TaskStatus status) {
+		if ( this.statuses.putIfAbsent(step, status) != null ) {
+			return false;
+		}
+
+		if ( this.remainingSteps.decrementAndGet() == 0 ) {
+			WorkflowResult workflowResult = new WorkflowResult(workflow.getName(), statuses, Duration.ofNanos(System.nanoTime() - startNanos));
+
+			log.info("[Workflow] '{}' completed: {}", workflow.getName(), workflowResult);
+
+			this.result.complete(workflowResult);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Execution of a step on the scheduler thread pool
+	 */
+	class StepExecution implements Runnable {
+
+		private final Workflow.Step step;
+		private final String uuid;
+
+		StepExecution(Workflow.Step step) {
+			this.step = step;
+			this.uuid = taskManager.setTaskQueued(workflow.getName() + "/" + step.name);
+		}
+
+		@Override
+		public void run() {
+			if ( token.isCancelled() ) {
+				taskManager.setTaskCancelled(uuid);
+				completed(step, TaskStatus.CANCELLED);
+				return;
+			}
+			
+			taskManager.setTaskRunning(uuid);
+
+			// An asynchronous step releases the thread, its successors are submitted on completion
+			TaskRunner.invoke(step.worker, token).whenComplete( (status, error) -> {
+				TaskStatus outcome = TaskRunner.outcome(workflow.getName() + "/" + step.name, status, error);
+
+				try {
+					if ( outcome.isSuccess() ) {
+						taskManager.setTaskSuccess(uuid);
+					} else if ( outcome.isWarning() ) {
+						taskManager.setTaskWarning(uuid);
+					} else {
+						taskManager.setTaskError(uuid);
+					}
+				} finally {
+					completed(step, outcome);
+				}
+			});
+		}
+
+		/**
+		 * The step has not been executed (scheduler shutdown)
+		 */
+		void rejected() {
+			taskManager.setTaskRejected(uuid);
+			completed(step, TaskStatus.REJECTED);
+		}
+	}
+}
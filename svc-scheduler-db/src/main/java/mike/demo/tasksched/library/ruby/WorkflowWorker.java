@@ -0,0 +1,50 @@
+package mike.demo.tasksched.library.ruby;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task worker running a {@link Workflow} (the task is named after the workflow).<br/>
+ * The steps run on the scheduler thread pool, no thread waits for the end of the workflow.
+ * The execution status is the worst step status.
+ */
+class WorkflowWorker implements AsyncTaskWorker {
+
+	private static final Logger log = LoggerFactory.getLogger(WorkflowWorker.class);
+
+	private final Workflow workflow;
+	private final BiFunction<Workflow, CancellationToken, WorkflowRun> runFactory;
+
+	WorkflowWorker(Workflow workflow, BiFunction<Workflow, CancellationToken, WorkflowRun> runFactory) {
+		this.workflow = workflow;
+		this.runFactory = runFactory;
+	}
+
+	@Override
+	public String getName() {
+		return workflow.getName();
+	}
+
+	@Override
+	public CompletionStage<TaskStatus> invokeAsync() {
+		return this.invokeAsync(CancellationToken.NONE);
+	}
+	
+	/**
+	 * The steps not started when the execution is cancelled do not run.
+	 */
+	@Override
+	public CompletionStage<TaskStatus> invokeAsync(CancellationToken token) {
+		return this.runFactory.apply(workflow, token).start().thenApply( result -> {
+			if ( ! result.isSuccessful() ) {
+				log.warn("[Workflow] '{}' not successful (failed: {}, skipped: {})", 
+						workflow.getName(), result.getFailedSteps(), result.getSkippedSteps());
+			}
+			
+			return result.getStatus();
+		});
+	}
+}
@@ -0,0 +1,84 @@
+package mike.demo.tasksched.library.ruby.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent hashing of keys (task names) over the nodes of a cluster.<br/>
+ * <br/>
+ * Each node is placed at several points of the ring (virtual nodes) so that the keys are evenly
+ * spread. When a node joins or leaves, only the keys of the ring segments it gains or loses are 
+ * moved (about 1/N of the keys). The ring is immutable.
+ */
+public final class ConsistentHashRing {
+
+	public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+	private final NavigableMap<Long, String> ring = new TreeMap<>();
+	private final Set<String> nodes;
+
+	public ConsistentHashRing(Collection<String> nodes) {
+		this(nodes, DEFAULT_VIRTUAL_NODES);
+	}
+
+	public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+		this.nodes = Set.copyOf(new TreeSet<>(nodes));
+
+		for ( String node : this.nodes ) {
+			for ( int i = 0; i < virtualNodes; i++ ) {
+				// Collisions are resolved by the node name order (same owner on each node)
+				ring.merge(hash(node + "#" + i), node, (n1, n2) -> n1.compareTo(n2) <= 0 ? n1 : n2);
+			}
+		}
+	}
+
+	public Set<String> nodes() {
+		return nodes;
+	}
+
+	public boolean isEmpty() {
+		return ring.isEmpty();
+	}
+
+	/**
+	 * @return the node owning the key (null when the ring is empty)
+	 */
+	public String owner(String key) {
+		if ( ring.isEmpty() ) {
+			return null;
+		}
+
+		Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+
+		return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+	}
+
+	/**
+	 * 64 bits FNV-1a (stable across the JVMs) followed by the Murmur3 finalizer
+	 */
+	static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+
+		for ( byte b : key.getBytes(StandardCharsets.UTF_8) ) {
+			h ^= (b & 0xff);
+			h *= 0x100000001b3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ConsistentHashRing [nodes=%s, points=%d]", nodes, ring.size());
+	}
+}
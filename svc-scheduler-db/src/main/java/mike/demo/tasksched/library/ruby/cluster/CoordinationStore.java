@@ -0,0 +1,32 @@
+package mike.demo.tasksched.library.ruby.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Membership shared by the scheduler nodes of a cluster.<br/>
+ * <br/>
+ * Each node renews its membership periodically: a node whose membership is not renewed 
+ * before the time-to-live is over is no longer alive. The implementations must be safe 
+ * for concurrent use by the nodes (threads or processes) sharing the store.
+ */
+public interface CoordinationStore {
+
+	/**
+	 * Register or renew the membership of the node (one round-trip).
+	 * 
+	 * @return the nodes alive at the given time (the given node included)
+	 */
+	Set<String> heartbeat(String nodeId, Instant now, Duration ttl);
+	
+	/**
+	 * @return the nodes alive at the given time
+	 */
+	Set<String> liveNodes(Instant now);
+	
+	/**
+	 * Remove the membership of the node (the other nodes take over its tasks at their next heartbeat).
+	 */
+	void leave(String nodeId);
+}
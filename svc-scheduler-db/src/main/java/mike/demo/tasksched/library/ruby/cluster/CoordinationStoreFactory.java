@@ -0,0 +1,15 @@
+package mike.demo.tasksched.library.ruby.cluster;
+
+import java.nio.file.Path;
+
+public class CoordinationStoreFactory {
+
+	private CoordinationStoreFactory() {}
+	
+	/**
+	 * Membership file shared by the nodes running on the same host (or on a shared file system).
+	 */
+	public static CoordinationStore newFileCoordinationStore(Path file) {
+		return new FileCoordinationStore(file);
+	}
+}
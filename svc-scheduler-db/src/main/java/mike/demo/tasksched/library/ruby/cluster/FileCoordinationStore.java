@@ -0,0 +1,126 @@
+package mike.demo.tasksched.library.ruby.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link CoordinationStore} backed by a membership file (one <code>nodeId=expiryEpochMillis</code> line per node).<br/>
+ * <br/>
+ * Each access reads and rewrites the file under an exclusive file lock (processes) and a lock 
+ * per file (nodes of the same JVM). The expired memberships are purged on each heartbeat.
+ */
+class FileCoordinationStore implements CoordinationStore {
+
+	// File locks are held on behalf of the whole JVM: the nodes of the same JVM are serialized first
+	private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+	private final Path file;
+	private final Object jvmLock;
+
+	FileCoordinationStore(Path file) {
+		this.file = file.toAbsolutePath().normalize();
+		this.jvmLock = JVM_LOCKS.computeIfAbsent(this.file, f -> new Object());
+	}
+
+	@Override
+	public Set<String> heartbeat(String nodeId, Instant now, Duration ttl) {
+		return this.update( members -> {
+			members.values().removeIf( expiry -> expiry <= now.toEpochMilli() );
+			members.put(nodeId, now.plus(ttl).toEpochMilli());
+			return members;
+		}).keySet();
+	}
+
+	@Override
+	public Set<String> liveNodes(Instant now) {
+		Map<String, Long> members = this.update(UnaryOperator.identity());
+		members.values().removeIf( expiry -> expiry <= now.toEpochMilli() );
+		return members.keySet();
+	}
+
+	@Override
+	public void leave(String nodeId) {
+		this.update( members -> {
+			members.remove(nodeId);
+			return members;
+		});
+	}
+
+	private Map<String, Long> update(UnaryOperator<Map<String, Long>> change) {
+		synchronized (jvmLock) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				
+				FileLock lock = channel.lock();
+				
+				try {
+					Map<String, Long> members = read(channel);
+					Map<String, Long> changed = change.apply(new TreeMap<>(members));
+					
+					if ( ! changed.equals(members) ) {
+						write(channel, changed);
+					}
+					
+					return changed;
+					
+				} finally {
+					lock.release();
+				}
+				
+			} catch (IOException ioe) {
+				throw new UncheckedIOException(String.format("Membership file %s not available", file), ioe);
+			}
+		}
+	}
+
+	private static Map<String, Long> read(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		while ( buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0 );
+		
+		Map<String, Long> members = new TreeMap<>();
+		
+		for ( String line : new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\n") ) {
+			int separator = line.lastIndexOf('=');
+			if ( separator > 0 ) {
+				try {
+					members.put(line.substring(0, separator), Long.parseLong(line.substring(separator + 1).trim()));
+				} catch (NumberFormatException nfe) {
+					// Corrupted line (ignored, purged by the next write)
+				}
+			}
+		}
+		
+		return members;
+	}
+
+	private static void write(FileChannel channel, Map<String, Long> members) throws IOException {
+		StringBuilder content = new StringBuilder();
+		members.forEach( (node, expiry) -> content.append(node).append('=').append(expiry).append('\n') );
+		
+		ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+		
+		// Overwrite then cut the tail: an unlocked reader never sees an empty file
+		while ( buffer.hasRemaining() ) {
+			channel.write(buffer, buffer.position());
+		}
+		channel.truncate(buffer.limit());
+		channel.force(false);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileCoordinationStore [file=%s]", file);
+	}
+}
@@ -1,5 +1,6 @@
 package mike.demo.tasksched.library.ruby.repository;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -42,6 +43,18 @@ class DefaultTaskHistoryRepository {
 		return task; 
 	}
 
+	public void insertAll(Collection<TaskHistory> histories) {
+		synchronized (this.tasks) {
+			histories.forEach(this::insert);
+		}
+	}
+
+	public void updateAll(Collection<TaskHistory> histories) {
+		synchronized (this.tasks) {
+			histories.forEach(this::update);
+		}
+	}
+
 	public boolean delete(String uuid) {
 		return this.tasks.remove(uuid) != null;
 	}
@@ -1,10 +1,15 @@
 package mike.demo.tasksched.library.ruby.repository;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import mike.bootstrap.utilities.exceptions.ResourceAlreadyExistException;
@@ -32,6 +37,29 @@ class DefaultTaskScheduledRespository {
 		return this.tasks.put(task.getName(), task);
 	}
 
+	public Set<String> findNames(Collection<String> names) {
+		synchronized (this.tasks) {
+			return names.stream().filter(this.tasks::containsKey).collect(Collectors.toSet());
+		}
+	}
+
+	public List<Task> insertAll(Collection<Task> batch) {
+		Set<String> names = new HashSet<>();
+		
+		synchronized (this.tasks) {
+			batch.stream()
+				.filter( t -> ! names.add(t.getName()) || this.tasks.containsKey(t.getName()) )
+				.findFirst()
+				.ifPresent( t -> { 
+					throw new ResourceAlreadyExistException("task already exists: %s", t.getName()); 
+				});
+			
+			batch.forEach( t -> this.tasks.put(t.getName(), t) );
+		}
+		
+		return List.copyOf(batch);
+	}
+
 	public Task update(Task task) {
 		this.findByName(task.getName())
 				.orElseThrow(() -> new ResourceNotFoundException("no such task: %s", task.getName()));
@@ -1,9 +1,16 @@
 package mike.demo.tasksched.library.ruby.repository;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import mike.bootstrap.utilities.exceptions.ResourceAlreadyExistException;
 import mike.demo.tasksched.library.ruby.Task;
 import mike.demo.tasksched.library.ruby.TaskHistory;
 
@@ -21,8 +28,45 @@ public interface TaskRepository {
 	
 	Optional<Task> findTask(String name);
 	
+	/**
+	 * @return the names of the given tasks already in the repository (one round-trip)
+	 */
+	default Set<String> findTaskNames(Collection<String> names) {
+		Set<String> wanted = new HashSet<>(names);
+		return this.findAllTask().map(Task::getName).filter(wanted::contains).collect(Collectors.toSet());
+	}
+	
 	Task insertTask(Task task);
 	
+	/**
+	 * Insert a batch of tasks in one round-trip: either all the tasks are inserted or none.<br/>
+	 * The default implementation checks the whole batch first, then inserts the tasks one by one and
+	 * deletes the inserted ones when an insert fails (not isolated from concurrent writers).
+	 */
+	default List<Task> insertTasks(Collection<Task> tasks) {
+		Set<String> names = new HashSet<>();
+		Set<String> existing = this.findTaskNames(tasks.stream().map(Task::getName).collect(Collectors.toList()));
+		tasks.stream()
+			.filter( t -> ! names.add(t.getName()) || existing.contains(t.getName()) )
+			.findFirst()
+			.ifPresent( t -> { 
+				throw new ResourceAlreadyExistException("task already exists: %s", t.getName()); 
+			});
+		
+		List<Task> inserted = new ArrayList<>(tasks.size());
+		try {
+			for ( Task task : tasks ) {
+				this.insertTask(task);
+				inserted.add(task);
+			}
+		} catch (RuntimeException re) {
+			inserted.forEach( t -> this.deleteTask(t.getName()) );
+			throw re;
+		}
+		
+		return List.copyOf(tasks);
+	}
+	
 	Task updateTask(Task task);
 	
 	boolean deleteTask(String name);
@@ -39,4 +83,18 @@ public interface TaskRepository {
 	TaskHistory insertHistory(TaskHistory task);
 	
 	TaskHistory updateHistory(TaskHistory task);
+	
+	/**
+	 * Insert a batch of histories in one round-trip (write-behind).
+	 */
+	default void insertHistories(Collection<TaskHistory> histories) {
+		histories.forEach(this::insertHistory);
+	}
+	
+	/**
+	 * Update a batch of histories in one round-trip (write-behind).
+	 */
+	default void updateHistories(Collection<TaskHistory> histories) {
+		histories.forEach(this::updateHistory);
+	}
 }
@@ -1,6 +1,9 @@
 package mike.demo.tasksched.library.ruby.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import mike.demo.tasksched.library.ruby.Task;
@@ -21,11 +24,21 @@ public class TaskRepositoryDefaultImpl implements TaskRepository {
 		return this.scheduled.findByName(name);
 	}
 	
+	@Override
+	public Set<String> findTaskNames(Collection<String> names) {
+		return this.scheduled.findNames(names);
+	}
+	
 	@Override
 	public Task insertTask(Task task) {
 		return this.scheduled.insert(task);
 	}
 	
+	@Override
+	public List<Task> insertTasks(Collection<Task> tasks) {
+		return this.scheduled.insertAll(tasks);
+	}
+	
 	@Override
 	public Task updateTask(Task task) {
 		return this.scheduled.update(task);
@@ -55,4 +68,14 @@ public class TaskRepositoryDefaultImpl implements TaskRepository {
 	public TaskHistory updateHistory(TaskHistory task) {
 		return this.history.update(task);
 	}
+	
+	@Override
+	public void insertHistories(Collection<TaskHistory> histories) {
+		this.history.insertAll(histories);
+	}
+	
+	@Override
+	public void updateHistories(Collection<TaskHistory> histories) {
+		this.history.updateAll(histories);
+	}
 }
@@ -0,0 +1,111 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named calendar of business days: the weekend days and the holidays are excluded.<br/>
+ * <br/>
+ * Each year is precomputed as a bitmap of its days (6 words, bit <code>n</code> set when the day 
+ * <code>n + 1</code> of the year is a business day): the years having holidays are computed when 
+ * the calendar is created, the other ones on first use. Looking for the next business day is a scan 
+ * of the words (trailing zeros) instead of a day by day iteration.<br/>
+ * The calendars are immutable and thread-safe: a single instance is shared by all the schedules
+ * referencing it (see {@link BusinessCalendars}).
+ */
+public final class BusinessCalendar {
+
+	/** Years scanned ahead before concluding that there is no more business day */
+	private static final int MAX_YEARS_AHEAD = 10;
+
+	private final String name;
+	private final Set<DayOfWeek> weekend;
+	private final Set<LocalDate> holidays;
+	private final Set<MonthDay> annualHolidays;
+
+	private final ConcurrentMap<Integer, long[]> years = new ConcurrentHashMap<>();
+
+	public BusinessCalendar(String name, Collection<DayOfWeek> weekend, Collection<LocalDate> holidays, Collection<MonthDay> annualHolidays) {
+		this.name = name;
+		this.weekend = weekend.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(weekend);
+		this.holidays = Set.copyOf(holidays);
+		this.annualHolidays = Set.copyOf(annualHolidays);
+
+		this.holidays.forEach( holiday -> this.bitmap(holiday.getYear()) );
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Set<DayOfWeek> getWeekend() {
+		return weekend;
+	}
+
+	public Set<LocalDate> getHolidays() {
+		return holidays;
+	}
+
+	public Set<MonthDay> getAnnualHolidays() {
+		return annualHolidays;
+	}
+
+	public boolean isBusinessDay(LocalDate date) {
+		int day = date.getDayOfYear() - 1;
+		return (this.bitmap(date.getYear())[day >>> 6] & (1L << day)) != 0;
+	}
+
+	/**
+	 * @return the first business day on or after the given date (null: none in the next {@value #MAX_YEARS_AHEAD} years)
+	 */
+	public LocalDate nextBusinessDay(LocalDate date) {
+		int year = date.getYear();
+		int day = date.getDayOfYear() - 1;
+
+		for ( int y = 0; y <= MAX_YEARS_AHEAD; y++, year++, day = 0 ) {
+			long[] words = this.bitmap(year);
+
+			for ( int w = day >>> 6; w < words.length; w++ ) {
+				// The days before the given one are masked in its word only
+				long bits = w == day >>> 6 ? words[w] & (-1L << day) : words[w];
+
+				if ( bits != 0 ) {
+					return LocalDate.ofYearDay(year, (w << 6) + Long.numberOfTrailingZeros(bits) + 1);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private long[] bitmap(int year) {
+		return years.computeIfAbsent(year, this::computeBitmap);
+	}
+
+	private long[] computeBitmap(int year) {
+		long[] words = new long[6];
+		LocalDate date = LocalDate.ofYearDay(year, 1);
+
+		for ( int day = 0; day < Year.of(year).length(); day++, date = date.plusDays(1) ) {
+			if ( ! weekend.contains(date.getDayOfWeek()) 
+					&& ! holidays.contains(date) 
+					&& ! annualHolidays.contains(MonthDay.from(date)) ) {
+				words[day >>> 6] |= 1L << day;
+			}
+		}
+
+		return words;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (weekend=%s, holidays=%d, annualHolidays=%d)", name, weekend, holidays.size(), annualHolidays.size());
+	}
+}
@@ -0,0 +1,100 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Registry of the {@link BusinessCalendar} shared by the schedules (one instance per name).<br/>
+ * <br/>
+ * Calendar file format (one entry per line, <code>#</code> starts a comment):
+ * <pre>
+ * weekend=SATURDAY,SUNDAY     (default, empty: no weekend)
+ * --12-25 Christmas           (every year)
+ * 2025-04-18 Good Friday      (this date only)
+ * </pre>
+ */
+public class BusinessCalendars {
+
+	private static final String WEEKEND = "weekend=";
+
+	private static final ConcurrentMap<String, BusinessCalendar> CALENDARS = new ConcurrentHashMap<>();
+
+	private BusinessCalendars() {}
+
+	/**
+	 * Load the calendar from the file and register it (replaces a calendar with the same name).
+	 * 
+	 * @throws UncheckedIOException if the file is not readable
+	 * @throws IllegalArgumentException if a line is not valid
+	 */
+	public static BusinessCalendar load(String name, Path file) {
+		try {
+			return BusinessCalendars.register(parse(name, Files.readAllLines(file, StandardCharsets.UTF_8)));
+		} catch (IOException ioe) {
+			throw new UncheckedIOException(String.format("Calendar file %s not available", file), ioe);
+		}
+	}
+
+	public static BusinessCalendar register(BusinessCalendar calendar) {
+		CALENDARS.put(calendar.getName(), calendar);
+		return calendar;
+	}
+
+	public static Optional<BusinessCalendar> find(String name) {
+		return Optional.ofNullable(CALENDARS.get(name));
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the calendar is not registered
+	 */
+	public static BusinessCalendar get(String name) {
+		return BusinessCalendars.find(name).orElseThrow( () -> new IllegalArgumentException("Calendar not found: " + name) );
+	}
+
+	static BusinessCalendar parse(String name, List<String> lines) {
+		Set<DayOfWeek> weekend = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+		List<LocalDate> holidays = new ArrayList<>();
+		List<MonthDay> annualHolidays = new ArrayList<>();
+
+		for ( int i = 0; i < lines.size(); i++ ) {
+			String line = lines.get(i).replaceFirst("#.*", "").trim();
+
+			try {
+				if ( line.isEmpty() ) {
+					continue;
+				} else if ( line.startsWith(WEEKEND) ) {
+					weekend = Arrays.stream(line.substring(WEEKEND.length()).split(","))
+							.map(String::trim)
+							.filter( day -> ! day.isEmpty() )
+							.map( day -> DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT)) )
+							.collect(Collectors.toCollection( () -> EnumSet.noneOf(DayOfWeek.class) ));
+				} else if ( line.startsWith("--") ) {
+					annualHolidays.add(MonthDay.parse(line.split("\\s+")[0]));
+				} else {
+					holidays.add(LocalDate.parse(line.split("\\s+")[0]));
+				}
+			} catch (DateTimeParseException | IllegalArgumentException e) {
+				throw new IllegalArgumentException(String.format("Calendar %s: invalid line %d '%s'", name, i + 1, lines.get(i)), e);
+			}
+		}
+
+		return new BusinessCalendar(name, weekend, holidays, annualHolidays);
+	}
+}
@@ -0,0 +1,75 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+/**
+ * A {@link Schedule} whose executions falling on a day excluded by the {@link BusinessCalendar} are skipped.<br/>
+ * An excluded execution is replaced by the first execution of the schedule on the next business day
+ * (the excluded days are skipped with the calendar bitmaps, not day by day).
+ */
+class CalendarSchedule implements Schedule {
+
+	/** Business days tried before concluding that the schedule never fires on a business day */
+	private static final int MAX_SKIPS = 1_000;
+
+	private final Schedule schedule;
+	private final BusinessCalendar calendar;
+
+	CalendarSchedule(Schedule schedule, BusinessCalendar calendar) {
+		this.schedule = schedule;
+		this.calendar = calendar;
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime) {
+		return this.onBusinessDay(schedule.nextExecutionDateTime(currentDateTime));
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime, ZonedDateTime lastExecutionEndDateTime) {
+		return this.onBusinessDay(schedule.nextExecutionDateTime(currentDateTime, lastExecutionEndDateTime));
+	}
+
+	private ZonedDateTime onBusinessDay(ZonedDateTime execution) {
+		ZonedDateTime next = execution;
+
+		for ( int i = 0; i < MAX_SKIPS; i++ ) {
+			if ( next.isEqual(WILL_NOT_BE_EXECUTED_AGAIN) || calendar.isBusinessDay(next.toLocalDate()) ) {
+				return next;
+			}
+
+			LocalDate businessDay = calendar.nextBusinessDay(next.toLocalDate().plusDays(1));
+
+			if ( businessDay == null ) {
+				return WILL_NOT_BE_EXECUTED_AGAIN;
+			}
+
+			// First execution of the schedule on (or after) the business day
+			next = schedule.nextExecutionDateTime(businessDay.atStartOfDay(next.getZone()).minusNanos(1));
+		}
+
+		return WILL_NOT_BE_EXECUTED_AGAIN;
+	}
+
+	@Override
+	public String description() {
+		return String.format("%s (business days of %s)", schedule.description(), calendar.getName());
+	}
+
+	@Override
+	public String cronExpression() {
+		return schedule.cronExpression();
+	}
+
+	@Override
+	public Duration spreadWindow() {
+		return schedule.spreadWindow();
+	}
+
+	@Override
+	public String toString() {
+		return this.description();
+	}
+}
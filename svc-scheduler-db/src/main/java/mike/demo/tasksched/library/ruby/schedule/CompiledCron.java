@@ -0,0 +1,431 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+
+/**
+ * Quartz cron expression compiled into one bitset per field.<br/>
+ * <br/>
+ * Format: <code>seconds minutes hours day-of-month month day-of-week [year]</code> with the Quartz
+ * syntax (<code>* ? , - /</code>, month and day names, <code>L</code>, <code>L-n</code>, <code>nW</code>,
+ * <code>LW</code> for the day of month and <code>nL</code>, <code>n#k</code> for the day of week, 1 = SUN).<br/>
+ * The next execution is searched field by field on integer values with bit scans (no allocation
+ * but the returned date time). The instances are immutable (thread-safe).
+ */
+final class CompiledCron {
+
+	private static final String[] MONTH_NAMES = { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC" };
+	private static final String[] DAY_NAMES = { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" };
+
+	private static final int MIN_YEAR = 1970;
+	private static final int MAX_YEAR = 2099;
+
+	// Days of the week repeat every 400 years: no execution within 400 years means no execution at all
+	private static final int SEARCH_HORIZON_YEARS = 400;
+
+	private final long seconds;
+	private final long minutes;
+	private final long hours;
+	private final long months;
+	private final long[] years;  // null: any year
+
+	// Day of month ('?': not restricted)
+	private final boolean dayOfMonthRestricted;
+	private final long daysOfMonth;
+	private final long nearestWeekdays;
+	private final int lastDayOffset;        // -1: none
+	private final boolean lastWeekday;
+
+	// Day of week ('?': not restricted)
+	private final boolean dayOfWeekRestricted;
+	private final long daysOfWeek;
+	private final long lastDaysOfWeek;
+	private final long nthDaysOfWeek;        // bit (k - 1) * 7 + (dow - 1)
+
+	private CompiledCron(String[] fields) {
+		this.seconds = parseField(fields[0], 0, 59, null);
+		this.minutes = parseField(fields[1], 0, 59, null);
+		this.hours = parseField(fields[2], 0, 23, null);
+		this.months = parseField(fields[4], 1, 12, MONTH_NAMES);
+		this.years = fields.length == 7 && ! isAny(fields[6]) ? parseYears(fields[6]) : null;
+
+		// Day of month
+		String dom = fields[3].toUpperCase(Locale.ROOT);
+		long domBits = 0;
+		long weekdayBits = 0;
+		int lastOffset = -1;
+		boolean lastWeekdayFlag = false;
+
+		this.dayOfMonthRestricted = ! isAny(dom);
+
+		if ( dayOfMonthRestricted ) {
+			for ( String item : dom.split(",") ) {
+				if ( item.equals("LW") ) {
+					lastWeekdayFlag = true;
+				} else if ( item.startsWith("L") ) {
+					lastOffset = item.length() == 1 ? 0 : parseNumber(item.substring(2), 0, 30, item);
+				} else if ( item.endsWith("W") ) {
+					weekdayBits |= 1L << parseNumber(item.substring(0, item.length() - 1), 1, 31, item);
+				} else {
+					domBits |= parseItem(item, 1, 31, null);
+				}
+			}
+		}
+
+		this.daysOfMonth = domBits;
+		this.nearestWeekdays = weekdayBits;
+		this.lastDayOffset = lastOffset;
+		this.lastWeekday = lastWeekdayFlag;
+
+		// Day of week
+		String dow = fields[5].toUpperCase(Locale.ROOT);
+		long dowBits = 0;
+		long lastDowBits = 0;
+		long nthBits = 0;
+
+		this.dayOfWeekRestricted = ! isAny(dow);
+
+		if ( dayOfWeekRestricted ) {
+			for ( String item : dow.split(",") ) {
+				if ( item.equals("L") ) {
+					dowBits |= 1L << 7;
+				} else if ( item.endsWith("L") ) {
+					lastDowBits |= 1L << parseValue(item.substring(0, item.length() - 1), 1, 7, DAY_NAMES);
+				} else if ( item.contains("#") ) {
+					int separator = item.indexOf('#');
+					int day = parseValue(item.substring(0, separator), 1, 7, DAY_NAMES);
+					int nth = parseNumber(item.substring(separator + 1), 1, 5, item);
+					nthBits |= 1L << ((nth - 1) * 7 + (day - 1));
+				} else {
+					dowBits |= parseItem(item, 1, 7, DAY_NAMES);
+				}
+			}
+		}
+
+		this.daysOfWeek = dowBits;
+		this.lastDaysOfWeek = lastDowBits;
+		this.nthDaysOfWeek = nthBits;
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the expression is not a valid Quartz cron expression
+	 */
+	static CompiledCron compile(String cronExpression) {
+		String[] fields = cronExpression.trim().split("\\s+");
+
+		if ( fields.length != 6 && fields.length != 7 ) {
+			throw new IllegalArgumentException(String.format("Invalid cron expression '%s' (6 or 7 fields expected)", cronExpression));
+		}
+
+		try {
+			return new CompiledCron(fields);
+		} catch (IllegalArgumentException iae) {
+			throw new IllegalArgumentException(String.format("Invalid cron expression '%s' (%s)", cronExpression, iae.getMessage()), iae);
+		}
+	}
+
+	/**
+	 * @return the first execution strictly after the given time (same zone), null when there is no more execution
+	 */
+	ZonedDateTime next(ZonedDateTime currentDateTime) {
+		LocalDateTime current = currentDateTime.toLocalDateTime();
+
+		int year = current.getYear();
+		int month = current.getMonthValue();
+		int day = current.getDayOfMonth();
+		int hour = current.getHour();
+		int minute = current.getMinute();
+		int second = current.getSecond() + 1;
+
+		int lastYear = Math.min(years != null ? MAX_YEAR : Integer.MAX_VALUE, year + SEARCH_HORIZON_YEARS);
+
+		while ( true ) {
+			// Carry the overflows
+			if ( second > 59 ) { second = 0; minute++; }
+			if ( minute > 59 ) { minute = 0; hour++; }
+			if ( hour > 23 ) { hour = 0; day++; }
+			if ( day > lengthOfMonth(year, month) ) { day = 1; month++; }
+			if ( month > 12 ) { month = 1; year++; }
+
+			if ( year > lastYear ) {
+				return null;
+			}
+
+			if ( years != null && ! isSet(years, year - MIN_YEAR) ) {
+				int nextYear = nextSetBit(years, year - MIN_YEAR);
+				if ( nextYear < 0 ) {
+					return null;
+				}
+				year = nextYear + MIN_YEAR; month = 1; day = 1; hour = 0; minute = 0; second = 0;
+			}
+
+			int nextMonth = nextBit(months, month);
+			if ( nextMonth < 0 ) {
+				year++; month = 1; day = 1; hour = 0; minute = 0; second = 0;
+				continue;
+			} else if ( nextMonth != month ) {
+				month = nextMonth; day = 1; hour = 0; minute = 0; second = 0;
+			}
+
+			int nextDay = nextBit(this.days(year, month), day);
+			if ( nextDay < 0 ) {
+				month++; day = 1; hour = 0; minute = 0; second = 0;
+				continue;
+			} else if ( nextDay != day ) {
+				day = nextDay; hour = 0; minute = 0; second = 0;
+			}
+
+			int nextHour = nextBit(hours, hour);
+			if ( nextHour < 0 ) {
+				day++; hour = 0; minute = 0; second = 0;
+				continue;
+			} else if ( nextHour != hour ) {
+				hour = nextHour; minute = 0; second = 0;
+			}
+
+			int nextMinute = nextBit(minutes, minute);
+			if ( nextMinute < 0 ) {
+				hour++; minute = 0; second = 0;
+				continue;
+			} else if ( nextMinute != minute ) {
+				minute = nextMinute; second = 0;
+			}
+
+			int nextSecond = nextBit(seconds, second);
+			if ( nextSecond < 0 ) {
+				minute++; second = 0;
+				continue;
+			}
+
+			LocalDateTime execution = LocalDateTime.of(year, month, day, hour, minute, nextSecond);
+			ZonedDateTime nextExecution = ZonedDateTime.ofLocal(execution, currentDateTime.getZone(), currentDateTime.getOffset());
+
+			// Local time skipped by a daylight saving time gap: no execution
+			if ( nextExecution.toLocalDateTime().equals(execution) ) {
+				return nextExecution;
+			}
+
+			second = nextSecond + 1;
+		}
+	}
+
+	/**
+	 * @return the days of the month matching both the day of month and the day of week (bit 1 = 1st day)
+	 */
+	private long days(int year, int month) {
+		int length = lengthOfMonth(year, month);
+		long monthDays = (-1L >>> (63 - length)) & ~1L;
+
+		return (dayOfMonthRestricted ? this.daysOfMonth(length, year, month) : monthDays)
+				& (dayOfWeekRestricted ? this.daysOfWeek(length, year, month) : monthDays);
+	}
+
+	private long daysOfMonth(int length, int year, int month) {
+		long days = daysOfMonth & (-1L >>> (63 - length));
+
+		if ( lastDayOffset >= 0 && length - lastDayOffset >= 1 ) {
+			days |= 1L << (length - lastDayOffset);
+		}
+
+		if ( lastWeekday ) {
+			int dow = isoDayOfWeek(year, month, length);
+			days |= 1L << (dow == 6 ? length - 1 : dow == 7 ? length - 2 : length);
+		}
+
+		for ( long bits = nearestWeekdays; bits != 0; bits &= bits - 1 ) {
+			int day = Long.numberOfTrailingZeros(bits);
+			if ( day <= length ) {
+				days |= 1L << nearestWeekday(year, month, day, length);
+			}
+		}
+
+		return days;
+	}
+
+	private long daysOfWeek(int length, int year, int month) {
+		// Quartz day of week of the 1st of the month (1 = SUN)
+		int firstDow = isoDayOfWeek(year, month, 1) % 7 + 1;
+		long days = 0;
+
+		for ( int day = 1; day <= length; day++ ) {
+			int dow = (firstDow + day - 2) % 7 + 1;
+			int nth = (day - 1) / 7;
+
+			if ( (daysOfWeek & (1L << dow)) != 0
+					|| (nthDaysOfWeek & (1L << (nth * 7 + dow - 1))) != 0
+					|| ((lastDaysOfWeek & (1L << dow)) != 0 && day + 7 > length) ) {
+				days |= 1L << day;
+			}
+		}
+
+		return days;
+	}
+
+	private static int nearestWeekday(int year, int month, int day, int length) {
+		int dow = isoDayOfWeek(year, month, day);
+
+		if ( dow == 6 ) {
+			return day == 1 ? day + 2 : day - 1;
+		} else if ( dow == 7 ) {
+			return day == length ? day - 2 : day + 1;
+		}
+
+		return day;
+	}
+
+	// ********** Calendar arithmetic **********
+
+	/**
+	 * @return ISO day of week (1 = MON, 7 = SUN)
+	 */
+	private static int isoDayOfWeek(int year, int month, int day) {
+		return (int) Math.floorMod(epochDay(year, month, day) + 3, 7L) + 1;
+	}
+
+	private static long epochDay(int year, int month, int day) {
+		// Days from civil (proleptic Gregorian calendar)
+		int y = month <= 2 ? year - 1 : year;
+		int era = Math.floorDiv(y, 400);
+		int yoe = y - era * 400;
+		int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097L + doe - 719468;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+			case 4: case 6: case 9: case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	// ********** Bit scans **********
+
+	private static int nextBit(long bits, int from) {
+		if ( from > 63 ) {
+			return -1;
+		}
+
+		long candidates = bits & (-1L << from);
+		return candidates == 0 ? -1 : Long.numberOfTrailingZeros(candidates);
+	}
+
+	private static boolean isSet(long[] bits, int index) {
+		return index >= 0 && index < bits.length * 64 && (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	private static int nextSetBit(long[] bits, int from) {
+		int index = Math.max(0, from);
+
+		for ( int word = index >>> 6; word < bits.length; word++ ) {
+			long candidates = bits[word] & (word == index >>> 6 ? -1L << index : -1L);
+			if ( candidates != 0 ) {
+				return word * 64 + Long.numberOfTrailingZeros(candidates);
+			}
+		}
+
+		return -1;
+	}
+
+	// ********** Parsing **********
+
+	private static boolean isAny(String field) {
+		return field.equals("?") || field.equals("*");
+	}
+
+	private static long parseField(String field, int min, int max, String[] names) {
+		long bits = 0;
+
+		for ( String item : field.toUpperCase(Locale.ROOT).split(",") ) {
+			bits |= parseItem(item, min, max, names);
+		}
+
+		return bits;
+	}
+
+	private static long[] parseYears(String field) {
+		long[] bits = new long[(MAX_YEAR - MIN_YEAR) / 64 + 1];
+
+		for ( String item : field.split(",") ) {
+			int[] range = parseRange(item, MIN_YEAR, MAX_YEAR, null);
+
+			for ( int year = range[0]; year <= range[1]; year += range[2] ) {
+				bits[(year - MIN_YEAR) >>> 6] |= 1L << (year - MIN_YEAR);
+			}
+		}
+
+		return bits;
+	}
+
+	/**
+	 * <code>*</code>, <code>?</code>, <code>v</code>, <code>a-b</code> (wrapping when a > b) with an optional <code>/step</code>
+	 */
+	private static long parseItem(String item, int min, int max, String[] names) {
+		int[] range = parseRange(item, min, max, names);
+		long bits = 0;
+
+		int span = range[1] >= range[0] ? range[1] - range[0] : range[1] + (max - min + 1) - range[0];
+
+		for ( int offset = 0; offset <= span; offset += range[2] ) {
+			int value = range[0] + offset;
+			bits |= 1L << (value > max ? value - (max - min + 1) : value);
+		}
+
+		return bits;
+	}
+
+	/**
+	 * @return { from, to, step }
+	 */
+	private static int[] parseRange(String item, int min, int max, String[] names) {
+		int slash = item.indexOf('/');
+		String base = slash >= 0 ? item.substring(0, slash) : item;
+		int step = slash >= 0 ? parseNumber(item.substring(slash + 1), 1, max - min + 1, item) : 1;
+
+		if ( isAny(base) ) {
+			return new int[] { min, max, step };
+		}
+
+		int dash = base.indexOf('-', 1);
+
+		if ( dash > 0 ) {
+			return new int[] { parseValue(base.substring(0, dash), min, max, names), parseValue(base.substring(dash + 1), min, max, names), step };
+		}
+
+		int from = parseValue(base, min, max, names);
+
+		// 'a/n': from a to the max value
+		return new int[] { from, slash >= 0 ? max : from, step };
+	}
+
+	private static int parseValue(String value, int min, int max, String[] names) {
+		if ( names != null ) {
+			for ( int i = 0; i < names.length; i++ ) {
+				if ( names[i].equals(value) ) {
+					return min + i;
+				}
+			}
+		}
+
+		return parseNumber(value, min, max, value);
+	}
+
+	private static int parseNumber(String value, int min, int max, String item) {
+		try {
+			int number = Integer.parseInt(value);
+
+			if ( number < min || number > max ) {
+				throw new IllegalArgumentException(String.format("'%s' out of range [%d, %d]", item, min, max));
+			}
+
+			return number;
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException(String.format("'%s' is not a valid value", item));
+		}
+	}
+}
@@ -7,13 +7,14 @@ import com.cronutils.descriptor.CronDescriptor;
 import com.cronutils.model.Cron;
 import com.cronutils.model.CronType;
 import com.cronutils.model.definition.CronDefinitionBuilder;
-import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
 
 /**
  * A {@link Schedule} based on a <a href="https://en.wikipedia.org/wiki/Cron#CRON_expression">
  * cron expression</a>.<br/>
  * <br/>
+ * The next executions are computed by the expression compiled into bitsets (see {@link CompiledCron}):
+ * cron-utils validates the expression and provides its description (built on the first call).<br/>
  * This class depends on <a href="https://github.com/jmrozanec/cron-utils">cron-utils</a>,
  * so this dependency have to be in the classpath in order to be able to use {@link CronSchedule}.
  * Since cron-utils is marked as optional, it has to be explicitly referenced in the
@@ -27,36 +28,43 @@ class CronSchedule implements Schedule {
 
 	private static final CronDescriptor ENGLISH_DESCRIPTOR = CronDescriptor.instance(Locale.ENGLISH);
 
-	private final Cron cronExpression;
-	private final ExecutionTime cronExecutionTime;
-	private final String description;
+	private final String cronExpression;
+	private final CompiledCron compiledCron;
+	private volatile String description;
 
-	private CronSchedule(Cron cronExpression) {
-		this.cronExpression = cronExpression;
-		this.cronExecutionTime = ExecutionTime.forCron(cronExpression);
-		this.description = ENGLISH_DESCRIPTOR.describe(cronExpression);
+	private CronSchedule(Cron cronExpression, CompiledCron compiledCron) {
+		this.cronExpression = cronExpression.asString();
+		this.compiledCron = compiledCron;
 	}
 
 	@Override
 	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime) {
-		return cronExecutionTime.timeToNextExecution(currentDateTime)
-					.map(currentDateTime::plus)
-					.orElseGet(() -> WILL_NOT_BE_EXECUTED_AGAIN);
+		ZonedDateTime nextExecution = compiledCron.next(currentDateTime);
+		
+		return nextExecution != null ? nextExecution : WILL_NOT_BE_EXECUTED_AGAIN;
 	}
 
 	@Override
 	public String description() {
-		return description;
+		String text = this.description;
+		
+		if ( text == null ) {
+			// Racy single-check: concurrent first calls build the same text
+			text = ENGLISH_DESCRIPTOR.describe(QUARTZ_CRON_PARSER.parse(cronExpression));
+			this.description = text;
+		}
+		
+		return text;
 	}
 	
 	@Override
 	public String cronExpression() {
-		return cronExpression.asString();
+		return cronExpression;
 	}
 	
 	@Override
 	public String toString() {
-		return description;
+		return this.description();
 	}
 
 	/**
@@ -64,6 +72,8 @@ class CronSchedule implements Schedule {
 	 * e.g. 0 * * * * ? * for each minute.
 	 */
 	public static CronSchedule parseQuartzCron(String cronExpression) {
-		return new CronSchedule(QUARTZ_CRON_PARSER.parse(cronExpression));
+		Cron cron = QUARTZ_CRON_PARSER.parse(cronExpression);
+		
+		return new CronSchedule(cron, CompiledCron.compile(cronExpression));
 	}
 }
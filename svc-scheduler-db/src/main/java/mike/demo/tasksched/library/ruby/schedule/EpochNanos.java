@@ -0,0 +1,26 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversions between date-times and nanoseconds since the epoch (interval schedules arithmetic).<br/>
+ * A <code>long</code> covers the years 1677 to 2262.
+ */
+final class EpochNanos {
+
+	private EpochNanos() {}
+
+	static long of(ZonedDateTime dateTime) {
+		return TimeUnit.SECONDS.toNanos(dateTime.toEpochSecond()) + dateTime.getNano();
+	}
+
+	static ZonedDateTime toDateTime(long epochNanos, ZoneId zone) {
+		long seconds = Math.floorDiv(epochNanos, 1_000_000_000L);
+		long nanos = Math.floorMod(epochNanos, 1_000_000_000L);
+
+		return ZonedDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), zone);
+	}
+}
@@ -0,0 +1,59 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A {@link Schedule} firing a fixed delay after the end of the previous execution (nanosecond arithmetic).<br/>
+ * <br/>
+ * The first execution fires one delay after the task is scheduled. An execution whose delay has already
+ * elapsed (e.g. task enabled again) fires immediately. Without the end of the previous execution
+ * (forecast, misfire) the executions are assumed to be instantaneous.
+ */
+class FixedDelaySchedule implements Schedule {
+
+	private final long delayNanos;
+	private final String description;
+
+	FixedDelaySchedule(Duration delay) {
+		if ( delay.toMillis() <= 0 ) {
+			throw new IllegalArgumentException("Delay must be at least one millisecond: " + delay);
+		}
+
+		this.delayNanos = delay.toNanos();
+		this.description = String.format("%s after the previous execution", FixedRateSchedule.format(delay));
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime) {
+		return EpochNanos.toDateTime(EpochNanos.of(currentDateTime) + delayNanos, currentDateTime.getZone());
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime, ZonedDateTime lastExecutionEndDateTime) {
+		long currentNanos = EpochNanos.of(currentDateTime);
+		long lastEndNanos = EpochNanos.of(lastExecutionEndDateTime);
+
+		if ( lastEndNanos == 0 ) {
+			// Never executed
+			return EpochNanos.toDateTime(currentNanos + delayNanos, currentDateTime.getZone());
+		}
+
+		return EpochNanos.toDateTime(Math.max(currentNanos, lastEndNanos + delayNanos), currentDateTime.getZone());
+	}
+
+	@Override
+	public String description() {
+		return description;
+	}
+
+	@Override
+	public String cronExpression() {
+		return "";
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+}
@@ -0,0 +1,57 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A {@link Schedule} firing at a fixed rate: <code>anchor + n * period</code> (nanosecond arithmetic).<br/>
+ * The default anchor is the epoch, e.g. every 250 ms fires at .000, .250, .500 and .750 of each second.
+ * The executions do not depend on the previous ones (a late execution does not shift the next ones).
+ */
+class FixedRateSchedule implements Schedule {
+
+	private final long periodNanos;
+	private final long anchorNanos;
+	private final String description;
+
+	FixedRateSchedule(Duration period, ZonedDateTime anchor) {
+		if ( period.toMillis() <= 0 ) {
+			throw new IllegalArgumentException("Period must be at least one millisecond: " + period);
+		}
+
+		this.periodNanos = period.toNanos();
+		this.anchorNanos = EpochNanos.of(anchor);
+		this.description = anchorNanos == 0 ? 
+						String.format("every %s", format(period)) 
+						: String.format("every %s from %s", format(period), anchor.toInstant());
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime) {
+		long elapsedNanos = EpochNanos.of(currentDateTime) - anchorNanos;
+		long nextNanos = anchorNanos + Math.floorDiv(elapsedNanos, periodNanos) * periodNanos + periodNanos;
+
+		return EpochNanos.toDateTime(nextNanos, currentDateTime.getZone());
+	}
+
+	@Override
+	public String description() {
+		return description;
+	}
+
+	@Override
+	public String cronExpression() {
+		return "";
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+	static String format(Duration duration) {
+		return duration.toNanos() % 1_000_000 == 0 ? 
+						String.format("%d ms", duration.toMillis()) 
+						: String.format("%d ns", duration.toNanos());
+	}
+}
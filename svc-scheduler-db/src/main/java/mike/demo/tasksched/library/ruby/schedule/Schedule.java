@@ -1,8 +1,10 @@
 package mike.demo.tasksched.library.ruby.schedule;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.stream.Stream;
 
 /**
  * Provide the time of the next executions of a job.
@@ -16,10 +18,38 @@ public interface Schedule {
 	
 	ZonedDateTime nextExecutionDateTime(ZonedDateTime currentTimeInMillis);
 	
+	/**
+	 * Next execution knowing the end of the previous one (fixed-delay schedules).<br/>
+	 * The end is {@link #EPOCH_ZONED_DATE_TIME} when the job has never been executed.
+	 */
+	default ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime, ZonedDateTime lastExecutionEndDateTime) {
+		return this.nextExecutionDateTime(currentDateTime);
+	}
+	
+	/**
+	 * Enumerate the executions after <code>from</code> and before <code>to</code> in chronological order. 
+	 * The executions are computed on demand (the stream can be limited or short-circuited).
+	 */
+	default Stream<ZonedDateTime> executions(ZonedDateTime from, ZonedDateTime to) {
+		return Stream.iterate(this.nextExecutionDateTime(from), 
+				execution -> execution.isAfter(from) && execution.isBefore(to), 
+				this::nextExecutionDateTime);
+	}
+	
 	/**
 	 * @return human understandable description of the schedule
 	 */
 	String description();
 	
 	String cronExpression();
+	
+	/**
+	 * The executions of the tasks sharing this schedule are spread over the window: each task 
+	 * runs at a stable offset (derived from its name) after the nominal execution time.
+	 * 
+	 * @return the spread window (zero: no spreading)
+	 */
+	default Duration spreadWindow() {
+		return Duration.ZERO;
+	}
 }
@@ -0,0 +1,93 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of the schedules keyed by their normalized expression (schedules are immutable and
+ * shareable, see {@link Schedule}).<br/>
+ * <br/>
+ * Concurrent lookups do not block each other. When the cache is full, arbitrary entries are evicted:
+ * the evicted schedules are still used by their tasks, only the next lookups parse them again.
+ */
+class ScheduleCache<S extends Schedule> {
+
+	private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+	private final int capacity;
+	private final Function<String, S> factory;
+	private final Map<String, S> schedules = new ConcurrentHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	ScheduleCache(int capacity, Function<String, S> factory) {
+		this.capacity = capacity;
+		this.factory = factory;
+	}
+
+	/**
+	 * @return the schedule of the expression (created on the first lookup)
+	 */
+	S get(String expression) {
+		// Expressions are usually given normalized (no normalization on hit)
+		S schedule = schedules.get(expression);
+
+		if ( schedule != null ) {
+			hits.incrementAndGet();
+			return schedule;
+		}
+
+		String key = normalize(expression);
+		schedule = schedules.get(key);
+
+		if ( schedule != null ) {
+			hits.incrementAndGet();
+			return schedule;
+		}
+
+		misses.incrementAndGet();
+
+		// Invalid expressions are not cached (the factory exception is thrown)
+		schedule = schedules.computeIfAbsent(key, factory);
+
+		if ( schedules.size() > capacity ) {
+			this.evict();
+		}
+
+		return schedule;
+	}
+
+	int size() {
+		return schedules.size();
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	private void evict() {
+		Iterator<String> keys = schedules.keySet().iterator();
+
+		while ( schedules.size() > capacity && keys.hasNext() ) {
+			keys.next();
+			keys.remove();
+		}
+	}
+
+	/**
+	 * Upper case with single spaces between the fields ("0 0 12 ? * mon-fri" and " 0  0 12 ? * MON-FRI" are equal)
+	 */
+	static String normalize(String expression) {
+		return WHITESPACES.matcher(expression.trim()).replaceAll(" ").toUpperCase(Locale.ROOT);
+	}
+}
@@ -1,5 +1,6 @@
 package mike.demo.tasksched.library.ruby.schedule;
 
+import java.time.Duration;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
 import java.util.List;
@@ -14,6 +15,11 @@ import com.cronutils.model.field.expression.Weekdays;
  */
 public class ScheduleFactory {
 
+	private static final int CRON_SCHEDULE_CACHE_CAPACITY = 1_024;
+	
+	private static final ScheduleCache<CronSchedule> CRON_SCHEDULES = 
+			new ScheduleCache<>(CRON_SCHEDULE_CACHE_CAPACITY, CronSchedule::parseQuartzCron);
+	
 	private ScheduleFactory() {}
 	
 	public static final Schedule willNeverBeExecuted = new Schedule() {
@@ -34,8 +40,71 @@ public class ScheduleFactory {
 		}
 	};
 	
+	/**
+	 * The schedules are shared: the same instance is returned for equal expressions 
+	 * (case and spaces are not significant).
+	 */
 	public static Schedule withCronExpression(String cronExpression) {
-		return CronSchedule.parseQuartzCron(cronExpression);
+		return CRON_SCHEDULES.get(cronExpression);
+	}
+	
+	/**
+	 * Sub-second schedule: fires every period aligned on the epoch (see {@link #atFixedRate(Duration)}).
+	 */
+	public static Schedule withPeriod(Duration period) {
+		return ScheduleFactory.atFixedRate(period);
+	}
+	
+	/**
+	 * Fixed-rate schedule: fires every period aligned on the epoch (a late execution does not shift the next ones).
+	 */
+	public static Schedule atFixedRate(Duration period) {
+		return new FixedRateSchedule(period, Schedule.EPOCH_ZONED_DATE_TIME);
+	}
+	
+	/**
+	 * Fixed-rate schedule: fires every period aligned on the anchor.
+	 */
+	public static Schedule atFixedRate(Duration period, ZonedDateTime anchor) {
+		return new FixedRateSchedule(period, anchor);
+	}
+	
+	/**
+	 * Fixed-delay schedule: fires the delay after the end of the previous execution.
+	 */
+	public static Schedule withFixedDelay(Duration delay) {
+		return new FixedDelaySchedule(delay);
+	}
+	
+	/**
+	 * Spread the executions of the tasks sharing the schedule over the window (thundering herd):
+	 * each task fires at a stable offset, derived from its name, after the nominal execution time.
+	 */
+	public static Schedule withSpread(Schedule schedule, Duration window) {
+		return new SpreadSchedule(schedule, window);
+	}
+	
+	/**
+	 * Skip the executions falling on a day excluded by the calendar (weekend, holidays).
+	 */
+	public static Schedule withCalendar(Schedule schedule, BusinessCalendar calendar) {
+		return new CalendarSchedule(schedule, calendar);
+	}
+	
+	/**
+	 * Skip the executions falling on a day excluded by the registered calendar (see {@link BusinessCalendars}).
+	 * 
+	 * @throws IllegalArgumentException if the calendar is not registered
+	 */
+	public static Schedule withCalendar(Schedule schedule, String calendarName) {
+		return new CalendarSchedule(schedule, BusinessCalendars.get(calendarName));
+	}
+	
+	/**
+	 * Every business day of the calendar at the given time.
+	 */
+	public static Schedule atFixedTimeOnBusinessDays(LocalTime localTime, String calendarName) {
+		return ScheduleFactory.withCalendar(ScheduleFactory.atFixedTimeEveryDay(localTime), calendarName);
 	}
 	
 	public static Schedule atFixedTimeMondayToFriday(LocalTime localTime) {
@@ -0,0 +1,54 @@
+package mike.demo.tasksched.library.ruby.schedule;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+/**
+ * A {@link Schedule} whose executions are spread over a window (see {@link Schedule#spreadWindow()}).<br/>
+ * The nominal execution times are those of the given schedule: the offset of each task is applied 
+ * by the scheduler.
+ */
+class SpreadSchedule implements Schedule {
+
+	private final Schedule schedule;
+	private final Duration window;
+
+	SpreadSchedule(Schedule schedule, Duration window) {
+		if ( window.isNegative() ) {
+			throw new IllegalArgumentException("Spread window must not be negative: " + window);
+		}
+
+		this.schedule = schedule;
+		this.window = window;
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime) {
+		return schedule.nextExecutionDateTime(currentDateTime);
+	}
+
+	@Override
+	public ZonedDateTime nextExecutionDateTime(ZonedDateTime currentDateTime, ZonedDateTime lastExecutionEndDateTime) {
+		return schedule.nextExecutionDateTime(currentDateTime, lastExecutionEndDateTime);
+	}
+
+	@Override
+	public String description() {
+		return String.format("%s (spread over %d ms)", schedule.description(), window.toMillis());
+	}
+
+	@Override
+	public String cronExpression() {
+		return schedule.cronExpression();
+	}
+
+	@Override
+	public Duration spreadWindow() {
+		return window;
+	}
+
+	@Override
+	public String toString() {
+		return this.description();
+	}
+}
@@ -0,0 +1,336 @@
+package mike.demo.tasksched.library.ruby.timer;
+
+import java.lang.reflect.Array;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese &amp; Lauck) with O(1) insert and cancel.<br/>
+ * <br/>
+ * Time is expressed in ticks. The first level has 256 slots of one tick each, the four next
+ * levels have 64 slots each covering 2^8, 2^14, 2^20 and 2^26 ticks per slot. Timers are
+ * stored in intrusive doubly-linked lists so removing a timer does not require any lookup.
+ * Timers of the upper levels are cascaded to the lower levels when the first level wraps around.
+ * Timers beyond the wheel range (2^32 ticks) are parked in the last slots and re-cascaded.<br/>
+ * <br/>
+ * This class is not thread-safe: it is meant to be driven by a single thread or guarded by the caller
+ * (see {@link WheelTimer}).
+ *
+ * @param <T> the payload attached to a timer
+ */
+public class HierarchicalTimingWheel<T> {
+
+	private static final int ROOT_BITS = 8;
+	private static final int ROOT_SIZE = 1 << ROOT_BITS;
+	private static final int ROOT_MASK = ROOT_SIZE - 1;
+	private static final int LEVEL_BITS = 6;
+	private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+	private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+	private static final int LEVELS = 4;
+	private static final long MAX_DELTA = (1L << (ROOT_BITS + LEVELS * LEVEL_BITS)) - 1;
+
+	private final Bucket<T>[] root;
+	private final Bucket<T>[][] levels;
+	private final long[] rootOccupancy = new long[ROOT_SIZE / Long.SIZE];
+
+	/** Next tick to be processed */
+	private long currentTick;
+	private int rootCount = 0;
+	private int size = 0;
+
+	public HierarchicalTimingWheel(long startTick) {
+		this.currentTick = startTick;
+		this.root = newArray(ROOT_SIZE);
+		this.levels = newArray(LEVELS);
+
+		for ( int i = 0; i < ROOT_SIZE; i++ ) {
+			this.root[i] = new Bucket<>(this, i);
+		}
+
+		for ( int level = 0; level < LEVELS; level++ ) {
+			this.levels[level] = newArray(LEVEL_SIZE);
+
+			for ( int i = 0; i < LEVEL_SIZE; i++ ) {
+				this.levels[level][i] = new Bucket<>(this, -1);
+			}
+		}
+	}
+
+	/**
+	 * @return the next tick to be processed by {@link #advanceTo(long, Consumer)}
+	 */
+	public long currentTick() {
+		return currentTick;
+	}
+
+	/**
+	 * @return the number of pending timers
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Register a timer expiring at the given tick (a tick in the past expires on the next advance).
+	 */
+	public Timeout<T> schedule(long deadlineTick, T payload) {
+		Timeout<T> timeout = new Timeout<>(deadlineTick, payload);
+		this.place(timeout);
+		size++;
+		return timeout;
+	}
+
+	/**
+	 * Remove a pending timer.
+	 *
+	 * @return false if the timer has already expired or been cancelled
+	 */
+	public boolean cancel(Timeout<T> timeout) {
+		if ( timeout.bucket == null || timeout.bucket.wheel != this ) {
+			return false;
+		}
+
+		timeout.bucket.unlink(timeout);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Process all the ticks up to the given tick (inclusive) and hand over the expired payloads.
+	 *
+	 * @return the number of expired timers
+	 */
+	public int advanceTo(long tick, Consumer<? super T> expired) {
+		int count = 0;
+
+		while ( currentTick <= tick ) {
+
+			if ( rootCount == 0 && size > 0 ) {
+				// Nothing in the first level: jump to the next cascade (or the target tick)
+				long boundary = (currentTick | ROOT_MASK) + 1;
+				int index = (int) (currentTick & ROOT_MASK);
+
+				if ( index != 0 ) {
+					if ( boundary > tick ) {
+						currentTick = tick + 1;
+						break;
+					}
+					currentTick = boundary;
+				}
+			} else if ( size == 0 ) {
+				currentTick = tick + 1;
+				break;
+			}
+
+			int index = (int) (currentTick & ROOT_MASK);
+
+			if ( index == 0 ) {
+				this.cascadeFrom(0);
+			}
+
+			currentTick++;
+
+			Bucket<T> bucket = root[index];
+			Timeout<T> timeout;
+
+			while ( (timeout = bucket.head) != null ) {
+				bucket.unlink(timeout);
+				size--;
+				count++;
+				expired.accept(timeout.payload);
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Lower bound of the tick of the next expiration (the wheel has to be advanced up to this tick
+	 * to expire or cascade timers).
+	 *
+	 * @return the next tick to process or {@link Long#MAX_VALUE} if the wheel is empty
+	 */
+	public long nextEventTick() {
+		if ( size == 0 ) {
+			return Long.MAX_VALUE;
+		}
+
+		long boundary = (currentTick | ROOT_MASK) + 1;
+		boolean cascadePending = size > rootCount;
+
+		if ( rootCount > 0 ) {
+			int start = (int) (currentTick & ROOT_MASK);
+			int slot = this.nextOccupiedRootSlot(start);
+
+			if ( slot >= 0 ) {
+				long tick = currentTick + (slot - start);
+				return cascadePending ? Math.min(tick, boundary) : tick;
+			}
+		}
+
+		return boundary;
+	}
+
+	private int nextOccupiedRootSlot(int from) {
+		for ( int word = from >>> 6; word < rootOccupancy.length; word++ ) {
+			long bits = rootOccupancy[word];
+
+			if ( word == from >>> 6 ) {
+				bits &= -1L << (from & 63);
+			}
+
+			if ( bits != 0 ) {
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+
+		return -1;
+	}
+
+	private void cascadeFrom(int level) {
+		for ( ; level < LEVELS; level++ ) {
+			int index = (int) ((currentTick >>> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK);
+
+			Bucket<T> bucket = levels[level][index];
+			Timeout<T> timeout = bucket.head;
+			bucket.head = bucket.tail = null;
+
+			while ( timeout != null ) {
+				Timeout<T> next = timeout.next;
+				timeout.prev = timeout.next = null;
+				timeout.bucket = null;
+				this.place(timeout);
+				timeout = next;
+			}
+
+			if ( index != 0 ) {
+				break;
+			}
+		}
+	}
+
+	private void place(Timeout<T> timeout) {
+		long deadline = timeout.deadlineTick;
+		long delta = deadline - currentTick;
+		Bucket<T> bucket;
+
+		if ( delta < 0 ) {
+			bucket = root[(int) (currentTick & ROOT_MASK)];
+		} else if ( delta < ROOT_SIZE ) {
+			bucket = root[(int) (deadline & ROOT_MASK)];
+		} else {
+			if ( delta > MAX_DELTA ) {
+				// Park in the farthest slot, the timer will be cascaded again
+				deadline = currentTick + MAX_DELTA;
+				delta = MAX_DELTA;
+			}
+
+			int level = (63 - Long.numberOfLeadingZeros(delta) - ROOT_BITS) / LEVEL_BITS;
+			int index = (int) ((deadline >>> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK);
+			bucket = levels[level][index];
+		}
+
+		bucket.link(timeout);
+	}
+
+	/**
+	 * A pending timer
+	 */
+	public static final class Timeout<T> {
+
+		private final long deadlineTick;
+		private final T payload;
+
+		private Bucket<T> bucket;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+
+		private Timeout(long deadlineTick, T payload) {
+			this.deadlineTick = deadlineTick;
+			this.payload = payload;
+		}
+
+		public long deadlineTick() {
+			return deadlineTick;
+		}
+
+		public T payload() {
+			return payload;
+		}
+
+		public boolean isPending() {
+			return bucket != null;
+		}
+	}
+
+	/**
+	 * Generic array of the inferred component type (no raw array creation)
+	 */
+	@SafeVarargs
+	@SuppressWarnings("unchecked")
+	private static <E> E[] newArray(int length, E... empty) {
+		return (E[]) Array.newInstance(empty.getClass().getComponentType(), length);
+	}
+
+	private static final class Bucket<T> {
+
+		private final HierarchicalTimingWheel<T> wheel;
+		/** Slot index in the first level, -1 for upper levels */
+		private final int rootIndex;
+
+		private Timeout<T> head;
+		private Timeout<T> tail;
+
+		Bucket(HierarchicalTimingWheel<T> wheel, int rootIndex) {
+			this.wheel = wheel;
+			this.rootIndex = rootIndex;
+		}
+
+		void link(Timeout<T> timeout) {
+			if ( rootIndex >= 0 ) {
+				if ( head == null ) {
+					wheel.rootOccupancy[rootIndex >>> 6] |= 1L << rootIndex;
+				}
+				wheel.rootCount++;
+			}
+
+			timeout.bucket = this;
+			timeout.prev = tail;
+
+			if ( tail == null ) {
+				head = timeout;
+			} else {
+				tail.next = timeout;
+			}
+
+			tail = timeout;
+		}
+
+		void unlink(Timeout<T> timeout) {
+			if ( timeout.prev == null ) {
+				head = timeout.next;
+			} else {
+				timeout.prev.next = timeout.next;
+			}
+
+			if ( timeout.next == null ) {
+				tail = timeout.prev;
+			} else {
+				timeout.next.prev = timeout.prev;
+			}
+
+			timeout.bucket = null;
+			timeout.prev = timeout.next = null;
+
+			if ( rootIndex >= 0 ) {
+				wheel.rootCount--;
+				if ( head == null ) {
+					wheel.rootOccupancy[rootIndex >>> 6] &= ~(1L << rootIndex);
+				}
+			}
+		}
+	}
+}
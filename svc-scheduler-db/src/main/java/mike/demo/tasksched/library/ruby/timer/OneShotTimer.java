@@ -0,0 +1,20 @@
+package mike.demo.tasksched.library.ruby.timer;
+
+/**
+ * Handle on a one-shot timer registered in a {@link WheelTimer}.
+ */
+public interface OneShotTimer {
+
+	String name();
+	
+	/**
+	 * Cancel the timer (O(1)).
+	 * 
+	 * @return false if the timer has already expired or been cancelled
+	 */
+	boolean cancel();
+	
+	boolean isCancelled();
+	
+	boolean isExpired();
+}
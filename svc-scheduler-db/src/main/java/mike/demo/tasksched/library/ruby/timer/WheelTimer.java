@@ -0,0 +1,218 @@
+package mike.demo.tasksched.library.ruby.timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One-shot timer engine backed by a {@link HierarchicalTimingWheel}.<br/>
+ * <br/>
+ * A single (lazily started) daemon thread advances the wheel and hands the expired actions over
+ * to the given executor, so the timer thread never runs user code. The thread sleeps until the next
+ * slot holding timers; while far timers are pending it also wakes up at each first level wrap around
+ * (every 256 ticks) to cascade them. It does not wake up while the wheel is empty.
+ */
+public class WheelTimer {
+
+	private static final Logger log = LoggerFactory.getLogger(WheelTimer.class);
+
+	private final String name;
+	private final long tickNanos;
+	private final long originNanos = System.nanoTime();
+	private final Executor executor;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition wakeUp = lock.newCondition();
+	private final HierarchicalTimingWheel<Handle> wheel = new HierarchicalTimingWheel<>(0);
+
+	private Thread worker;
+	private volatile boolean stopped = false;
+
+	public WheelTimer(String name, Duration tick, Executor executor) {
+		this.name = name;
+		this.tickNanos = Math.max(1, tick.toNanos());
+		this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+	}
+
+	/**
+	 * Register a one-shot action to be executed after the given delay (O(1)).
+	 */
+	public OneShotTimer schedule(String name, Duration delay, Runnable action) {
+		Objects.requireNonNull(action, "Timer action must not be null");
+
+		long deadlineTick = this.toTick(System.nanoTime() + Math.max(0, delay.toNanos()) + tickNanos - 1);
+
+		lock.lock();
+		try {
+			if ( stopped ) {
+				throw new RejectedExecutionException(String.format("Timer %s is stopped", this.name));
+			}
+
+			long nextEventTick = wheel.nextEventTick();
+
+			Handle handle = new Handle(name, action);
+			handle.timeout = wheel.schedule(deadlineTick, handle);
+
+			this.ensureStarted();
+
+			if ( deadlineTick < nextEventTick ) {
+				wakeUp.signal();
+			}
+
+			return handle;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of pending timers
+	 */
+	public int pending() {
+		lock.lock();
+		try {
+			return wheel.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop the timer thread. Pending timers are discarded.
+	 */
+	public void stop() {
+		lock.lock();
+		try {
+			stopped = true;
+			wakeUp.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private long toTick(long nanoTime) {
+		return (nanoTime - originNanos) / tickNanos;
+	}
+
+	private void ensureStarted() {
+		if ( worker == null ) {
+			worker = new Thread(this::run, this.name);
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	private void run() {
+		List<Handle> expired = new ArrayList<>();
+
+		while ( ! stopped ) {
+			lock.lock();
+			try {
+				long nowTick = this.toTick(System.nanoTime());
+
+				wheel.advanceTo(nowTick, expired::add);
+
+				long nextTick = wheel.nextEventTick();
+
+				if ( expired.isEmpty() && ! stopped ) {
+					if ( nextTick == Long.MAX_VALUE ) {
+						wakeUp.await();
+					} else {
+						long waitNanos = (nextTick * tickNanos + originNanos) - System.nanoTime();
+						if ( waitNanos > 0 ) {
+							wakeUp.awaitNanos(waitNanos);
+						}
+					}
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				stopped = true;
+			} finally {
+				lock.unlock();
+			}
+
+			expired.forEach(this::fire);
+			expired.clear();
+		}
+
+		log.debug("[{}] Timer stopped (discarded: {})", this.name, wheel.size());
+	}
+
+	private void fire(Handle handle) {
+		handle.state = Handle.EXPIRED;
+
+		try {
+			executor.execute(handle.action);
+		} catch (RejectedExecutionException ree) {
+			log.warn("[{}] Timer '{}' action rejected (cause: {})", this.name, handle.name, ree.getMessage());
+		}
+	}
+
+	private boolean cancel(Handle handle) {
+		lock.lock();
+		try {
+			if ( wheel.cancel(handle.timeout) ) {
+				handle.state = Handle.CANCELLED;
+				return true;
+			}
+
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Timer handle
+	 */
+	private class Handle implements OneShotTimer {
+
+		private static final int PENDING = 0;
+		private static final int EXPIRED = 1;
+		private static final int CANCELLED = 2;
+
+		private final String name;
+		private final Runnable action;
+		private HierarchicalTimingWheel.Timeout<Handle> timeout;
+		private volatile int state = PENDING;
+
+		Handle(String name, Runnable action) {
+			this.name = name;
+			this.action = action;
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public boolean cancel() {
+			return WheelTimer.this.cancel(this);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("OneShotTimer [name=%s, state=%s]", name,
+					state == PENDING ? "PENDING" : state == EXPIRED ? "EXPIRED" : "CANCELLED");
+		}
+	}
+}
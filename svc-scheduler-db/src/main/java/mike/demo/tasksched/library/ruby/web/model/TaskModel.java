@@ -1,10 +1,23 @@
 package mike.demo.tasksched.library.ruby.web.model;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 
+import mike.demo.tasksched.library.ruby.TaskPriority;
+import mike.demo.tasksched.library.ruby.schedule.BusinessCalendars;
+import mike.demo.tasksched.library.ruby.schedule.Schedule;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
 public class TaskModel {
 
+	public enum ScheduleType { CRON, FIXED_RATE, FIXED_DELAY }
+
 	@NotBlank
 	@Size(min = 3, max = 32)
 	private String group;
@@ -17,14 +30,29 @@ public class TaskModel {
 	@Size(min = 10, max = 128)
 	private String description;
 
-	@NotBlank
+	@NotNull
+	private ScheduleType scheduleType = ScheduleType.CRON;
+
+	/** Required by the {@link ScheduleType#CRON} schedules */
 	private String cronExpression;
 
+	/** Required by the {@link ScheduleType#FIXED_RATE} and {@link ScheduleType#FIXED_DELAY} schedules */
+	@Positive
+	private Long intervalInMillis;
+
+	/** Optional: name of the business calendar excluding days (see {@link BusinessCalendars}) */
+	private String calendar;
+
 	@NotBlank
 	private String workerClassName;
 
 	private boolean enabled = true;
 
+	@NotNull
+	private TaskPriority priority = TaskPriority.NORMAL;
+
+	private List<String> rateLimiters = new ArrayList<>();
+
 	public String getGroup() {
 		return group;
 	}
@@ -57,6 +85,58 @@ public class TaskModel {
 		this.cronExpression = cronExpression;
 	}
 
+	public ScheduleType getScheduleType() {
+		return scheduleType;
+	}
+
+	public void setScheduleType(ScheduleType scheduleType) {
+		this.scheduleType = scheduleType;
+	}
+
+	public Long getIntervalInMillis() {
+		return intervalInMillis;
+	}
+
+	public void setIntervalInMillis(Long intervalInMillis) {
+		this.intervalInMillis = intervalInMillis;
+	}
+
+	public String getCalendar() {
+		return calendar;
+	}
+
+	public void setCalendar(String calendar) {
+		this.calendar = calendar;
+	}
+
+	/**
+	 * @return the schedule of the task according to its type (restricted to the business days of the calendar if any)
+	 * @throws IllegalArgumentException if the cron expression or the interval is missing or the calendar is unknown
+	 */
+	public Schedule toSchedule() {
+		Schedule schedule = this.typedSchedule();
+
+		return calendar == null || calendar.isBlank() ? schedule : ScheduleFactory.withCalendar(schedule, calendar);
+	}
+
+	private Schedule typedSchedule() {
+		if ( scheduleType == ScheduleType.CRON ) {
+			if ( cronExpression == null || cronExpression.isBlank() ) {
+				throw new IllegalArgumentException("Cron expression is required by the schedule type: " + scheduleType);
+			}
+
+			return ScheduleFactory.withCronExpression(cronExpression);
+		}
+
+		if ( intervalInMillis == null ) {
+			throw new IllegalArgumentException("Interval is required by the schedule type: " + scheduleType);
+		}
+
+		Duration interval = Duration.ofMillis(intervalInMillis);
+
+		return scheduleType == ScheduleType.FIXED_RATE ? ScheduleFactory.atFixedRate(interval) : ScheduleFactory.withFixedDelay(interval);
+	}
+
 	public String getWorkerClassName() {
 		return workerClassName;
 	}
@@ -73,6 +153,22 @@ public class TaskModel {
 		this.enabled = enabled;
 	}
 
+	public TaskPriority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(TaskPriority priority) {
+		this.priority = priority;
+	}
+
+	public List<String> getRateLimiters() {
+		return rateLimiters;
+	}
+
+	public void setRateLimiters(List<String> rateLimiters) {
+		this.rateLimiters = rateLimiters;
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder("TaskModel [");
@@ -81,9 +177,14 @@ public class TaskModel {
 		builder.append("group=").append(group)
 				.append(", name=").append(name)
 				.append(", description=").append(description)
+				.append(", scheduleType=").append(scheduleType)
 				.append(", cronExpression=").append(cronExpression)
+				.append(", intervalInMillis=").append(intervalInMillis)
+				.append(", calendar=").append(calendar)
 				.append(", workerClassName=").append(workerClassName)
-				.append(", enabled=").append(enabled);
+				.append(", enabled=").append(enabled)
+				.append(", priority=").append(priority)
+				.append(", rateLimiters=").append(rateLimiters);
 		// @formatter:on
 
 		return builder.append("]").toString();
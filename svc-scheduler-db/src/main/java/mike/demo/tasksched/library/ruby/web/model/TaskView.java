@@ -1,16 +1,24 @@
 package mike.demo.tasksched.library.ruby.web.model;
 
 import java.time.ZonedDateTime;
+import java.util.List;
 
 import mike.demo.tasksched.library.ruby.Task;
+import mike.demo.tasksched.library.ruby.TaskPriority;
+import mike.demo.tasksched.library.ruby.TaskState;
 
 public class TaskView {
 
+	private final String group;
 	private final String name;
 	private final String cronExpresion;
 	private final String cronDescription;
 	private final boolean enabled;
 	private final boolean executing;
+	private final TaskState state;
+	private final TaskPriority priority;
+	private final List<String> rateLimiters;
+	private final long spreadOffsetMillis;
 	private final ZonedDateTime nextExecutionDateTime;
 	private final ZonedDateTime lastExecutionEndDateTime;
 	private final String lastExecutionUuid;
@@ -19,11 +27,16 @@ public class TaskView {
 	private final String updatedByUser;
 	
 	public TaskView(Task task) {
+		this.group = task.getGroup();
 		this.name = task.getName();
 		this.cronExpresion = task.getSchedule().cronExpression();
 		this.cronDescription = task.getSchedule().description();
 		this.enabled = task.isEnabled();
 		this.executing = task.isExecuting();
+		this.state = task.getState();
+		this.priority = task.getPriority();
+		this.rateLimiters = task.getRateLimiters();
+		this.spreadOffsetMillis = task.getSpreadOffset().toMillis();
 		this.nextExecutionDateTime = task.getNextExecutionDateTime();
 		this.lastExecutionEndDateTime = task.getLastExecutionEndDateTime();
 		this.lastExecutionUuid = task.getLastExecutionUuid();
@@ -32,6 +45,10 @@ public class TaskView {
 		this.updatedByUser = task.getUpdatedByUser();
 	}
 	
+	public String getGroup() {
+		return group;
+	}
+	
 	public String getName() {
 		return name;
 	}
@@ -52,6 +69,22 @@ public class TaskView {
 		return executing;
 	}
 
+	public TaskState getState() {
+		return state;
+	}
+
+	public TaskPriority getPriority() {
+		return priority;
+	}
+
+	public List<String> getRateLimiters() {
+		return rateLimiters;
+	}
+
+	public long getSpreadOffsetMillis() {
+		return spreadOffsetMillis;
+	}
+
 	public ZonedDateTime getNextExecutionDateTime() {
 		return nextExecutionDateTime;
 	}
@@ -81,10 +114,15 @@ public class TaskView {
 		StringBuilder builder = new StringBuilder("TaskView [");
 		
 		// @formatter:off
-		builder.append("name=").append(name)
+		builder.append("group=").append(group)
+				.append(", name=").append(name)
 				.append(", cronExpresion=").append(cronExpresion)
 				.append(", enabled=").append(enabled)
 				.append(", executing=").append(executing)
+				.append(", state=").append(state)
+				.append(", priority=").append(priority)
+				.append(", rateLimiters=").append(rateLimiters)
+				.append(", spreadOffsetMillis=").append(spreadOffsetMillis)
 				.append(", nextExecutionDateTime=").append(nextExecutionDateTime)
 				.append(", lastExecutionEndDateTime=").append(lastExecutionEndDateTime)
 				.append(", lastExecutionUuid=").append(lastExecutionUuid)
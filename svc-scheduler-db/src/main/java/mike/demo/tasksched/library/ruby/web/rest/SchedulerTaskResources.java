@@ -2,6 +2,8 @@ package mike.demo.tasksched.library.ruby.web.rest;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -10,9 +12,12 @@ import javax.validation.constraints.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -21,7 +26,10 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import mike.bootstrap.springboot.openapi.problem.ProblemResponsesReference;
+import mike.demo.tasksched.library.ruby.FireTime;
+import mike.demo.tasksched.library.ruby.LoadHistogram;
 import mike.demo.tasksched.library.ruby.RubyScheduler;
+import mike.demo.tasksched.library.ruby.TaskManagerService;
 import mike.demo.tasksched.library.ruby.web.model.TaskModel;
 import mike.demo.tasksched.library.ruby.web.model.TaskView;
 
@@ -31,6 +39,9 @@ import mike.demo.tasksched.library.ruby.web.model.TaskView;
 class SchedulerTaskResources {
 
 	private static final Logger log = LoggerFactory.getLogger(SchedulerTaskResources.class);
+	
+	// Forecast horizon: 1 week
+	private static final int MAX_HORIZON_IN_MINUTES = 7 * 24 * 60;
 			
 	private final RubyScheduler scheduler;
 	
@@ -52,6 +63,46 @@ class SchedulerTaskResources {
 		return this.scheduler.taskService().findAllTask().map(TaskView::new).collect(Collectors.toList());
 	}
 	
+	@Operation(
+			summary = "Forecast load", 
+			description = "Number of executions of the enabled tasks per minute over the horizon (capacity planning).")
+	@ApiResponse(responseCode = "200", description = "Executions per minute", 
+			content = @Content(
+					mediaType = APPLICATION_JSON_VALUE, 
+					schema = @Schema(implementation = LoadHistogram.class)))
+	@ApiResponse(responseCode = "400", description = "Horizon out of range (1 minute to 1 week)")
+	@ApiResponse(responseCode = "500", ref = ProblemResponsesReference.INTERNAL_SERVER_ERROR_500)
+	@GetMapping("/forecast/load")
+	public LoadHistogram forecastLoad(@RequestParam(defaultValue = "60") int horizonInMinutes) {
+		log.info("Task::request: forecast load over {} minute(s) ...", horizonInMinutes);
+		checkHorizon(horizonInMinutes);
+		
+		TaskManagerService taskService = this.scheduler.taskService();
+		return taskService.forecastLoad(taskService.currentDateTime(), Duration.ofMinutes(horizonInMinutes), Duration.ofMinutes(1));
+	}
+	
+	@Operation(
+			summary = "Forecast executions", 
+			description = "Next executions of the enabled tasks over the horizon in chronological order (agenda).")
+	@ApiResponse(responseCode = "200", description = "Executions", 
+			content = @Content(
+					mediaType = APPLICATION_JSON_VALUE, 
+					array = @ArraySchema(schema = @Schema(implementation = FireTime.class))))
+	@ApiResponse(responseCode = "400", description = "Horizon out of range (1 minute to 1 week) or negative limit")
+	@ApiResponse(responseCode = "500", ref = ProblemResponsesReference.INTERNAL_SERVER_ERROR_500)
+	@GetMapping("/forecast")
+	public List<FireTime> forecast(@RequestParam(defaultValue = "60") int horizonInMinutes, @RequestParam(defaultValue = "100") int limit) {
+		log.info("Task::request: forecast executions over {} minute(s) (limit: {}) ...", horizonInMinutes, limit);
+		checkHorizon(horizonInMinutes);
+		if ( limit < 0 ) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must not be negative: " + limit);
+		}
+		
+		TaskManagerService taskService = this.scheduler.taskService();
+		ZonedDateTime now = taskService.currentDateTime();
+		return taskService.forecast(now, now.plusMinutes(horizonInMinutes)).limit(limit).collect(Collectors.toList());
+	}
+	
 	@Operation(
 			summary = "Create new task", 
 			description = "Create a new task and returns the created task details.<br>")
@@ -64,4 +115,11 @@ class SchedulerTaskResources {
 	public TaskView create(@NotNull @Valid TaskModel taskModel) {
 		return null;
 	}
+	
+	private static void checkHorizon(int horizonInMinutes) {
+		if ( horizonInMinutes <= 0 || horizonInMinutes > MAX_HORIZON_IN_MINUTES ) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+					String.format("Horizon must be between 1 and %d minutes: %d", MAX_HORIZON_IN_MINUTES, horizonInMinutes));
+		}
+	}
 }
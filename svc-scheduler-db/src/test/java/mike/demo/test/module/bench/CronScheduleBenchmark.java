@@ -0,0 +1,76 @@
+package mike.demo.test.module.bench;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.cronutils.model.CronType;
+import com.cronutils.model.definition.CronDefinitionBuilder;
+import com.cronutils.model.time.ExecutionTime;
+import com.cronutils.parser.CronParser;
+
+import mike.demo.tasksched.library.ruby.schedule.Schedule;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
+/**
+ * Next execution time of a cron expression: compiled bitsets (the cron schedule) versus cron-utils
+ * (the previous evaluation). Run with <code>-prof gc</code> to compare the allocation rates.<br/>
+ * <br/>
+ * Run from the module directory:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=mike.demo.test.module.bench.CronScheduleBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CronScheduleBenchmark {
+
+	@Param({ "0 0 12 ? * MON-FRI *", "0 0/5 14,18 * * ?", "0 15 10 ? * 6L", "0 0 0 29 2 ?" })
+	private String cronExpression;
+
+	private Schedule compiled;
+	private ExecutionTime cronUtils;
+	private ZonedDateTime current;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.compiled = ScheduleFactory.withCronExpression(cronExpression);
+		this.cronUtils = ExecutionTime.forCron(
+				new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.QUARTZ)).parse(cronExpression));
+		this.current = ZonedDateTime.of(2021, 3, 19, 7, 20, 0, 0, ZoneId.of("Europe/Paris"));
+	}
+
+	@Benchmark
+	public ZonedDateTime compiled() {
+		return compiled.nextExecutionDateTime(current);
+	}
+
+	@Benchmark
+	public ZonedDateTime cronUtils() {
+		return cronUtils.timeToNextExecution(current).map(current::plus).orElse(Schedule.WILL_NOT_BE_EXECUTED_AGAIN);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(CronScheduleBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,55 @@
+package mike.demo.test.module.bench;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import mike.demo.tasksched.library.ruby.schedule.Schedule;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
+/**
+ * Cost of a cron schedule lookup per registered task: a handful of expressions shared by the tasks
+ * (cache hits) versus one expression per task of the day (cache misses, i.e. a parse per task).
+ * Run with <code>-prof gc</code> to compare the allocations per registration.<br/>
+ * <br/>
+ * Run from the module directory:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=mike.demo.test.module.bench.ScheduleFactoryBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ScheduleFactoryBenchmark {
+
+	@Param({ "5", "86400" })
+	private int distinctExpressions;
+
+	private int counter = 0;
+
+	@Benchmark
+	public Schedule atFixedTimeMondayToFriday() {
+		int secondOfDay = (counter++ % distinctExpressions) * (86_400 / distinctExpressions);
+		return ScheduleFactory.atFixedTimeMondayToFriday(LocalTime.ofSecondOfDay(secondOfDay));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ScheduleFactoryBenchmark.class.getSimpleName()).build()).run();
+	}
+}
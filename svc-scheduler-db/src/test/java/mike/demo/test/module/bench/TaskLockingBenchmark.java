@@ -0,0 +1,118 @@
+package mike.demo.test.module.bench;
+
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import mike.demo.tasksched.library.ruby.RubyScheduler;
+import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
+import mike.demo.tasksched.library.ruby.Task;
+import mike.demo.tasksched.library.ruby.TaskManagerService;
+import mike.demo.tasksched.library.ruby.TaskWorker;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
+/**
+ * Throughput of concurrent task mutations (disable / enable random tasks) with the striped task locks
+ * versus a single global monitor (the task service synchronized as a whole, i.e. the previous locking).<br/>
+ * <br/>
+ * Run from the module directory:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=mike.demo.test.module.bench.TaskLockingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class TaskLockingBenchmark {
+
+	private static final int TASKS = 10_000;
+
+	@Param({ "STRIPED", "GLOBAL" })
+	private String locking;
+
+	private RubyScheduler scheduler;
+	private TaskManagerService taskService;
+	private boolean global;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.scheduler = new RubySchedulerBuilder("Bench").build();
+		this.taskService = scheduler.taskService();
+		this.global = "GLOBAL".equals(locking);
+
+		for ( int i = 0; i < TASKS; i++ ) {
+			taskService.scheduleTask(new NoopWorker("Task#" + i), ScheduleFactory.atFixedTimeEveryDay(LocalTime.of(i % 24, i % 60)), true);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.scheduler.shutdown();
+	}
+
+	/**
+	 * Disable then enable a random task (the next execution is computed again)
+	 */
+	@Benchmark
+	public Task toggleTask() {
+		String name = "Task#" + ThreadLocalRandom.current().nextInt(TASKS);
+
+		this.enableTask(name, false);
+		return this.enableTask(name, true);
+	}
+
+	private Task enableTask(String name, boolean enabled) {
+		if ( global ) {
+			synchronized (taskService) {
+				return taskService.enableTask(name, enabled);
+			}
+		}
+
+		return taskService.enableTask(name, enabled);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TaskLockingBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private static class NoopWorker implements TaskWorker {
+
+		private final String name;
+
+		NoopWorker(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void invoke() {
+			// Never executed (the scheduler is not started)
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+	}
+}
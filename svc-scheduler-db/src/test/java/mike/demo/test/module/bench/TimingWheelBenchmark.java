@@ -0,0 +1,123 @@
+package mike.demo.test.module.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import mike.demo.tasksched.library.ruby.timer.HierarchicalTimingWheel;
+import mike.demo.tasksched.library.ruby.timer.HierarchicalTimingWheel.Timeout;
+
+/**
+ * Insert / cancel / expire throughput of the timing wheel with 1M, 10M and 50M pending timers.<br/>
+ * <br/>
+ * Run from the module directory (the 50M case needs a large heap, see the fork options):
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=mike.demo.test.module.bench.TimingWheelBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms12g", "-Xmx12g", "-XX:+UseParallelGC" })
+public class TimingWheelBenchmark {
+
+	/** Timers are spread over ~4.6 hours of 1 ms ticks */
+	private static final long HORIZON_TICKS = 1L << 24;
+
+	private static final Object PAYLOAD = new Object();
+
+	@Param({ "1000000", "10000000", "50000000" })
+	private int pendingTimers;
+
+	private HierarchicalTimingWheel<Object> wheel;
+	private List<Timeout<Object>> timeouts;
+	private SplittableRandom random;
+	private final List<Object> expired = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.random = new SplittableRandom(42);
+		this.wheel = new HierarchicalTimingWheel<>(0);
+		this.timeouts = new ArrayList<>(pendingTimers);
+
+		for ( int i = 0; i < pendingTimers; i++ ) {
+			timeouts.add(wheel.schedule(random.nextLong(HORIZON_TICKS), PAYLOAD));
+		}
+	}
+
+	/**
+	 * Insert then cancel a new timer (pending population is unchanged)
+	 */
+	@Benchmark
+	public boolean insertAndCancel() {
+		Timeout<Object> timeout = wheel.schedule(wheel.currentTick() + random.nextLong(HORIZON_TICKS), PAYLOAD);
+		return wheel.cancel(timeout);
+	}
+
+	/**
+	 * Cancel a random pending timer and replace it by a new one
+	 */
+	@Benchmark
+	public Timeout<Object> cancelAndReschedule() {
+		int index = random.nextInt(pendingTimers);
+
+		wheel.cancel(timeouts.get(index));
+		timeouts.set(index, wheel.schedule(wheel.currentTick() + random.nextLong(HORIZON_TICKS), PAYLOAD));
+
+		return timeouts.get(index);
+	}
+
+	/**
+	 * Advance the wheel by one tick (expired timers are re-armed one horizon later)
+	 */
+	@Benchmark
+	public int expire(ExpiredCounter counter) {
+		long tick = wheel.currentTick();
+		int count = wheel.advanceTo(tick, expired::add);
+
+		for ( int i = 0; i < expired.size(); i++ ) {
+			wheel.schedule(tick + HORIZON_TICKS, PAYLOAD);
+		}
+
+		expired.clear();
+		counter.expiredTimers += count;
+
+		return count;
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class ExpiredCounter {
+
+		public long expiredTimers;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			expiredTimers = 0;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TimingWheelBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,44 @@
+package mike.demo.test.module.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mike.demo.tasksched.library.ruby.AsyncTaskWorker;
+import mike.demo.tasksched.library.ruby.TaskStatus;
+
+class AsyncWorker implements AsyncTaskWorker {
+
+	private final String name;
+	private final TaskStatus status;
+	private final boolean failing;
+	private final AtomicInteger waiting;
+	private final AtomicInteger maxWaiting;
+	
+	AsyncWorker(String name, TaskStatus status, boolean failing, AtomicInteger waiting, AtomicInteger maxWaiting) {
+		this.name = name;
+		this.status = status;
+		this.failing = failing;
+		this.waiting = waiting;
+		this.maxWaiting = maxWaiting;
+	}
+	
+	@Override
+	public CompletionStage<TaskStatus> invokeAsync() {
+		maxWaiting.accumulateAndGet(waiting.incrementAndGet(), Math::max);
+		
+		return CompletableFuture.supplyAsync( () -> {
+			waiting.decrementAndGet();
+			if ( failing ) {
+				throw new IllegalStateException(name + " failed");
+			}
+			return status;
+		}, CompletableFuture.delayedExecutor(2, TimeUnit.SECONDS));
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,208 @@
+package mike.demo.test.module.core;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.bootstrap.utilities.helpers.Timer;
+import mike.demo.tasksched.library.ruby.RubyScheduler;
+import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
+import mike.demo.tasksched.library.ruby.TaskHistory;
+import mike.demo.tasksched.library.ruby.cluster.ConsistentHashRing;
+import mike.demo.tasksched.library.ruby.cluster.CoordinationStore;
+import mike.demo.tasksched.library.ruby.cluster.CoordinationStoreFactory;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+
+@DisplayName("Scheduler::Cluster")
+class ClusterTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ClusterTest.class);
+
+	private static final List<String> TASKS = IntStream.range(0, 40).mapToObj( i -> "Task#" + i ).collect(Collectors.toList());
+
+	@Test
+	void should_spread_keys_evenly_and_move_few_keys_when_node_leaves() {
+
+		log.debug("***** Spread Keys Evenly And Move Few Keys When Node Leaves *****");
+
+		List<String> keys = IntStream.range(0, 30_000).mapToObj( i -> "Task#" + i ).collect(Collectors.toList());
+
+		ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"));
+		Map<String, String> owners = keys.stream().collect(Collectors.toMap(Function.identity(), ring::owner));
+
+		Map<String, Long> keysPerNode = owners.values().stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+		assertThat(keysPerNode.values()).allSatisfy( count -> assertThat(count).isBetween(7_000L, 13_000L) );
+
+		// Only the keys of the leaving node are moved
+		ConsistentHashRing shrunk = new ConsistentHashRing(List.of("node-a", "node-c"));
+		assertThat(keys).allSatisfy( key -> {
+			if ( ! owners.get(key).equals("node-b") ) {
+				assertThat(shrunk.owner(key)).isEqualTo(owners.get(key));
+			}
+		});
+
+		// Same owners whatever the order of the nodes
+		assertThat(new ConsistentHashRing(List.of("node-c", "node-b", "node-a")).owner("Task#42")).isEqualTo(ring.owner("Task#42"));
+	}
+
+	@Test
+	void should_expire_membership_when_node_stops_renewing_it(@TempDir Path dir) {
+
+		log.debug("***** Expire Membership When Node Stops Renewing It *****");
+
+		CoordinationStore store = CoordinationStoreFactory.newFileCoordinationStore(dir.resolve("members"));
+		Instant now = Instant.now();
+
+		assertThat(store.heartbeat("node-a", now, Duration.ofSeconds(3))).containsExactly("node-a");
+		assertThat(store.heartbeat("node-b", now.plusSeconds(1), Duration.ofSeconds(3))).containsExactlyInAnyOrder("node-a", "node-b");
+		assertThat(store.liveNodes(now.plusSeconds(3))).containsExactly("node-b");
+
+		store.leave("node-b");
+		assertThat(store.liveNodes(now.plusSeconds(1))).containsExactly("node-a");
+	}
+
+	@Test
+	void should_run_each_task_on_one_node_and_take_over_tasks_when_node_leaves(@TempDir Path dir) throws IOException {
+
+		log.debug("***** Run Each Task On One Node And Take Over Tasks When Node Leaves *****");
+
+		Path members = dir.resolve("members");
+
+		RubyScheduler nodeA = newNode("node-a", members);
+		RubyScheduler nodeB = newNode("node-b", members);
+
+		nodeA.start();
+		nodeB.start();
+
+		TestUtils.waitFor(nodeA, () -> nodeA.state().getCluster().getNodes().size() == 2, 5);
+
+		assertThat(Files.readAllLines(members)).hasSize(2);
+		assertThat(nodeB.state().getCluster().getNodes()).containsExactly("node-a", "node-b");
+
+		// Every agent registers every task
+		List.of(nodeA, nodeB).forEach( node -> TASKS.forEach( name -> 
+			node.taskService().scheduleTask(new FooWorker(name, 0), ScheduleFactory.withPeriod(Duration.ofMillis(500)), true)
+		));
+
+		TestUtils.waitFor(nodeA, () -> executedTasks(nodeA).size() + executedTasks(nodeB).size() >= TASKS.size(), 5);
+
+		Set<String> executedOnA = executedTasks(nodeA);
+		Set<String> executedOnB = executedTasks(nodeB);
+
+		// Partitioned: each task runs on exactly one node
+		assertThat(executedOnA).isNotEmpty().doesNotContainAnyElementsOf(executedOnB);
+		assertThat(executedOnB).isNotEmpty();
+		assertThat(executedOnA.size() + executedOnB.size()).isEqualTo(TASKS.size());
+
+		// Node B leaves: node A takes over all the tasks
+		nodeB.shutdown();
+
+		TestUtils.waitFor(nodeA, () -> executedTasks(nodeA).size() == TASKS.size(), 5);
+
+		assertThat(executedTasks(nodeA)).containsExactlyInAnyOrderElementsOf(TASKS);
+		assertThat(nodeA.state().getCluster()).satisfies( c -> {
+			assertThat(c.getNodes()).containsExactly("node-a");
+			assertThat(c.getRebalances()).isGreaterThanOrEqualTo(2);
+			assertThat(c.getFailedHeartbeats()).isZero();
+		});
+
+		nodeA.shutdown();
+
+		assertThat(Files.readAllLines(members)).isEmpty();
+	}
+
+	@Test
+	void should_stop_running_tasks_when_membership_is_not_renewed_in_time(@TempDir Path dir) {
+
+		log.debug("***** Stop Running Tasks When Membership Is Not Renewed In Time *****");
+
+		CoordinationStore files = CoordinationStoreFactory.newFileCoordinationStore(dir.resolve("members"));
+		AtomicBoolean unavailable = new AtomicBoolean(false);
+
+		CoordinationStore store = new CoordinationStore() {
+			@Override
+			public Set<String> heartbeat(String nodeId, Instant now, Duration ttl) {
+				if ( unavailable.get() ) {
+					throw new IllegalStateException("Store unavailable");
+				}
+				return files.heartbeat(nodeId, now, ttl);
+			}
+
+			@Override
+			public Set<String> liveNodes(Instant now) {
+				return files.liveNodes(now);
+			}
+
+			@Override
+			public void leave(String nodeId) {
+				files.leave(nodeId);
+			}
+		};
+
+		RubyScheduler node = new RubySchedulerBuilder("node-a")
+				.withCluster("node-a", store)
+				.withClusterHeartbeat(Duration.ofMillis(100))
+				.build();
+
+		node.start();
+
+		node.taskService().scheduleTask(new FooWorker("Task#0", 0), ScheduleFactory.withPeriod(Duration.ofMillis(50)), true);
+
+		TestUtils.waitFor(node, () -> executions(node) > 0, 5);
+
+		// Renewals fail: the node stops launching its tasks once its lease (2 heartbeats) is over
+		unavailable.set(true);
+
+		TestUtils.waitFor(node, () -> node.state().getCluster().isExpired(), 5);
+
+		long executionsWhenExpired = executions(node);
+		Timer.pause(1);
+
+		assertThat(executions(node)).isLessThanOrEqualTo(executionsWhenExpired + 1);
+		assertThat(node.state().getCluster().getFailedHeartbeats()).isPositive();
+
+		// Renewed: the tasks run again after the hand-over
+		unavailable.set(false);
+
+		TestUtils.waitFor(node, () -> executions(node) > executionsWhenExpired + 1, 5);
+
+		assertThat(node.state().getCluster().isExpired()).isFalse();
+
+		node.shutdown();
+	}
+
+	private static long executions(RubyScheduler node) {
+		return node.taskService().findAllHistory().filter( h -> h.getStatus().isSuccess() ).count();
+	}
+
+	private static RubyScheduler newNode(String nodeId, Path members) {
+		return new RubySchedulerBuilder(nodeId)
+				.withCluster(nodeId, CoordinationStoreFactory.newFileCoordinationStore(members))
+				.withClusterHeartbeat(Duration.ofMillis(100))
+				.build();
+	}
+
+	private static Set<String> executedTasks(RubyScheduler node) {
+		return node.taskService().findAllHistory()
+				.filter( h -> h.getStatus().isSuccess() )
+				.map(TaskHistory::getName)
+				.collect(Collectors.toSet());
+	}
+}
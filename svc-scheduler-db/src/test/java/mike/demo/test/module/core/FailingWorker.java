@@ -0,0 +1,33 @@
+package mike.demo.test.module.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import mike.demo.tasksched.library.ruby.TaskWorker;
+
+class FailingWorker implements TaskWorker {
+
+	private final String name;
+	private final AtomicInteger invocations;
+	private final int failures;
+	private final Function<String, RuntimeException> exception;
+	
+	FailingWorker(String name, AtomicInteger invocations, int failures, Function<String, RuntimeException> exception) {
+		this.name = name;
+		this.invocations = invocations;
+		this.failures = failures;
+		this.exception = exception;
+	}
+	
+	@Override
+	public void invoke() {
+		if ( invocations.incrementAndGet() <= failures ) {
+			throw exception.apply(name + " failed (attempt " + invocations.get() + ")");
+		}
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+}
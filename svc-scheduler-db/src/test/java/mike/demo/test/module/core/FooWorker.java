@@ -0,0 +1,35 @@
+package mike.demo.test.module.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.bootstrap.utilities.helpers.Timer;
+import mike.demo.tasksched.library.ruby.TaskWorker;
+
+class FooWorker implements TaskWorker {
+
+	private static final Logger log = LoggerFactory.getLogger(FooWorker.class);
+	
+	private final String name;
+	private final int waitInSeconds;
+	
+	FooWorker(String name) {
+		this(name, 1);
+	}
+	
+	FooWorker(String name, int waitInSeconds) {
+		this.name = name;
+		this.waitInSeconds = waitInSeconds;
+	}
+	
+	@Override
+	public void invoke() {
+		log.debug("[Task::{}] wait {} second(s)", this.name, this.waitInSeconds);
+		Timer.pause(waitInSeconds);
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+}
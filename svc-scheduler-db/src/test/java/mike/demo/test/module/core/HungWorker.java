@@ -0,0 +1,42 @@
+package mike.demo.test.module.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mike.demo.tasksched.library.ruby.CancellationToken;
+import mike.demo.tasksched.library.ruby.TaskWorker;
+
+class HungWorker implements TaskWorker {
+
+	private final String name;
+	private final AtomicInteger interrupted;
+	private final AtomicInteger cancelled;
+	
+	HungWorker(String name, AtomicInteger interrupted, AtomicInteger cancelled) {
+		this.name = name;
+		this.interrupted = interrupted;
+		this.cancelled = cancelled;
+	}
+	
+	@Override
+	public void invoke() {
+		this.invoke(CancellationToken.NONE);
+	}
+	
+	@Override
+	public void invoke(CancellationToken token) {
+		try {
+			Thread.sleep(3_600_000);
+		} catch (InterruptedException ie) {
+			interrupted.incrementAndGet();
+			if ( token.isCancelled() ) {
+				cancelled.incrementAndGet();
+			}
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+}
@@ -8,8 +8,14 @@ import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -17,14 +23,30 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import mike.bootstrap.utilities.exceptions.ResourceAlreadyExistException;
+import mike.bootstrap.utilities.exceptions.ResourceNotFoundException;
 import mike.bootstrap.utilities.helpers.Dates;
 import mike.bootstrap.utilities.helpers.Timer;
+import mike.demo.tasksched.library.ruby.FireTime;
+import mike.demo.tasksched.library.ruby.GroupState;
+import mike.demo.tasksched.library.ruby.LoadHistogram;
+import mike.demo.tasksched.library.ruby.OverflowPolicy;
+import mike.demo.tasksched.library.ruby.RetryPolicy;
 import mike.demo.tasksched.library.ruby.RubyScheduler;
 import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
+import mike.demo.tasksched.library.ruby.SchedulerState;
+import mike.demo.tasksched.library.ruby.SchedulerStatus;
 import mike.demo.tasksched.library.ruby.Task;
+import mike.demo.tasksched.library.ruby.TaskBatchResult;
 import mike.demo.tasksched.library.ruby.TaskHistory;
+import mike.demo.tasksched.library.ruby.TaskRegistration;
+import mike.demo.tasksched.library.ruby.TaskState;
 import mike.demo.tasksched.library.ruby.TaskStatus;
 import mike.demo.tasksched.library.ruby.TaskWorker;
+import mike.demo.tasksched.library.ruby.Workflow;
+import mike.demo.tasksched.library.ruby.WorkflowResult;
+import mike.demo.tasksched.library.ruby.repository.TaskRepository;
+import mike.demo.tasksched.library.ruby.repository.TaskRepositoryDefaultImpl;
+import mike.demo.tasksched.library.ruby.repository.TaskRepositoryFactory;
 import mike.demo.tasksched.library.ruby.schedule.Schedule;
 import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
 import mike.demo.tasksched.library.ruby.time.TimeProvider;
@@ -132,33 +154,855 @@ class ScheduleTaskTest {
 		
 		scheduler.shutdown();
 	}
-}
 
-class FooWorker implements TaskWorker {
+	@Test
+	void should_invoke_task_without_waiting_for_the_launcher_scan_interval() {
 
-	private static final Logger log = LoggerFactory.getLogger(FooWorker.class);
-	
-	private final String name;
-	private final int waitInSeconds;
-	
-	FooWorker(String name) {
-		this(name, 1);
+		log.debug("***** Invoke Task Without Waiting For the Launcher Scan Interval *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().withLauncherScanIntervalInSeconds(300).build();
+		scheduler.start();
+
+		// Scheduler is idle: the launcher must be woken up by the new task
+		Timer.pause(1);
+
+		TaskWorker fooWorker = new FooWorker("Foo", 0);
+		Schedule fooSchedule = ScheduleFactory.atFixedTimeEveryDay(LocalTime.now().plusSeconds(2));
+
+		Task taskToRun = scheduler.taskService().scheduleTask(fooWorker, fooSchedule, true);
+		ZonedDateTime scheduledAt = taskToRun.getNextExecutionDateTime();
+
+		TestUtils.waitFor(taskToRun, () -> taskToRun.getExecutionCount() > 0, 10);
+
+		assertThat(taskToRun.getExecutionCount()).isEqualTo(1);
+		assertThat(taskToRun.getLastExecutionEndDateTime()).isAfterOrEqualTo(scheduledAt);
+		assertThat(Duration.between(scheduledAt, taskToRun.getLastExecutionEndDateTime())).isLessThan(Duration.ofSeconds(1));
+
+		scheduler.shutdown();
 	}
-	
-	FooWorker(String name, int waitInSeconds) {
-		this.name = name;
-		this.waitInSeconds = waitInSeconds;
+
+	@Test
+	void should_fire_sub_second_schedule_within_a_few_milliseconds() {
+
+		log.debug("***** Fire Sub-Second Schedule Within a Few Milliseconds *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		scheduler.start();
+
+		TaskWorker fooWorker = new FooWorker("Foo", 0);
+		Task taskToRun = scheduler.taskService().scheduleTask(fooWorker, ScheduleFactory.withPeriod(Duration.ofMillis(100)), true);
+
+		TestUtils.waitFor(taskToRun, () -> taskToRun.getExecutionCount() >= 10, 10);
+
+		SchedulerState state = scheduler.state();
+
+		log.debug("Fire time error: {}", state);
+
+		assertThat(taskToRun.getExecutionCount()).isGreaterThanOrEqualTo(10);
+		assertThat(state.getFiredTasks()).isGreaterThanOrEqualTo(10);
+		assertThat(state.getFireTimeErrorP50Micros()).isLessThan(Duration.ofMillis(20).toNanos() / 1_000);
+
+		scheduler.shutdown();
 	}
-	
-	@Override
-	public void invoke() {
-		log.debug("[Task::{}] wait {} second(s)", this.name, this.waitInSeconds);
-		Timer.pause(waitInSeconds);
+
+	@Test
+	void should_defer_executions_when_execution_queue_is_full() {
+
+		log.debug("***** Defer Executions When Execution Queue is Full *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMaxThreads(5)
+				.withQueueCapacity(2)
+				.withOverflowPolicy(OverflowPolicy.DEFER)
+				.withOverflowDeferDelay(Duration.ofSeconds(10))
+				.build();
+
+		scheduler.start();
+
+		// 10 tasks firing at the same time: 5 running, 2 queued, 3 deferred
+		IntStream.range(0, 10).forEach( i ->
+			scheduler.taskService().scheduleTask(new FooWorker("Foo#" + i, 2), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true)
+		);
+
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getDeferredCount() >= 3, 5);
+
+		SchedulerState state = scheduler.state();
+
+		assertThat(state.getQueueCapacity()).isEqualTo(2);
+		assertThat(state.getOverflowPolicy()).isEqualTo(OverflowPolicy.DEFER);
+		assertThat(state.getDeferredCount()).isEqualTo(3);
+		assertThat(state.getOverflowCount()).isEqualTo(3);
+		assertThat(scheduler.taskService().findAllHistory().filter(h -> h.getStatus().isRejected())).hasSize(3);
+
+		scheduler.shutdown();
 	}
-	
-	@Override
-	public String getName() {
-		return name;
+
+	@Test
+	void should_limit_group_executions_when_group_quota_is_reached() {
+
+		log.debug("***** Limit Group Executions When Group Quota is Reached *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMaxThreads(20)
+				.withGroupQuota("Batch", 2, 3)
+				.withOverflowDeferDelay(Duration.ofSeconds(10))
+				.build();
+
+		scheduler.start();
+
+		// 8 batch tasks firing at the same time: 2 running, 3 queued, 3 deferred
+		IntStream.range(0, 8).forEach( i ->
+			scheduler.taskService().scheduleTask("Batch", new FooWorker("Batch#" + i, 5), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true)
+		);
+
+		// Tasks of other groups are not held back by the batch group
+		Task online = scheduler.taskService().scheduleTask("Online", new FooWorker("Online", 0), ScheduleFactory.withPeriod(Duration.ofMillis(100)), true);
+
+		TestUtils.waitFor(scheduler, () -> batchState(scheduler).getRejected() >= 3, 5);
+
+		assertThat(online.getGroup()).isEqualTo("Online");
+		assertThat(online.getExecutionCount()).isGreaterThan(0);
+		assertThat(batchState(scheduler)).satisfies( g -> {
+			assertThat(g.getMaxConcurrency()).isEqualTo(2);
+			assertThat(g.getRunning()).isEqualTo(2);
+			assertThat(g.getQueued()).isEqualTo(3);
+			assertThat(g.getRejected()).isEqualTo(3);
+		});
+
+		assertThat(scheduler.taskService().findAllTask().filter( t -> t.getGroup().equals("Batch") ).filter(Task::isExecuting)).hasSize(5);
+		assertThat(scheduler.state().getGroups()).extracting(GroupState::getName).contains("Batch", "Online");
+
+		scheduler.shutdown();
 	}
-}
 
+	@Test
+	void should_reject_blocked_execution_when_scheduler_is_shut_down() {
+
+		log.debug("***** Reject Blocked Execution When Scheduler Is Shut Down *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMinThreads(5).withMaxThreads(5).withQueueCapacity(1)
+				.withOverflowPolicy(OverflowPolicy.BLOCK)
+				.build();
+
+		scheduler.start();
+
+		// 5 executions running, 1 queued: the next one waits for room in the queue
+		IntStream.range(0, 7).forEach( i -> 
+			scheduler.taskService().scheduleTask(new FooWorker("Slow#" + i, 3), ScheduleFactory.withPeriod(Duration.ofMillis(100)), true) );
+
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getOverflowCount() >= 1, 5);
+		assertThat(scheduler.state().getOverflowCount()).isGreaterThanOrEqualTo(1);
+
+		scheduler.shutdownAsync();
+
+		// Rejected without waiting for the running execution (a stopped pool may never run it)
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getRejectedCount() >= 1, 1);
+		assertThat(scheduler.state().getRejectedCount()).isGreaterThanOrEqualTo(1);
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_schedule_task_batch_and_report_failures_when_registrations_are_invalid() {
+
+		log.debug("***** Schedule Task Batch And Report Failures *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		scheduler.taskService().scheduleTask(new FooWorker("Foo#0"), ScheduleFactory.atFixedTimeEveryDay(LocalTime.NOON), true);
+
+		List<TaskRegistration> registrations = IntStream.range(0, 10_000)
+				.mapToObj( i -> TaskRegistration.of("Batch", new FooWorker("Foo#" + i), "0 0/5 * * * ?", true) )
+				.collect(Collectors.toList());
+
+		registrations.add(TaskRegistration.of("Batch", new FooWorker("Bar"), "not a cron", true));
+		registrations.add(TaskRegistration.of(new FooWorker("Foo#1"), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true));
+		registrations.add(TaskRegistration.of(null, ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true));
+
+		TaskBatchResult result = scheduler.taskService().scheduleTasks(registrations);
+
+		log.debug("Batch result: {}", result);
+
+		assertThat(result.isSuccessful()).isFalse();
+		assertThat(result.getScheduledTasks()).hasSize(9_999).allSatisfy( t -> {
+			assertThat(t.getGroup()).isEqualTo("Batch");
+			assertThat(t.getNextExecutionDateTime()).isAfter(ZonedDateTime.now());
+		});
+		assertThat(result.getFailures()).extracting(TaskBatchResult.Failure::getIndex).containsExactly(0, 10_000, 10_001, 10_002);
+		assertThat(result.getFailures().get(0).getCause()).isInstanceOf(ResourceAlreadyExistException.class);
+		assertThat(result.getFailures().get(2).getCause()).isInstanceOf(ResourceAlreadyExistException.class);
+		assertThat(scheduler.taskService().findAllTask()).hasSize(10_000);
+	}
+
+	@Test
+	void should_dispatch_task_once_when_execution_lasts_longer_than_period() {
+
+		log.debug("***** Dispatch Task Once When Execution Lasts Longer Than Period *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		scheduler.start();
+
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		TaskWorker slowWorker = new TaskWorker() {
+			@Override
+			public void invoke() {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+
+			@Override
+			public String getName() {
+				return "Slow";
+			}
+		};
+
+		Task task = scheduler.taskService().scheduleTask(slowWorker, ScheduleFactory.withPeriod(Duration.ofMillis(20)), true);
+
+		assertThat(task.getState()).isEqualTo(TaskState.IDLE);
+
+		TestUtils.waitFor(task, () -> task.getState() == TaskState.RUNNING, 5);
+		TestUtils.waitFor(task, () -> task.getExecutionCount() >= 5, 5);
+
+		assertThat(maxRunning).hasValue(1);
+		assertThat(scheduler.taskService().findAllHistory().filter( h -> h.getStatus().isExecuting() )).hasSizeLessThanOrEqualTo(1);
+
+		scheduler.shutdown();
+
+		assertThat(task.getState()).isEqualTo(TaskState.IDLE);
+	}
+
+	@Test
+	void should_write_history_in_batches_and_flush_it_when_shutdown() {
+
+		log.debug("***** Write History In Batches And Flush It When Shutdown *****");
+
+		TaskRepository repository = TaskRepositoryFactory.newDefaultTaskRepository();
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withTaskRepository(repository)
+				.withHistoryWriteBehind(1_000, Duration.ofMinutes(1))
+				.build();
+
+		scheduler.start();
+
+		Task task = scheduler.taskService().scheduleTask(new FooWorker("Foo", 0), ScheduleFactory.withPeriod(Duration.ofMillis(50)), true);
+
+		TestUtils.waitFor(task, () -> task.getExecutionCount() >= 10, 5);
+
+		// Nothing written yet (flush interval not reached) but the history is readable
+		assertThat(repository.findAllHistory()).isEmpty();
+		assertThat(scheduler.taskService().findAllHistory().filter( h -> h.getStatus() == TaskStatus.SUCCESS ))
+				.hasSizeGreaterThanOrEqualTo(10);
+		assertThat(scheduler.state().getHistoryCoalescedWrites()).isGreaterThanOrEqualTo(20);
+
+		scheduler.shutdown();
+
+		SchedulerState state = scheduler.state();
+
+		assertThat(state.getHistoryPendingWrites()).isZero();
+		assertThat(state.getHistoryFlushedBatches()).isEqualTo(1);
+		assertThat(repository.findAllHistory()).hasSize(task.getExecutionCount())
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.SUCCESS) );
+	}
+
+	@Test
+	void should_keep_history_readable_and_retry_batch_when_write_fails() {
+
+		log.debug("***** Keep History Readable And Retry Batch When Write Fails *****");
+
+		AtomicInteger failures = new AtomicInteger(2);
+
+		// First batches fail once the histories are inserted (partially written)
+		TaskRepository repository = new TaskRepositoryDefaultImpl() {
+			@Override
+			public void insertHistories(Collection<TaskHistory> histories) {
+				super.insertHistories(histories);
+				if ( failures.getAndDecrement() > 0 ) {
+					throw new IllegalStateException("Database unavailable");
+				}
+			}
+		};
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withTaskRepository(repository)
+				.withHistoryWriteBehind(1_000, Duration.ofMillis(200))
+				.build();
+
+		scheduler.start();
+
+		Task task = scheduler.taskService().scheduleTask(new FooWorker("Foo", 0), ScheduleFactory.withPeriod(Duration.ofMillis(50)), true);
+
+		TestUtils.waitFor(task, () -> task.getExecutionCount() >= 5, 5);
+		scheduler.taskService().enableTask("Foo", false);
+		TestUtils.waitFor(task, () -> task.getState() == TaskState.IDLE, 5);
+
+		TestUtils.waitFor(failures, () -> failures.get() < 0, 5);
+
+		// Every completed execution stays readable while the batches are retried
+		List<TaskHistory> histories = scheduler.taskService().findHistoryByName("Foo").collect(Collectors.toList());
+		assertThat(histories).hasSize(task.getExecutionCount())
+				.allSatisfy( h -> assertThat(scheduler.taskService().findHistoryByUuid(h.getUuid())).isPresent() );
+
+		scheduler.shutdown();
+
+		assertThat(scheduler.state().getHistoryPendingWrites()).isZero();
+		assertThat(scheduler.state().getHistoryFailedBatches()).isEqualTo(2);
+		assertThat(repository.findHistoryByName("Foo")).hasSize(task.getExecutionCount())
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.SUCCESS) );
+	}
+
+	@Test
+	void should_shed_new_histories_and_shutdown_when_repository_stays_unavailable() throws Exception {
+
+		log.debug("***** Shed New Histories And Shutdown When Repository Stays Unavailable *****");
+
+		TaskRepository repository = new TaskRepositoryDefaultImpl() {
+			@Override
+			public void insertHistories(Collection<TaskHistory> histories) {
+				throw new IllegalStateException("Database unavailable");
+			}
+		};
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withTaskRepository(repository)
+				.withHistoryWriteBehind(4, Duration.ofMillis(100))
+				.build();
+
+		scheduler.start();
+
+		List<Task> tasks = IntStream.range(0, 10)
+				.mapToObj( i -> scheduler.taskService().scheduleTask(new FooWorker("Foo#" + i, 0), ScheduleFactory.withPeriod(Duration.ofMillis(50)), true) )
+				.collect(Collectors.toList());
+
+		// The executions go on while the buffer stays full
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getHistoryShedWrites() > 0, 5);
+		TestUtils.waitFor(tasks, () -> tasks.stream().allMatch( t -> t.getExecutionCount() >= 3 ), 10);
+
+		// Bounded buffer: at most the capacity plus one transition per running execution
+		assertThat(scheduler.state()).satisfies( s -> {
+			assertThat(s.getHistoryFailedBatches()).isPositive();
+			assertThat(s.getHistoryShedWrites()).isPositive();
+			assertThat(s.getHistoryPendingWrites()).isLessThanOrEqualTo(4 + tasks.size());
+		});
+
+		// The launcher waiting for room does not hold the shutdown
+		scheduler.shutdownAsync().get(10, TimeUnit.SECONDS);
+
+		assertThat(scheduler.status()).isEqualTo(SchedulerStatus.STOPPED);
+	}
+
+	@Test
+	void should_run_workflow_branches_in_parallel_and_skip_successors_of_failed_step() {
+
+		log.debug("***** Run Workflow Branches In Parallel And Skip Successors Of Failed Step *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+
+		// Diamond: Extract -> (LoadA, LoadB, LoadC) -> Aggregate (1 second each)
+		Workflow nightly = Workflow.builder("Nightly")
+				.step(new FooWorker("Extract"))
+				.step(new FooWorker("LoadA"), "Extract")
+				.step(new FooWorker("LoadB"), "Extract")
+				.step(new FooWorker("LoadC"), "Extract")
+				.step(new FooWorker("Aggregate"), "LoadA", "LoadB", "LoadC")
+				.build();
+
+		assertThat(nightly.getStepNames()).startsWith("Extract").endsWith("Aggregate");
+
+		WorkflowResult result = scheduler.taskService().runWorkflow(nightly).join();
+
+		// Critical path (3 steps) instead of the sum of the steps (5)
+		assertThat(result.isSuccessful()).isTrue();
+		assertThat(result.getSteps()).hasSize(5).containsValue(TaskStatus.SUCCESS);
+		assertThat(result.getElapsed()).isLessThan(Duration.ofMillis(4_500));
+
+		List<TaskHistory> histories = scheduler.taskService().findAllHistory().collect(Collectors.toList());
+		assertThat(histories).extracting(TaskHistory::getName)
+				.containsOnly("Nightly/Extract", "Nightly/LoadA", "Nightly/LoadB", "Nightly/LoadC", "Nightly/Aggregate");
+
+		TaskWorker failing = new TaskWorker() {
+			@Override
+			public void invoke() {
+				throw new IllegalStateException("LoadB failed");
+			}
+
+			@Override
+			public String getName() {
+				return "LoadB";
+			}
+		};
+
+		Workflow broken = Workflow.builder("Broken")
+				.step(new FooWorker("Extract", 0))
+				.step(new FooWorker("LoadA", 0), "Extract")
+				.step(failing, "Extract")
+				.step(new FooWorker("Aggregate", 0), "LoadA", "LoadB")
+				.step(new FooWorker("Report", 0), "Aggregate")
+				.build();
+
+		result = scheduler.taskService().runWorkflow(broken).join();
+
+		assertThat(result.isSuccessful()).isFalse();
+		assertThat(result.getFailedSteps()).containsExactly("LoadB");
+		assertThat(result.getSkippedSteps()).containsExactly("Aggregate", "Report");
+		assertThat(result.getSteps()).containsEntry("LoadA", TaskStatus.SUCCESS);
+
+		// Cycle
+		Workflow.Builder cyclic = Workflow.builder("Cyclic")
+				.step(new FooWorker("A"), "C")
+				.step(new FooWorker("B"), "A")
+				.step(new FooWorker("C"), "B");
+
+		assertThatIllegalArgumentException().isThrownBy(cyclic::build).withMessageContaining("cycle");
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_release_thread_and_record_outcome_when_worker_is_asynchronous() {
+
+		log.debug("***** Release Thread And Record Outcome When Worker Is Asynchronous *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().withMinThreads(2).withMaxThreads(5).build();
+		scheduler.start();
+
+		AtomicInteger waiting = new AtomicInteger();
+		AtomicInteger maxWaiting = new AtomicInteger();
+
+		// 30 workers waiting 2 seconds for an external completion (more than the pool threads)
+		List<Task> tasks = IntStream.range(0, 30)
+				.mapToObj( i -> scheduler.taskService().scheduleTask(
+						new AsyncWorker("Async#" + i, i == 0 ? TaskStatus.WARNING : TaskStatus.SUCCESS, i == 1, waiting, maxWaiting), 
+						ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true))
+				.collect(Collectors.toList());
+
+		TestUtils.waitFor(tasks, () -> tasks.stream().allMatch( t -> t.getExecutionCount() > 0 ), 10);
+
+		assertThat(maxWaiting).hasValue(30);
+
+		scheduler.shutdown();
+
+		List<TaskHistory> histories = scheduler.taskService().findAllHistory()
+				.filter( h -> h.getStatus().isTerminated() )
+				.collect(Collectors.toList());
+
+		assertThat(histories).filteredOn( h -> h.getName().equals("Async#0") ).isNotEmpty()
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.WARNING) );
+		assertThat(histories).filteredOn( h -> h.getName().equals("Async#1") ).isNotEmpty()
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.ERROR) );
+		assertThat(histories).filteredOn( h -> h.getName().equals("Async#2") ).isNotEmpty()
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.SUCCESS) );
+	}
+
+	@Test
+	void should_record_error_and_fire_again_when_worker_throws_an_error() {
+
+		log.debug("***** Record Error And Fire Again When Worker Throws An Error *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withGroupQuota("Batch", 1, 1)
+				.build();
+
+		scheduler.start();
+
+		AtomicInteger invocations = new AtomicInteger();
+
+		TaskWorker broken = new TaskWorker() {
+			@Override
+			public void invoke() {
+				invocations.incrementAndGet();
+				throw new AssertionError("Broken invariant");
+			}
+
+			@Override
+			public String getName() {
+				return "Broken";
+			}
+		};
+
+		// The group slot is released and the task fires again
+		Task task = scheduler.taskService().scheduleTask("Batch", broken, ScheduleFactory.withPeriod(Duration.ofMillis(100)), true);
+
+		TestUtils.waitFor(task, () -> invocations.get() >= 3, 5);
+
+		assertThat(invocations.get()).isGreaterThanOrEqualTo(3);
+		assertThat(scheduler.taskService().findHistoryByName("Broken").filter( h -> h.getStatus().isTerminated() ))
+				.isNotEmpty()
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.ERROR) );
+
+		// A workflow step throwing an error fails the step instead of holding the workflow
+		WorkflowResult result = scheduler.taskService().runWorkflow(Workflow.builder("Checked")
+				.step(broken)
+				.step(new FooWorker("Report", 0), "Broken")
+				.build()).orTimeout(5, TimeUnit.SECONDS).join();
+
+		assertThat(result.getFailedSteps()).containsExactly("Broken");
+		assertThat(result.getSkippedSteps()).containsExactly("Report");
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_stop_execution_when_max_runtime_is_exceeded_or_execution_is_cancelled() {
+
+		log.debug("***** Stop Execution When Max Runtime Is Exceeded Or Execution Is Cancelled *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		scheduler.start();
+
+		AtomicInteger interrupted = new AtomicInteger();
+		AtomicInteger cancelled = new AtomicInteger();
+
+		// Hung worker (1 hour) stopped after 300 ms
+		Task hung = scheduler.taskService().scheduleTask(
+				new HungWorker("Hung", interrupted, cancelled), ScheduleFactory.withPeriod(Duration.ofMillis(500)), true);
+		scheduler.taskService().setMaxRuntime("Hung", Duration.ofMillis(300));
+
+		TestUtils.waitFor(hung, () -> hung.getExecutionCount() >= 2, 5);
+
+		assertThat(scheduler.taskService().findAllHistory().filter( h -> h.getName().equals("Hung") && h.getStatus().isTerminated() ))
+				.isNotEmpty()
+				.allSatisfy( h -> assertThat(h.getStatus()).isEqualTo(TaskStatus.TIMEOUT) );
+		assertThat(interrupted).hasValueGreaterThanOrEqualTo(2);
+		assertThat(cancelled).hasValueGreaterThanOrEqualTo(2);
+
+		scheduler.taskService().setMaxRuntime("Hung", null);
+		scheduler.taskService().enableTask("Hung", false);
+
+		// Cancelled while running
+		Task stuck = scheduler.taskService().scheduleTask(
+				new HungWorker("Stuck", interrupted, cancelled), ScheduleFactory.withPeriod(Duration.ofMillis(100)), true);
+
+		TestUtils.waitFor(stuck, () -> stuck.getState() == TaskState.RUNNING, 5);
+
+		String uuid = scheduler.taskService().findAllHistory()
+				.filter( h -> h.getName().equals("Stuck") && h.getStatus().isRunning() )
+				.findFirst().orElseThrow().getUuid();
+
+		assertThat(scheduler.taskService().cancelExecution(uuid)).isTrue();
+		assertThat(scheduler.taskService().cancelExecution(uuid)).isFalse();
+		assertThat(scheduler.taskService().findHistoryByUuid(uuid)).get()
+				.extracting(TaskHistory::getStatus).isEqualTo(TaskStatus.CANCELLED);
+		assertThat(stuck.getExecutionCount()).isEqualTo(1);
+
+		scheduler.taskService().enableTask("Stuck", false);
+		scheduler.taskService().cancelTask("Stuck");
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_enforce_max_runtime_when_all_task_threads_are_hung() {
+
+		log.debug("***** Enforce Max Runtime When All Task Threads Are Hung *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().withMinThreads(5).withMaxThreads(5).build();
+		scheduler.start();
+
+		AtomicInteger interrupted = new AtomicInteger();
+		AtomicInteger cancelled = new AtomicInteger();
+
+		// As many hung workers as task threads: the deadlines must not wait for a free task thread
+		List<Task> hung = IntStream.range(0, 5)
+				.mapToObj( i -> scheduler.taskService().scheduleTask(
+						new HungWorker("Hung#" + i, interrupted, cancelled), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true) )
+				.collect(Collectors.toList());
+
+		hung.forEach( task -> scheduler.taskService().setMaxRuntime(task.getName(), Duration.ofMillis(300)) );
+
+		TestUtils.waitFor(scheduler, () -> hung.stream().allMatch( task -> task.getExecutionCount() >= 1 ), 5);
+
+		assertThat(scheduler.taskService().findAllHistory().filter( h -> h.getStatus() == TaskStatus.TIMEOUT ))
+				.hasSizeGreaterThanOrEqualTo(5);
+		assertThat(cancelled).hasValueGreaterThanOrEqualTo(5);
+
+		hung.forEach( task -> scheduler.taskService().enableTask(task.getName(), false) );
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_keep_control_threads_bounded_when_admissions_wait_for_a_full_queue() {
+
+		log.debug("***** Keep Control Threads Bounded When Admissions Wait For A Full Queue *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMinThreads(2).withMaxThreads(2).withQueueCapacity(1)
+				.withOverflowPolicy(OverflowPolicy.BLOCK)
+				.withRateLimiter("Oracle", 50, 1)
+				.build();
+
+		scheduler.start();
+
+		AtomicInteger interrupted = new AtomicInteger();
+		AtomicInteger cancelled = new AtomicInteger();
+
+		// Both task threads hung until their deadline: the admitted executions wait for room in the queue
+		List<Task> hung = IntStream.range(0, 2)
+				.mapToObj( i -> scheduler.taskService().scheduleTask(
+						new HungWorker("Hung#" + i, interrupted, cancelled), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), false) )
+				.collect(Collectors.toList());
+
+		hung.forEach( task -> scheduler.taskService().setMaxRuntime(task.getName(), Duration.ofMillis(500)) );
+		hung.forEach( task -> scheduler.taskService().enableTask(task.getName(), true) );
+
+		IntStream.range(0, 20).forEach( i -> {
+			scheduler.taskService().scheduleTask(new FooWorker("Query#" + i, 0), ScheduleFactory.withPeriod(Duration.ofMillis(100)), false);
+			scheduler.taskService().setRateLimiters("Query#" + i, "Oracle");
+			scheduler.taskService().enableTask("Query#" + i, true);
+		});
+
+		// The deadlines still fire while the admissions wait
+		TestUtils.waitFor(scheduler, () -> cancelled.get() >= 2, 5);
+
+		assertThat(cancelled).hasValueGreaterThanOrEqualTo(2);
+		assertThat(Thread.getAllStackTraces().keySet())
+				.filteredOn( t -> t.getName().startsWith(scheduler.name() + "-Control#") )
+				.hasSizeLessThanOrEqualTo(2);
+
+		hung.forEach( task -> scheduler.taskService().enableTask(task.getName(), false) );
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_retry_failed_execution_with_backoff_and_link_attempts_when_retry_policy_is_set() {
+
+		log.debug("***** Retry Failed Execution With Backoff And Link Attempts *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		scheduler.start();
+
+		RetryPolicy retryPolicy = RetryPolicy.exponentialBackoff(5, Duration.ofMillis(100), Duration.ofSeconds(1))
+				.retryOn(IllegalStateException.class);
+
+		// Transient failure: the first 2 attempts fail
+		AtomicInteger flakyInvocations = new AtomicInteger();
+		Task flaky = scheduler.taskService().scheduleTask(
+				new FailingWorker("Flaky", flakyInvocations, 2, IllegalStateException::new), 
+				ScheduleFactory.withPeriod(Duration.ofSeconds(2)), true);
+		scheduler.taskService().setRetryPolicy("Flaky", retryPolicy);
+
+		// Failure not retried (exception type)
+		AtomicInteger brokenInvocations = new AtomicInteger();
+		Task broken = scheduler.taskService().scheduleTask(
+				new FailingWorker("Broken", brokenInvocations, Integer.MAX_VALUE, IllegalArgumentException::new), 
+				ScheduleFactory.withPeriod(Duration.ofSeconds(2)), true);
+		scheduler.taskService().setRetryPolicy("Broken", retryPolicy);
+
+		TestUtils.waitFor(flaky, () -> flaky.getExecutionCount() >= 3 && broken.getExecutionCount() >= 1, 5);
+
+		List<TaskHistory> attempts = scheduler.taskService().findAllHistory()
+				.filter( h -> h.getName().equals("Flaky") )
+				.sorted(Comparator.comparing(TaskHistory::getCreatedAtDttm))
+				.limit(3)
+				.collect(Collectors.toList());
+
+		assertThat(attempts).extracting(TaskHistory::getStatus).containsExactly(TaskStatus.ERROR, TaskStatus.ERROR, TaskStatus.SUCCESS);
+		assertThat(attempts).extracting(TaskHistory::getAttempt).containsExactly(1, 2, 3);
+		assertThat(attempts.get(0).getPreviousAttemptUuid()).isNull();
+		assertThat(attempts.get(1).getPreviousAttemptUuid()).isEqualTo(attempts.get(0).getUuid());
+		assertThat(attempts.get(2).getPreviousAttemptUuid()).isEqualTo(attempts.get(1).getUuid());
+		assertThat(Duration.between(attempts.get(0).getStartedAtDttm(), attempts.get(2).getEndedAtDttm())).isLessThan(Duration.ofSeconds(2));
+
+		// Back to the schedule once recovered
+		assertThat(flaky.getAttempt()).isEqualTo(1);
+
+		assertThat(brokenInvocations).hasValue(broken.getExecutionCount());
+		assertThat(scheduler.taskService().findAllHistory().filter( h -> h.getName().equals("Broken") ))
+				.allSatisfy( h -> assertThat(h.getAttempt()).isEqualTo(1) );
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_hold_executions_until_permits_are_available_when_rate_limiter_is_declared() {
+
+		log.debug("***** Hold Executions Until Permits Are Available *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMaxThreads(20)
+				.withRateLimiter("Oracle", 4, 2)
+				.build();
+
+		scheduler.start();
+
+		assertThatThrownBy( () -> scheduler.taskService().setRateLimiters("Unknown", "Oracle") )
+				.isInstanceOf(ResourceNotFoundException.class);
+
+		// 12 tasks firing at the same time against a resource accepting 4 executions per second (burst: 2)
+		IntStream.range(0, 12).forEach( i -> {
+			scheduler.taskService().scheduleTask(new FooWorker("Query#" + i, 0), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), false);
+			scheduler.taskService().setRateLimiters("Query#" + i, "Oracle");
+		});
+
+		assertThatThrownBy( () -> scheduler.taskService().setRateLimiters("Query#0", "Unknown") )
+				.isInstanceOf(ResourceNotFoundException.class);
+
+		IntStream.range(0, 12).forEach( i -> scheduler.taskService().enableTask("Query#" + i, true) );
+
+		TestUtils.waitFor(scheduler, () -> firstStarts(scheduler).size() >= 12, 8);
+
+		List<ZonedDateTime> starts = firstStarts(scheduler);
+
+		assertThat(starts).hasSize(12);
+
+		// Burst then one execution every 250 ms
+		assertThat(starts.stream().filter( s -> s.isBefore(starts.get(0).plusSeconds(1)) )).hasSizeLessThanOrEqualTo(7);
+		assertThat(Duration.between(starts.get(0), starts.get(11))).isGreaterThanOrEqualTo(Duration.ofMillis(2000));
+
+		assertThat(scheduler.state().getRateLimiters()).singleElement().satisfies( l -> {
+			assertThat(l.getName()).isEqualTo("Oracle");
+			assertThat(l.getGranted()).isGreaterThanOrEqualTo(12);
+			assertThat(l.getDelayed()).isGreaterThanOrEqualTo(9);
+			assertThat(l.getMaxWait()).isGreaterThanOrEqualTo(Duration.ofMillis(2000));
+		});
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_spread_fire_times_over_window_with_stable_offsets_when_spread_is_declared() {
+
+		log.debug("***** Spread Fire Times Over Window With Stable Offsets *****");
+
+		ZonedDateTime now = ZonedDateTime.of(2026, 3, 2, 9, 0, 0, 0, ZoneId.systemDefault());
+		ZonedDateTime noon = now.withHour(12);
+		Schedule atNoon = ScheduleFactory.atFixedTimeEveryDay(LocalTime.NOON);
+
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withTimeProvider(TimeProviderFactory.newFixedTimeProvider(now))
+				.withGroupSpread("Reports", Duration.ofMinutes(1))
+				.build();
+
+		// 200 tasks of the same group on the same second
+		List<Task> reports = IntStream.range(0, 200)
+				.mapToObj( i -> scheduler.taskService().scheduleTask("Reports", new FooWorker("Report#" + i), atNoon, true) )
+				.collect(Collectors.toList());
+
+		assertThat(reports).allSatisfy( t -> {
+			assertThat(t.getNextExecutionDateTime()).isEqualTo(noon.plus(t.getSpreadOffset()));
+			assertThat(t.getSpreadOffset()).isLessThan(Duration.ofMinutes(1));
+		});
+
+		// Smoothed load: no second of the window gets more than a few tasks
+		Map<Long, Long> tasksPerSecond = reports.stream()
+				.collect(Collectors.groupingBy( t -> t.getSpreadOffset().toSeconds(), Collectors.counting() ));
+		assertThat(tasksPerSecond).hasSizeGreaterThanOrEqualTo(45);
+		assertThat(tasksPerSecond.values()).allSatisfy( count -> assertThat(count).isLessThanOrEqualTo(12) );
+
+		// The schedule window prevails and the other groups are not spread
+		Task spread = scheduler.taskService().scheduleTask("Reports", new FooWorker("Spread"), 
+				ScheduleFactory.withSpread(atNoon, Duration.ofSeconds(5)), true);
+		Task other = scheduler.taskService().scheduleTask("Other", new FooWorker("Other"), atNoon, true);
+
+		assertThat(spread.getSpreadOffset()).isLessThan(Duration.ofSeconds(5));
+		assertThat(other.getSpreadOffset()).isZero();
+		assertThat(other.getNextExecutionDateTime()).isEqualTo(noon);
+
+		// Reproducible: same offsets on another instance and on the next day
+		RubyScheduler replica = new RubySchedulerBuilder()
+				.withTimeProvider(TimeProviderFactory.newFixedTimeProvider(noon.plusMinutes(5)))
+				.withGroupSpread("Reports", Duration.ofMinutes(1))
+				.build();
+
+		reports.forEach( t -> {
+			Task copy = replica.taskService().scheduleTask("Reports", new FooWorker(t.getName()), atNoon, true);
+			assertThat(copy.getSpreadOffset()).isEqualTo(t.getSpreadOffset());
+			assertThat(copy.getNextExecutionDateTime()).isEqualTo(t.getNextExecutionDateTime().plusDays(1));
+		});
+	}
+
+	@Test
+	void should_forecast_executions_in_chronological_order_and_count_them_per_minute() {
+
+		log.debug("***** Forecast Executions And Count Them Per Minute *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+
+		scheduler.taskService().scheduleTask(new FooWorker("Quarter"), ScheduleFactory.withCronExpression("0 0/15 * * * ?"), true);
+		scheduler.taskService().scheduleTask(new FooWorker("TenMinutes"), ScheduleFactory.withPeriod(Duration.ofMinutes(10)), true);
+		scheduler.taskService().scheduleTask(new FooWorker("Disabled"), ScheduleFactory.withPeriod(Duration.ofMinutes(1)), false);
+
+		ZonedDateTime from = ZonedDateTime.of(2030, 1, 7, 10, 0, 0, 0, ZoneId.systemDefault());
+		ZonedDateTime to = from.plusHours(1);
+
+		assertThat(scheduler.taskService().forecast("Quarter", from, to))
+				.extracting(FireTime::getDateTime)
+				.containsExactly(from.plusMinutes(15), from.plusMinutes(30), from.plusMinutes(45));
+
+		// All the enabled tasks merged in chronological order
+		List<FireTime> agenda = scheduler.taskService().forecast(from, to).collect(Collectors.toList());
+
+		assertThat(agenda).extracting(FireTime::getName).doesNotContain("Disabled").hasSize(8);
+		assertThat(agenda).extracting(FireTime::getDateTime).isSortedAccordingTo(Comparator.naturalOrder());
+		assertThat(agenda.get(0)).satisfies( f -> {
+			assertThat(f.getName()).isEqualTo("TenMinutes");
+			assertThat(f.getDateTime()).isEqualTo(from.plusMinutes(10));
+		});
+
+		// Lazy: a far horizon is only computed as far as consumed
+		assertThat(scheduler.taskService().forecast(from, from.plusYears(100)).limit(5)).hasSize(5);
+
+		LoadHistogram histogram = scheduler.taskService().forecastLoad(from, Duration.ofHours(1), Duration.ofMinutes(1));
+
+		assertThat(histogram.getCounts()).hasSize(60);
+		assertThat(histogram.getTotal()).isEqualTo(8);
+		assertThat(histogram.getPeak()).isEqualTo(2);
+		assertThat(histogram.getPeakAt()).isEqualTo(from.plusMinutes(30));
+		assertThat(histogram.getCounts().get(10)).isEqualTo(1);
+
+		assertThatThrownBy( () -> scheduler.taskService().forecast("Unknown", from, to) ).isInstanceOf(ResourceNotFoundException.class);
+		assertThatThrownBy( () -> scheduler.taskService().forecastLoad(from, Duration.ofDays(30), Duration.ofMinutes(1)) )
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void should_start_each_execution_after_the_delay_when_fixed_delay_schedule() {
+
+		log.debug("***** Start Each Execution After The Delay (Fixed Delay) *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+
+		scheduler.start();
+
+		Task task = scheduler.taskService().scheduleTask(new FooWorker("Delayed", 0), ScheduleFactory.withFixedDelay(Duration.ofMillis(200)), true);
+
+		TestUtils.waitFor(task, () -> task.getExecutionCount() >= 4, 5);
+
+		scheduler.shutdown();
+
+		List<TaskHistory> executions = scheduler.taskService().findAllHistory()
+				.filter( h -> h.getStatus() == TaskStatus.SUCCESS )
+				.sorted(Comparator.comparing(TaskHistory::getStartedAtDttm))
+				.collect(Collectors.toList());
+
+		assertThat(executions).hasSizeGreaterThanOrEqualTo(4);
+		
+		for ( int i = 1; i < executions.size(); i++ ) {
+			ZonedDateTime previousEnd = executions.get(i - 1).getEndedAtDttm();
+			
+			assertThat(executions.get(i).getStartedAtDttm()).isAfterOrEqualTo(previousEnd.plus(Duration.ofMillis(200)));
+		}
+	}
+
+	private static List<ZonedDateTime> firstStarts(RubyScheduler scheduler) {
+		return scheduler.taskService().findAllHistory()
+				.filter( h -> h.getStartedAtDttm() != null )
+				.collect(Collectors.toMap(TaskHistory::getName, TaskHistory::getStartedAtDttm, (s1, s2) -> s1.isBefore(s2) ? s1 : s2))
+				.values().stream()
+				.sorted()
+				.collect(Collectors.toList());
+	}
+
+	private static GroupState batchState(RubyScheduler scheduler) {
+		return scheduler.state().getGroups().stream()
+				.filter( g -> g.getName().equals("Batch") )
+				.findFirst().orElseThrow();
+	}
+}
@@ -2,9 +2,16 @@ package mike.demo.test.module.core;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -12,8 +19,14 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.cronutils.model.CronType;
+import com.cronutils.model.definition.CronDefinitionBuilder;
 import com.cronutils.model.field.expression.Weekdays;
+import com.cronutils.model.time.ExecutionTime;
+import com.cronutils.parser.CronParser;
 
+import mike.demo.tasksched.library.ruby.schedule.BusinessCalendar;
+import mike.demo.tasksched.library.ruby.schedule.BusinessCalendars;
 import mike.demo.tasksched.library.ruby.schedule.Schedule;
 import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
 import mike.demo.tasksched.library.ruby.time.TimeProvider;
@@ -86,6 +99,212 @@ class ScheduleTest {
 		assertThat(schedule.description()).startsWith("at 07:10").contains("Monday").endsWith("Sunday");
 	}
 	
+	@Test
+	void should_return_next_period_boundary_when_sub_second_period() {
+		
+		ZonedDateTime current = toZonedDateTime(2021, 03, 19, 7, 20).plusNanos(1_234_567_890L);
+		Schedule schedule = ScheduleFactory.withPeriod(Duration.ofMillis(250));
+		
+		ZonedDateTime computedScheduleTime = schedule.nextExecutionDateTime(current);
+		
+		assertThat(computedScheduleTime).isEqualTo(toZonedDateTime(2021, 03, 19, 7, 20).plusNanos(1_250_000_000L));
+		assertThat(schedule.nextExecutionDateTime(computedScheduleTime)).isEqualTo(computedScheduleTime.plusNanos(250_000_000L));
+		assertThat(schedule.description()).isEqualTo("every 250 ms");
+	}
+	
+	@Test
+	void should_return_next_anchored_period_when_fixed_rate_schedule() {
+		
+		ZonedDateTime anchor = toZonedDateTime(2021, 03, 19, 7, 20).plusNanos(100);
+		Schedule schedule = ScheduleFactory.atFixedRate(Duration.ofSeconds(90), anchor);
+		
+		assertThat(schedule.nextExecutionDateTime(anchor.minusSeconds(1))).isEqualTo(anchor);
+		assertThat(schedule.nextExecutionDateTime(anchor)).isEqualTo(anchor.plusSeconds(90));
+		assertThat(schedule.nextExecutionDateTime(anchor.plusMinutes(10))).isEqualTo(anchor.plusSeconds(630));
+		
+		// The end of the previous execution does not shift a fixed rate
+		assertThat(schedule.nextExecutionDateTime(anchor, anchor.plusSeconds(80))).isEqualTo(anchor.plusSeconds(90));
+		assertThat(schedule.description()).startsWith("every 90000 ms from");
+	}
+	
+	@Test
+	void should_return_delay_after_previous_execution_end_when_fixed_delay_schedule() {
+		
+		ZonedDateTime current = toZonedDateTime(2021, 03, 19, 7, 20).plusNanos(1_234_567_890L);
+		Schedule schedule = ScheduleFactory.withFixedDelay(Duration.ofMillis(1_500));
+		
+		// Never executed: one delay after the current time
+		assertThat(schedule.nextExecutionDateTime(current, Schedule.EPOCH_ZONED_DATE_TIME)).isEqualTo(current.plusNanos(1_500_000_000L));
+		
+		// Delay after the end of the previous execution, immediately when already elapsed
+		assertThat(schedule.nextExecutionDateTime(current, current.minusSeconds(1))).isEqualTo(current.plusNanos(500_000_000L));
+		assertThat(schedule.nextExecutionDateTime(current, current.minusSeconds(2))).isEqualTo(current);
+		
+		assertThat(schedule.executions(current, current.plusSeconds(6))).hasSize(3);
+		assertThat(schedule.description()).isEqualTo("1500 ms after the previous execution");
+	}
+	
+	@Test
+	void should_skip_holidays_and_weekend_when_schedule_references_business_calendar() throws Exception {
+		
+		BusinessCalendar exchange = BusinessCalendars.load("EXCHANGE", Path.of(ScheduleTest.class.getResource("/calendars/exchange.cal").toURI()));
+		
+		// Thursday before Easter: Good Friday, the weekend and Easter Monday are skipped
+		Schedule schedule = ScheduleFactory.withCalendar(ScheduleFactory.atFixedTimeMondayToFriday(LocalTime.of(7, 10)), "EXCHANGE");
+		
+		assertThat(schedule.nextExecutionDateTime(toZonedDateTime(2021, 04, 01, 7, 20))).isEqualTo(toZonedDateTime(2021, 04, 06, 7, 10));
+		assertThat(schedule.nextExecutionDateTime(toZonedDateTime(2025, 12, 24, 8, 0))).isEqualTo(toZonedDateTime(2025, 12, 26, 7, 10));
+		assertThat(schedule.description()).endsWith("(business days of EXCHANGE)");
+		
+		// Shared instance
+		assertThat(BusinessCalendars.get("EXCHANGE")).isSameAs(exchange);
+		assertThat(exchange.nextBusinessDay(LocalDate.of(2021, 12, 31))).isEqualTo(LocalDate.of(2022, 01, 03));
+		
+		// Bitmap scan against day by day iteration
+		for ( LocalDate date = LocalDate.of(2020, 1, 1); date.getYear() < 2024; date = date.plusDays(1) ) {
+			LocalDate expected = date;
+			while ( expected.getDayOfWeek().getValue() > 5 || expected.getDayOfMonth() == 1 && expected.getMonthValue() == 1
+					|| expected.getDayOfMonth() == 25 && expected.getMonthValue() == 12 || exchange.getHolidays().contains(expected) ) {
+				expected = expected.plusDays(1);
+			}
+			
+			assertThat(exchange.nextBusinessDay(date)).as("next business day of %s", date).isEqualTo(expected);
+			assertThat(exchange.isBusinessDay(date)).as("business day %s", date).isEqualTo(expected.equals(date));
+		}
+		
+		assertThatThrownBy( () -> ScheduleFactory.withCalendar(schedule, "UNKNOWN") ).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy( () -> BusinessCalendars.load("BROKEN", Path.of(ScheduleTest.class.getResource("/logback-test.xml").toURI())) )
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("invalid line 1");
+	}
+	
+	@Test
+	void should_compute_same_executions_as_cron_utils_when_compiled_cron_expression() {
+		
+		CronParser quartzParser = new CronParser(CronDefinitionBuilder.instanceDefinitionFor(CronType.QUARTZ));
+		Random random = new Random(42);
+		
+		List<String> expressions = new ArrayList<>(List.of(
+				"0 0 12 ? * MON-FRI *", "0 15 10 L * ?", "0 15 10 L-2 * ?", "0 0 9 LW * ?", "0 0 9 15W * ?", "0 0 9 1W * ?",
+				"0 15 10 ? * 6L", "0 15 10 ? * 6#3", "0 0 0 ? * SAT,SUN", "0 0/5 14,18 * * ?", "0 10,44 14 ? 3 WED",
+				"0 0 0 29 2 ?", "0 30 2 * * ?", "0 0 0 1 1 ? 2025-2027", "*/10 * * * * ?", "0 0 12 ? * FRI-MON"));
+		
+		IntStream.range(0, 300).forEach( i -> expressions.add(randomExpression(random)) );
+		
+		List<ZoneId> zones = List.of(ZoneId.of("UTC"), ZoneId.of("Europe/Paris"), ZoneId.of("America/New_York"));
+		List<String> mismatches = new ArrayList<>();
+		
+		for ( String expression : expressions ) {
+			Schedule schedule = ScheduleFactory.withCronExpression(expression);
+			ExecutionTime oracle = ExecutionTime.forCron(quartzParser.parse(expression));
+			
+			// Random times and daylight saving time transitions
+			List<ZonedDateTime> samples = new ArrayList<>(List.of(
+					ZonedDateTime.of(2021, 3, 28, 1, 0, 0, 0, ZoneId.of("Europe/Paris")),
+					ZonedDateTime.of(2021, 10, 31, 1, 59, 0, 0, ZoneId.of("Europe/Paris"))));
+			
+			for ( int sample = 0; sample < 5; sample++ ) {
+				ZoneId zone = zones.get(random.nextInt(zones.size()));
+				samples.add(ZonedDateTime.of(2020 + random.nextInt(10), 1 + random.nextInt(12), 1 + random.nextInt(28), 
+						random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(2) * 500_000_000, zone));
+			}
+			
+			for ( ZonedDateTime sample : samples ) {
+				ZonedDateTime current = sample;
+				
+				// Chain the executions
+				for ( int run = 0; run < 5; run++ ) {
+					ZonedDateTime expected = oracle.timeToNextExecution(current).map(current::plus).orElse(Schedule.WILL_NOT_BE_EXECUTED_AGAIN);
+					ZonedDateTime computed = schedule.nextExecutionDateTime(current);
+					
+					if ( ! computed.toInstant().equals(expected.toInstant()) ) {
+						mismatches.add(String.format("%s after %s: expected %s, computed %s", expression, current, expected, computed));
+						break;
+					}
+					
+					if ( computed.equals(Schedule.WILL_NOT_BE_EXECUTED_AGAIN) ) {
+						break;
+					}
+					
+					current = computed;
+				}
+			}
+		}
+		
+		assertThat(mismatches).isEmpty();
+	}
+	
+	@Test
+	void should_wrap_around_when_range_ends_before_its_start() {
+		
+		// Quartz semantics (cron-utils only fires at the start of the range)
+		Schedule schedule = ScheduleFactory.withCronExpression("0 0 22-2 * * ?");
+		ZonedDateTime current = toZonedDateTime(2021, 03, 19, 21, 30);
+		
+		List<Integer> hours = new ArrayList<>();
+		for ( int run = 0; run < 6; run++ ) {
+			current = schedule.nextExecutionDateTime(current);
+			hours.add(current.getHour());
+		}
+		
+		assertThat(hours).containsExactly(22, 23, 0, 1, 2, 22);
+	}
+	
+	@Test
+	void should_share_schedule_instance_when_same_normalized_cron_expression() {
+		
+		Schedule schedule = ScheduleFactory.withCronExpression("0 10 7 ? * MON-FRI");
+		
+		assertThat(ScheduleFactory.withCronExpression(" 0 10  7 ? *\tmon-fri ")).isSameAs(schedule);
+		assertThat(ScheduleFactory.atFixedTimeMondayToFriday(LocalTime.of(7, 10))).isNotSameAs(schedule)
+				.isSameAs(ScheduleFactory.atFixedTimeMondayToFriday(LocalTime.of(7, 10)));
+		assertThat(ScheduleFactory.withCronExpression("0 10 7 ? * MON-SAT")).isNotSameAs(schedule);
+		
+		assertThat(schedule.description()).startsWith("at 07:10").isSameAs(schedule.description());
+		assertThat(schedule.cronExpression()).isEqualTo("0 10 7 ? * 2-6");
+	}
+	
+	@Test
+	void should_reject_invalid_cron_expression() {
+		
+		assertThatThrownBy( () -> ScheduleFactory.withCronExpression("0 0 25 * * ?") ).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy( () -> ScheduleFactory.withCronExpression("0 0 12 * *") ).isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	private static String randomExpression(Random random) {
+		String dayOfMonth = randomField(random, 1, 31);
+		String dayOfWeek = randomField(random, 1, 7);
+		
+		if ( random.nextBoolean() ) {
+			dayOfWeek = "?";
+		} else {
+			dayOfMonth = "?";
+		}
+		
+		return String.join(" ", randomField(random, 0, 59), randomField(random, 0, 59), randomField(random, 0, 23), 
+				dayOfMonth, randomField(random, 1, 12), dayOfWeek);
+	}
+	
+	private static String randomField(Random random, int min, int max) {
+		int from = min + random.nextInt(max - min + 1);
+		int to = from + random.nextInt(max - from + 1);
+		
+		switch (random.nextInt(6)) {
+			case 0:
+				return "*";
+			case 1:
+				return Integer.toString(from);
+			case 2:
+				return from + "-" + to;
+			case 3:
+				return from + "," + to;
+			case 4:
+				return "*/" + (1 + random.nextInt(Math.max(1, (max - min) / 2)));
+			default:
+				return from + "-" + to + "/" + (1 + random.nextInt(3));
+		}
+	}
+	
 	private ZonedDateTime toZonedDateTime(int year, int month, int day, int hour, int minute) {
 		return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneId.systemDefault());
 	}
@@ -2,6 +2,15 @@ package mike.demo.test.module.core;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -11,10 +20,17 @@ import org.slf4j.LoggerFactory;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 
 import mike.bootstrap.utilities.helpers.Timer;
+import mike.demo.tasksched.library.ruby.MisfirePolicy;
+import mike.demo.tasksched.library.ruby.QueueWaitState;
 import mike.demo.tasksched.library.ruby.RubyScheduler;
 import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
 import mike.demo.tasksched.library.ruby.SchedulerState;
 import mike.demo.tasksched.library.ruby.SchedulerStatus;
+import mike.demo.tasksched.library.ruby.Task;
+import mike.demo.tasksched.library.ruby.TaskPriority;
+import mike.demo.tasksched.library.ruby.TaskState;
+import mike.demo.tasksched.library.ruby.TaskWorker;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
 
 @DisplayName("Scheduler::Scheduler")
 @TestMethodOrder(OrderAnnotation.class)
@@ -65,4 +81,222 @@ class SchedulerTest {
 		
 		scheduler.shutdown();
 	}
+	
+	@Test
+	@Order(11)
+	void should_signal_lifecycle_transitions_without_waiting() throws Exception {
+		
+		log.debug("***** Should Signal Lifecycle Transitions Without Waiting *****");
+		
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		List<String> transitions = new CopyOnWriteArrayList<>();
+		
+		scheduler.addListener( (s, previous, current) -> transitions.add(previous + "->" + current) );
+		
+		long startedAt = System.nanoTime();
+		
+		assertThat(scheduler.startAsync().get(1, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.suspendAsync().get(1, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.status()).isEqualTo(SchedulerStatus.SUSPENDED);
+		assertThat(scheduler.releaseAsync().get(1, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.status()).isEqualTo(SchedulerStatus.LISTEN);
+		
+		scheduler.shutdownAsync().get(5, TimeUnit.SECONDS);
+		
+		long elapsedMillis = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+		
+		log.debug("Lifecycle transitions: {} (elapsed: {} ms)", transitions, elapsedMillis);
+		
+		assertThat(scheduler.status()).isEqualTo(SchedulerStatus.STOPPED);
+		assertThat(elapsedMillis).isLessThan(500);
+		assertThat(transitions).containsExactly(
+				"READY->LISTEN", "LISTEN->SUSPENDED", "SUSPENDED->LISTEN", "LISTEN->SHUTDOWN", "SHUTDOWN->STOPPED");
+	}
+	
+	@Test
+	@Order(20)
+	void should_run_blocking_actions_concurrently_when_virtual_threads() {
+		
+		log.debug("***** Should Run Blocking Actions Concurrently When Virtual Threads *****");
+		
+		RubyScheduler scheduler = new RubySchedulerBuilder().withVirtualThreads(500).build();
+		AtomicInteger completed = new AtomicInteger();
+		
+		scheduler.start();
+		
+		// 200 blocking executions (1 second) fired together
+		IntStream.range(0, 200).forEach( i -> 
+			scheduler.taskService().scheduleTask(new TaskWorker() {
+				@Override
+				public void invoke() {
+					Timer.pause(1);
+					completed.incrementAndGet();
+				}
+				
+				@Override
+				public String getName() {
+					return "Blocking#" + i;
+				}
+			}, ScheduleFactory.withPeriod(Duration.ofSeconds(2)), true)
+		);
+		
+		TestUtils.waitFor(completed, () -> completed.get() >= 200, 10);
+		
+		SchedulerState stats = scheduler.state();
+		
+		assertThat(completed).hasValueGreaterThanOrEqualTo(200);
+		assertThat(stats.getMaxThreads()).isEqualTo(500);
+		assertThat(stats.getLargestPoolSize()).isEqualTo(200);
+		assertThat(stats.getStartedVirtualThreads()).isGreaterThanOrEqualTo(200);
+		assertThat(stats.isVirtualThreads()).isEqualTo(Runtime.version().feature() >= 21);
+		
+		scheduler.shutdown();
+	}
+	
+	@Test
+	@Order(30)
+	void should_replay_missed_executions_at_limited_rate_when_released() {
+		
+		log.debug("***** Should Replay Missed Executions At Limited Rate When Released *****");
+		
+		RubyScheduler scheduler = new RubySchedulerBuilder()
+				.withMisfireThreshold(Duration.ofMillis(500))
+				.withMisfireCatchUpRate(2)
+				.build();
+		
+		scheduler.start();
+		
+		Task replayed = scheduler.taskService().scheduleTask(new FooWorker("Replayed", 0), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true);
+		Task skipped = scheduler.taskService().scheduleTask(new FooWorker("Skipped", 0), ScheduleFactory.withPeriod(Duration.ofSeconds(1)), true);
+		scheduler.taskService().setMisfirePolicy("Replayed", MisfirePolicy.fireAllMissed());
+		
+		TestUtils.waitFor(scheduler, () -> replayed.getExecutionCount() > 0 && skipped.getExecutionCount() > 0, 5);
+		
+		// About 4 executions are missed while suspended
+		scheduler.suspend();
+		Timer.pause(4);
+		
+		long releasedAt = System.nanoTime();
+		scheduler.release();
+		
+		SchedulerState state = scheduler.state();
+		
+		assertThat(state.getCatchUpPendingRuns() + state.getCatchUpAdmittedRuns()).isBetween(3L, 5L);
+		
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getCatchUpPendingRuns() == 0, 10);
+		
+		// One replay admitted every 500 ms
+		long elapsedMillis = Duration.ofNanos(System.nanoTime() - releasedAt).toMillis();
+		
+		assertThat(scheduler.state().getCatchUpAdmittedRuns()).isBetween(3L, 5L);
+		assertThat(elapsedMillis).isGreaterThanOrEqualTo(1_000);
+		assertThat(skipped.getMisfirePolicy()).isEqualTo(MisfirePolicy.SKIP);
+		
+		scheduler.shutdown();
+	}
+	
+	@Test
+	@Order(40)
+	void should_dispatch_urgent_task_first_and_age_waiting_tasks_when_threads_are_busy() {
+		
+		log.debug("***** Should Dispatch Urgent Task First And Age Waiting Tasks When Threads Are Busy *****");
+		
+		// Settlement queued after the housekeeping tasks gets the first free thread
+		List<QueueWaitState> queueWaits = new CopyOnWriteArrayList<>();
+		List<String> order = dispatchOrder(Duration.ofSeconds(10), queueWaits);
+		
+		assertThat(order).hasSize(6).first().isEqualTo("Settlement");
+		assertThat(queueWaits).filteredOn( w -> w.getPriority() == TaskPriority.CRITICAL ).singleElement()
+				.satisfies( w -> assertThat(w.getDispatched()).isPositive() );
+		assertThat(queueWaits).filteredOn( w -> w.getPriority() == TaskPriority.LOW ).singleElement()
+				.satisfies( w -> {
+					assertThat(w.getDispatched()).isGreaterThanOrEqualTo(5);
+					assertThat(w.getMaxWait()).isGreaterThan(Duration.ofSeconds(2));
+				});
+		
+		// Aged housekeeping tasks (waiting longer) overtake the settlement
+		queueWaits.clear();
+		order = dispatchOrder(Duration.ofMillis(100), queueWaits);
+		
+		assertThat(order).hasSize(6).first().asString().startsWith("Housekeeping");
+		assertThat(queueWaits).filteredOn( w -> w.getPriority() == TaskPriority.LOW ).singleElement()
+				.satisfies( w -> assertThat(w.getAged()).isPositive() );
+	}
+	
+	/**
+	 * Busy threads, 5 LOW priority tasks queued then 1 CRITICAL task queued: one thread is released.
+	 * 
+	 * @return the first 6 executions
+	 */
+	private static List<String> dispatchOrder(Duration priorityAging, List<QueueWaitState> queueWaits) {
+		RubyScheduler scheduler = new RubySchedulerBuilder().withMaxThreads(5).withPriorityAging(priorityAging).build();
+		scheduler.start();
+		
+		// The timers do not run on the task threads: busy tasks hold them
+		List<CountDownLatch> busy = IntStream.range(0, 5).mapToObj( i -> new CountDownLatch(1) ).collect(Collectors.toList());
+		List<Task> busyTasks = IntStream.range(0, 5)
+				.mapToObj( i -> scheduler.taskService().scheduleTask(new TaskWorker() {
+					@Override
+					public void invoke() {
+						try {
+							busy.get(i).await();
+						} catch (InterruptedException ie) {
+							Thread.currentThread().interrupt();
+						}
+					}
+					
+					@Override
+					public String getName() {
+						return "Busy#" + i;
+					}
+				}, ScheduleFactory.withPeriod(Duration.ofMillis(100)), true) )
+				.collect(Collectors.toList());
+		
+		TestUtils.waitFor(scheduler, () -> busyTasks.stream().allMatch( t -> t.getState() == TaskState.RUNNING ), 5);
+		busyTasks.forEach( t -> scheduler.taskService().enableTask(t.getName(), false) );
+		
+		List<String> order = new CopyOnWriteArrayList<>();
+		
+		List<Task> housekeeping = IntStream.range(0, 5)
+				.mapToObj( i -> scheduleTask(scheduler, "Housekeeping#" + i, TaskPriority.LOW, order) )
+				.collect(Collectors.toList());
+		
+		TestUtils.waitFor(scheduler, () -> housekeeping.stream().allMatch( t -> t.getState() == TaskState.QUEUED ), 5);
+		
+		Task settlement = scheduleTask(scheduler, "Settlement", TaskPriority.CRITICAL, order);
+		
+		TestUtils.waitFor(scheduler, () -> settlement.getState() == TaskState.QUEUED, 5);
+		
+		// The executions run one after the other on the released thread
+		busy.get(0).countDown();
+		
+		TestUtils.waitFor(scheduler, () -> order.size() >= 6, 5);
+		
+		queueWaits.addAll(scheduler.state().getQueueWaits());
+		busy.forEach(CountDownLatch::countDown);
+		scheduler.shutdown();
+		
+		log.debug("Dispatch order: {}, queue waits: {}", order, queueWaits);
+		
+		return order.subList(0, Math.min(6, order.size()));
+	}
+	
+	private static Task scheduleTask(RubyScheduler scheduler, String name, TaskPriority priority, List<String> order) {
+		TaskWorker worker = new TaskWorker() {
+			@Override
+			public void invoke() {
+				order.add(name);
+			}
+			
+			@Override
+			public String getName() {
+				return name;
+			}
+		};
+		
+		Task task = scheduler.taskService().scheduleTask(worker, ScheduleFactory.withPeriod(Duration.ofMillis(200)), false);
+		scheduler.taskService().setPriority(name, priority);
+		
+		return scheduler.taskService().enableTask(name, true);
+	}
 }
@@ -0,0 +1,154 @@
+package mike.demo.test.module.core;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import mike.demo.tasksched.library.ruby.RubyScheduler;
+import mike.demo.tasksched.library.ruby.RubySchedulerBuilder;
+import mike.demo.tasksched.library.ruby.schedule.ScheduleFactory;
+import mike.demo.tasksched.library.ruby.timer.HierarchicalTimingWheel;
+import mike.demo.tasksched.library.ruby.timer.HierarchicalTimingWheel.Timeout;
+import mike.demo.tasksched.library.ruby.timer.OneShotTimer;
+
+@DisplayName("Scheduler::TimingWheel")
+class TimingWheelTest {
+
+	private static final Logger log = LoggerFactory.getLogger(TimingWheelTest.class);
+
+	@Test
+	void should_expire_each_timer_at_its_deadline_tick() {
+
+		log.debug("***** Expire Each Timer At Its Deadline Tick *****");
+
+		HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1_000);
+		Random random = new Random(42);
+
+		// Spread timers over all the levels (up to 2^30 ticks)
+		List<Timeout<Long>> timeouts = new ArrayList<>();
+		for ( int i = 0; i < 20_000; i++ ) {
+			long deadline = 1_000 + (random.nextLong() >>> (34 + random.nextInt(30)));
+			timeouts.add(wheel.schedule(deadline, deadline));
+		}
+
+		// Cancel one timer out of four
+		int cancelled = 0;
+		for ( int i = 0; i < timeouts.size(); i += 4 ) {
+			assertThat(wheel.cancel(timeouts.get(i))).isTrue();
+			assertThat(wheel.cancel(timeouts.get(i))).isFalse();
+			cancelled++;
+		}
+
+		assertThat(wheel.size()).isEqualTo(timeouts.size() - cancelled);
+
+		Map<Long, Integer> expiredByTick = new HashMap<>();
+		AtomicInteger misplaced = new AtomicInteger();
+
+		// Advance by random steps and check that timers expire neither before nor after their deadline
+		while ( ! wheel.isEmpty() ) {
+			long previous = wheel.currentTick() - 1;
+			long target = Math.min(wheel.nextEventTick(), wheel.currentTick() + random.nextInt(1 << 20));
+			wheel.advanceTo(target, deadline -> {
+				if ( deadline > target || deadline <= previous ) {
+					misplaced.incrementAndGet();
+				}
+				expiredByTick.merge(deadline, 1, Integer::sum);
+			});
+		}
+
+		assertThat(misplaced).hasValue(0);
+		assertThat(expiredByTick.values().stream().mapToInt(Integer::intValue).sum()).isEqualTo(timeouts.size() - cancelled);
+		assertThat(timeouts).allSatisfy( t -> assertThat(t.isPending()).isFalse() );
+	}
+
+	@Test
+	void should_expire_timers_exactly_on_time_when_advanced_tick_by_tick() {
+
+		log.debug("***** Expire Timers Exactly On Time *****");
+
+		HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(0);
+
+		for ( long deadline = 0; deadline < 100_000; deadline += 7 ) {
+			wheel.schedule(deadline, deadline);
+		}
+
+		List<String> errors = new ArrayList<>();
+
+		for ( long tick = 0; tick < 100_000; tick++ ) {
+			long current = tick;
+			wheel.advanceTo(tick, deadline -> {
+				if ( deadline != current ) {
+					errors.add(deadline + " expired at " + current);
+				}
+			});
+		}
+
+		assertThat(errors).isEmpty();
+		assertThat(wheel.isEmpty()).isTrue();
+	}
+
+	@Test
+	void should_run_one_shot_timer_unless_cancelled() {
+
+		log.debug("***** Run One-Shot Timer Unless Cancelled *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().build();
+		AtomicInteger fired = new AtomicInteger();
+
+		OneShotTimer timer1 = scheduler.taskService().scheduleTimer("timer1", Duration.ofMillis(50), fired::incrementAndGet);
+		OneShotTimer timer2 = scheduler.taskService().scheduleTimer("timer2", Duration.ofMillis(100), fired::incrementAndGet);
+		OneShotTimer timer3 = scheduler.taskService().scheduleTimer("timer3", Duration.ofHours(1), fired::incrementAndGet);
+
+		assertThat(scheduler.taskService().pendingTimers()).isEqualTo(3);
+		assertThat(timer2.cancel()).isTrue();
+
+		TestUtils.waitFor(timer1, () -> fired.get() > 0, 5);
+
+		assertThat(fired).hasValue(1);
+		assertThat(timer1.isExpired()).isTrue();
+		assertThat(timer2.isCancelled()).isTrue();
+		assertThat(timer3.isExpired()).isFalse();
+		assertThat(scheduler.state().getPendingTimers()).isEqualTo(1);
+
+		scheduler.shutdown();
+	}
+
+	@Test
+	void should_run_one_shot_timer_when_task_queue_is_full() {
+
+		log.debug("***** Run One-Shot Timer When Task Queue Is Full *****");
+
+		RubyScheduler scheduler = new RubySchedulerBuilder().withMinThreads(5).withMaxThreads(5).withQueueCapacity(1).build();
+		scheduler.start();
+
+		AtomicInteger fired = new AtomicInteger();
+
+		// 5 slow executions hold the task threads, the next one fills the queue
+		for ( int i = 0; i < 6; i++ ) {
+			scheduler.taskService().scheduleTask(new FooWorker("Slow#" + i, 3), ScheduleFactory.withPeriod(Duration.ofMillis(100)), true);
+		}
+
+		TestUtils.waitFor(scheduler, () -> scheduler.state().getQueueDepth() == 1, 5);
+		assertThat(scheduler.state().getQueueDepth()).isEqualTo(1);
+
+		OneShotTimer timer = scheduler.taskService().scheduleTimer("timer", Duration.ofMillis(50), fired::incrementAndGet);
+
+		TestUtils.waitFor(timer, () -> fired.get() > 0, 1);
+
+		assertThat(fired).hasValue(1);
+		assertThat(timer.isExpired()).isTrue();
+
+		scheduler.shutdown();
+	}
+}